@@ -5,7 +5,9 @@ import jobshop.encodings.Task;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Scanner;
 import java.util.stream.Collectors;
 
@@ -23,6 +25,9 @@ public class Instance {
 	final int[][] durations;
 	final int[][] machines;
 
+	/* Lazily created, see reversed() */
+	private volatile Instance reversed;
+
 	public int duration(int job, int task) {
 		return durations[job][task];
 	}
@@ -49,18 +54,83 @@ public class Instance {
 	}
 
 	Instance(int numJobs, int numTasks) {
+		this(numJobs, numTasks, new int[numJobs][numTasks], new int[numJobs][numTasks]);
+	}
+
+	private Instance(int numJobs, int numTasks, int[][] durations, int[][] machines) {
 		this.numJobs = numJobs;
 		this.numTasks = numTasks;
 		this.numMachines = numTasks;
 
-		durations = new int[numJobs][numTasks];
-		machines = new int[numJobs][numTasks];
+		this.durations = durations;
+		this.machines = machines;
+	}
+
+	/**
+	 * The reversed instance : every job goes through its tasks backwards, task t of a job
+	 * being task numTasks - 1 - t of the same job here. A schedule of one instance read
+	 * backwards in time is a schedule of the other with the same makespan (see
+	 * Schedule.reversed()), but greedy rules and local searches do not find the same ones.
+	 *
+	 * This is a view sharing the data of this instance, its own reversed instance is this one.
+	 */
+	public Instance reversed() {
+		Instance reversed = this.reversed;
+		if (reversed == null) {
+			reversed = new Reversed(this);
+			this.reversed = reversed;
+		}
+		return reversed;
+	}
+
+	/** True if this instance is the reversed view of another one. */
+	public boolean isReversed() {
+		return false;
+	}
+
+	/* Reversed view, see reversed() */
+	private static final class Reversed extends Instance {
+		private final Instance original;
+
+		Reversed(Instance original) {
+			super(original.numJobs, original.numTasks, null, null);
+			this.original = original;
+		}
+
+		@Override
+		public int duration(int job, int task) {
+			return original.duration(job, numTasks - 1 - task);
+		}
+
+		@Override
+		public int machine(int job, int task) {
+			return original.machine(job, numTasks - 1 - task);
+		}
+
+		@Override
+		public Instance reversed() {
+			return original;
+		}
+
+		@Override
+		public boolean isReversed() {
+			return true;
+		}
 	}
 
 	/** Parses a instance from a file. */
 	public static Instance fromFile(Path path) throws IOException {
-		Iterator<String> lines = Files.readAllLines(path).stream()
-			.filter(l -> !l.startsWith("#"))
+		return fromLines(Files.readAllLines(path));
+	}
+
+	/** Parses a instance from its text, in the same format as the instance files. */
+	public static Instance fromString(String text) {
+		return fromLines(Arrays.asList(text.split("\\r?\\n")));
+	}
+
+	private static Instance fromLines(List<String> allLines) {
+		Iterator<String> lines = allLines.stream()
+			.filter(l -> !l.startsWith("#") && !l.trim().isEmpty())
 			.collect(Collectors.toList())
 			.iterator();
 
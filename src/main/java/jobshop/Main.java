@@ -1,16 +1,31 @@
 package jobshop;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jobshop.bench.Statistics;
+import jobshop.metrics.ConvergenceTrace;
+import jobshop.metrics.Metrics;
+import jobshop.output.ResultRecord;
+import jobshop.output.ResultWriter;
+import jobshop.service.SolveClient;
 
 import jobshop.solvers.*;
 
 import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
 import net.sourceforge.argparse4j.inf.ArgumentParser;
 import net.sourceforge.argparse4j.inf.ArgumentParserException;
 import net.sourceforge.argparse4j.inf.Namespace;
@@ -20,82 +35,263 @@ public class Main {
 
 	private static final int DEFAULT_RANDOMNESS_LEVEL = 2;
 
-	/** All solvers available in this program */
-	private static HashMap<String, Solver> solvers;
+	/* Suffix of the solvers whose greedy part is randomized */
+	private static final String RANDOM_SUFFIX = "_random";
+
+	/* Suffix of the solvers starting from the shifting bottleneck's solution */
+	private static final String SHIFTING_BOTTLENECK_SUFFIX = "sb";
+
+	/* Suffix of the solvers followed by path relinking between their elite solutions */
+	private static final String RELINK_SUFFIX = "_relink";
+
+	/* Suffix of the solvers also run on the reversed instance, keeping the better of both directions */
+	private static final String BIDIRECTIONAL_SUFFIX = "_bidir";
+
+	/* Suffix of the taboo searches on the job numbers sequence rather than the resource order, as in tabooestlrpt_jn */
+	private static final String JOB_NUMBERS_SUFFIX = "_jn";
+
+	/* Suffix any solver takes to compact its final schedule into an active one, as in ilssb_active */
+	private static final String ACTIVE_SUFFIX = "_active";
+
+	/* Separator of a method and the dispatching rule of its greedy start, as in greedy:est,-rpt */
+	private static final String RULE_SEPARATOR = ":";
+
+	/* Separator of the neighbourhood suffix of graph-based local searches, as in ilssb_n7 */
+	private static final String NEIGHBORHOOD_SEPARATOR = "_";
+
+	/* Suffix of the graph-based local searches whose neighbourhood covers every critical path, as in ilssb_n5_all */
+	private static final String ALL_PATHS_SUFFIX = "_all";
+
+	/* Where convergence traces are written, null when they are not recorded (see --trace) */
+	private static Path traceDirectory = null;
+
+	/* Solves on a solve server rather than in this JVM when set (see --server) */
+	private static SolveClient server = null;
+
+	/**
+	 * Names of all solvers available in this program, see solver() for how each one is built.
+	 * Solvers are only built on demand : a run does not pay for the ones it does not use.
+	 */
+	private static final List<String> solvers = new ArrayList<>();
 	static {
-		solvers = new HashMap<>();
-
-		solvers.put("basic",			new BasicSolver());
-		solvers.put("random",			new RandomSolver());
-
-		/* GREEDY */
-		solvers.put("greedyspt",		new GreedySolver(GreedyBinaryRelation.SPT));
-		solvers.put("greedylpt",		new GreedySolver(GreedyBinaryRelation.LPT));
-		solvers.put("greedysrpt",		new GreedySolver(GreedyBinaryRelation.SRPT));
-		solvers.put("greedylrpt",		new GreedySolver(GreedyBinaryRelation.LRPT));
-
-		solvers.put("greedyestspt",		new GreedySolver(GreedyBinaryRelation.EST_SPT));
-		solvers.put("greedyestlpt",		new GreedySolver(GreedyBinaryRelation.EST_LPT));
-		solvers.put("greedyestsrpt",		new GreedySolver(GreedyBinaryRelation.EST_SRPT));
-		solvers.put("greedyestlrpt",		new GreedySolver(GreedyBinaryRelation.EST_LRPT));
-
-		solvers.put("greedyspt_random", 	new GreedySolver(GreedyBinaryRelation.SPT, DEFAULT_RANDOMNESS_LEVEL));
-		solvers.put("greedylpt_random", 	new GreedySolver(GreedyBinaryRelation.LPT, DEFAULT_RANDOMNESS_LEVEL));
-		solvers.put("greedysrpt_random",	new GreedySolver(GreedyBinaryRelation.SRPT, DEFAULT_RANDOMNESS_LEVEL));
-		solvers.put("greedylrpt_random", 	new GreedySolver(GreedyBinaryRelation.LRPT, DEFAULT_RANDOMNESS_LEVEL));
-
-		solvers.put("greedyestspt_random", 	new GreedySolver(GreedyBinaryRelation.EST_SPT, DEFAULT_RANDOMNESS_LEVEL));
-		solvers.put("greedyestlpt_random", 	new GreedySolver(GreedyBinaryRelation.EST_LPT, DEFAULT_RANDOMNESS_LEVEL));
-		solvers.put("greedyestsrpt_random",	new GreedySolver(GreedyBinaryRelation.EST_SRPT, DEFAULT_RANDOMNESS_LEVEL));
-		solvers.put("greedyestlrpt_random", 	new GreedySolver(GreedyBinaryRelation.EST_LRPT, DEFAULT_RANDOMNESS_LEVEL));
-
-		/* DESCENT */
-		solvers.put("descent",			new DescentSolver());
-
-		solvers.put("descentspt",		new DescentSolver(new GreedySolver(GreedyBinaryRelation.SPT)));
-		solvers.put("descentlpt",		new DescentSolver(new GreedySolver(GreedyBinaryRelation.LPT)));
-		solvers.put("descentsrpt",		new DescentSolver(new GreedySolver(GreedyBinaryRelation.SRPT)));
-		solvers.put("descentlrpt",		new DescentSolver(new GreedySolver(GreedyBinaryRelation.LRPT)));
-
-		solvers.put("descentestspt",		new DescentSolver(new GreedySolver(GreedyBinaryRelation.EST_SPT)));
-		solvers.put("descentestlpt",		new DescentSolver(new GreedySolver(GreedyBinaryRelation.EST_LPT)));
-		solvers.put("descentestsrpt",		new DescentSolver(new GreedySolver(GreedyBinaryRelation.EST_SRPT)));
-		solvers.put("descentestlrpt",		new DescentSolver(new GreedySolver(GreedyBinaryRelation.EST_LRPT)));
-
-		solvers.put("descentspt_random", 	new DescentSolver(new GreedySolver(GreedyBinaryRelation.SPT, DEFAULT_RANDOMNESS_LEVEL)));
-		solvers.put("descentlpt_random", 	new DescentSolver(new GreedySolver(GreedyBinaryRelation.LPT, DEFAULT_RANDOMNESS_LEVEL)));
-		solvers.put("descentsrpt_random",	new DescentSolver(new GreedySolver(GreedyBinaryRelation.SRPT, DEFAULT_RANDOMNESS_LEVEL)));
-		solvers.put("descentlrpt_random", 	new DescentSolver(new GreedySolver(GreedyBinaryRelation.LRPT, DEFAULT_RANDOMNESS_LEVEL)));
-
-		solvers.put("descentestspt_random", 	new DescentSolver(new GreedySolver(GreedyBinaryRelation.EST_SPT, DEFAULT_RANDOMNESS_LEVEL)));
-		solvers.put("descentestlpt_random", 	new DescentSolver(new GreedySolver(GreedyBinaryRelation.EST_LPT, DEFAULT_RANDOMNESS_LEVEL)));
-		solvers.put("descentestsrpt_random",	new DescentSolver(new GreedySolver(GreedyBinaryRelation.EST_SRPT, DEFAULT_RANDOMNESS_LEVEL)));
-		solvers.put("descentestlrpt_random", 	new DescentSolver(new GreedySolver(GreedyBinaryRelation.EST_LRPT, DEFAULT_RANDOMNESS_LEVEL)));
-
-		/* TABOO */
-		solvers.put("taboo",			new TabooSolver());
-
-		solvers.put("taboospt",			new TabooSolver(new GreedySolver(GreedyBinaryRelation.SPT)));
-		solvers.put("taboolpt",			new TabooSolver(new GreedySolver(GreedyBinaryRelation.LPT)));
-		solvers.put("taboosrpt",		new TabooSolver(new GreedySolver(GreedyBinaryRelation.SRPT)));
-		solvers.put("taboolrpt",		new TabooSolver(new GreedySolver(GreedyBinaryRelation.LRPT)));
-
-		solvers.put("tabooestspt",		new TabooSolver(new GreedySolver(GreedyBinaryRelation.EST_SPT)));
-		solvers.put("tabooestlpt",		new TabooSolver(new GreedySolver(GreedyBinaryRelation.EST_LPT)));
-		solvers.put("tabooestsrpt",		new TabooSolver(new GreedySolver(GreedyBinaryRelation.EST_SRPT)));
-		solvers.put("tabooestlrpt",		new TabooSolver(new GreedySolver(GreedyBinaryRelation.EST_LRPT)));
-
-		solvers.put("taboospt_random",		new TabooSolver(new GreedySolver(GreedyBinaryRelation.SPT, DEFAULT_RANDOMNESS_LEVEL)));
-		solvers.put("taboolpt_random",		new TabooSolver(new GreedySolver(GreedyBinaryRelation.LPT, DEFAULT_RANDOMNESS_LEVEL)));
-		solvers.put("taboosrpt_random",		new TabooSolver(new GreedySolver(GreedyBinaryRelation.SRPT, DEFAULT_RANDOMNESS_LEVEL)));
-		solvers.put("taboolrpt_random", 	new TabooSolver(new GreedySolver(GreedyBinaryRelation.LRPT, DEFAULT_RANDOMNESS_LEVEL)));
-
-		solvers.put("tabooestspt_random", 	new TabooSolver(new GreedySolver(GreedyBinaryRelation.EST_SPT, DEFAULT_RANDOMNESS_LEVEL)));
-		solvers.put("tabooestlpt_random", 	new TabooSolver(new GreedySolver(GreedyBinaryRelation.EST_LPT, DEFAULT_RANDOMNESS_LEVEL)));
-		solvers.put("tabooestsrpt_random",	new TabooSolver(new GreedySolver(GreedyBinaryRelation.EST_SRPT, DEFAULT_RANDOMNESS_LEVEL)));
-		solvers.put("tabooestlrpt_random", 	new TabooSolver(new GreedySolver(GreedyBinaryRelation.EST_LRPT, DEFAULT_RANDOMNESS_LEVEL)));
-
-		// add new solvers here
+		solvers.add("basic");
+		solvers.add("random");
+		solvers.add("descent");
+		solvers.add("taboo");
+		solvers.add("beam");
+
+		/* greedyestlrpt, descentspt_random, ...
+		 * concat() rather than '+' : the first indy string concatenation costs ~20ms at startup */
+		for (String method : new String[] { "greedy", "descent", "ils", "taboo", "rolling", "lns" }) {
+			for (GreedyBinaryRelation relation : GreedyBinaryRelation.values()) {
+				solvers.add(method.concat(relationName(relation)));
+				solvers.add(method.concat(relationName(relation)).concat(RANDOM_SUFFIX));
+			}
+		}
+
+		/* acolrpt, acodescentlrpt, grasplrpt, ... : ant colonies guided by a relation (acodescent polishing its best ants), GRASP */
+		for (String method : new String[] { "aco", "acodescent", "grasp" }) {
+			for (GreedyBinaryRelation relation : GreedyBinaryRelation.values()) {
+				solvers.add(method.concat(relationName(relation)));
+			}
+		}
+
+		/* shiftingbottleneck, alone and as the initial solution of descentsb, ilssb, ... */
+		solvers.add("shiftingbottleneck");
+		for (String method : new String[] { "descent", "ils", "taboo", "rolling", "lns" }) {
+			solvers.add(method.concat(SHIFTING_BOTTLENECK_SUFFIX));
+		}
+
+		/* grasplrpt_relink, taboosb_relink, ... : path relinking over the last part of their budget */
+		for (GreedyBinaryRelation relation : GreedyBinaryRelation.values()) {
+			solvers.add("grasp".concat(relationName(relation)).concat(RELINK_SUFFIX));
+			solvers.add("taboo".concat(relationName(relation)).concat(RELINK_SUFFIX));
+		}
+		solvers.add("taboo".concat(SHIFTING_BOTTLENECK_SUFFIX).concat(RELINK_SUFFIX));
+		solvers.add("lns".concat(SHIFTING_BOTTLENECK_SUFFIX).concat(RELINK_SUFFIX));
+
+		/* descentsb_n1, ilsestlrpt_n7, taboosb_insertion_all, ... : local searches on the disjunctive graph with one
+		 * neighbourhood, on one critical path or all of them */
+		for (String method : new String[] { "descent", "ils", "taboo" }) {
+			for (String start : new String[] { SHIFTING_BOTTLENECK_SUFFIX, relationName(GreedyBinaryRelation.EST_LRPT) }) {
+				for (Neighborhood neighborhood : Neighborhood.values()) {
+					String name = method.concat(start).concat(NEIGHBORHOOD_SEPARATOR).concat(neighborhood.name().toLowerCase());
+					solvers.add(name);
+					solvers.add(name.concat(ALL_PATHS_SUFFIX));
+				}
+			}
+		}
+
+		/* greedyestlrpt_bidir, ilssb_bidir, ... : the better of the solutions found on the instance and on the reversed one */
+		for (String method : new String[] { "greedy", "descent", "ils", "taboo" }) {
+			for (GreedyBinaryRelation relation : GreedyBinaryRelation.values()) {
+				solvers.add(method.concat(relationName(relation)).concat(BIDIRECTIONAL_SUFFIX));
+			}
+			if (!method.equals("greedy")) {
+				solvers.add(method.concat(SHIFTING_BOTTLENECK_SUFFIX).concat(BIDIRECTIONAL_SUFFIX));
+			}
+		}
+
+		/* taboo_jn, tabooestlrpt_jn, ... : the taboo search on the swaps of the job numbers sequence */
+		solvers.add("taboo".concat(JOB_NUMBERS_SUFFIX));
+		for (GreedyBinaryRelation relation : GreedyBinaryRelation.values()) {
+			solvers.add("taboo".concat(relationName(relation)).concat(JOB_NUMBERS_SUFFIX));
+		}
+
+		// add new solvers here, and how to build them in solver()
+	}
+
+	/* EST_LRPT -> estlrpt */
+	private static String relationName(GreedyBinaryRelation relation) {
+		return relation.name().replace("_", "").toLowerCase();
+	}
+
+	/**
+	 * Returns a new instance of the solver registered under the given name, null if there is none.
+	 * Any registered name followed by ACTIVE_SUFFIX is the same solver compacting its final schedule.
+	 * Besides the registered names, {greedy|descent|ils|taboo|rolling|lns}:RULE[_random] is the
+	 * method starting from the greedy solution of any dispatching rule (see DispatchingRule), as
+	 * in greedy:est,-rpt or taboo:est+dur,-slack_random.
+	 */
+	public static Solver solver(String name) {
+		if (name.endsWith(ACTIVE_SUFFIX)) {
+			Solver solver = solver(name.substring(0, name.length() - ACTIVE_SUFFIX.length()));
+			return solver == null ? null : new ActiveScheduleSolver(solver);
+		}
+		if (name.contains(RULE_SEPARATOR)) {
+			boolean randomized = name.endsWith(RANDOM_SUFFIX);
+			String base = randomized ? name.substring(0, name.length() - RANDOM_SUFFIX.length()) : name;
+			int separator = base.indexOf(RULE_SEPARATOR);
+			try {
+				return ruleSolver(base.substring(0, separator), DispatchingRule.parse(base.substring(separator + 1)), randomized);
+			} catch (IllegalArgumentException e) {
+				return null;
+			}
+		}
+		if (!solvers.contains(name)) {
+			return null;
+		}
+
+		switch (name) {
+			case "basic":	return new BasicSolver();
+			case "random":	return new RandomSolver();
+			case "descent":	return new DescentSolver();
+			case "taboo":	return new TabooSolver();
+			case "beam":	return new BeamSearchSolver();
+			case "shiftingbottleneck":	return new ShiftingBottleneckSolver();
+		}
+
+		if (name.endsWith(JOB_NUMBERS_SUFFIX)) {
+			String start = name.substring("taboo".length(), name.length() - JOB_NUMBERS_SUFFIX.length());
+			for (GreedyBinaryRelation relation : GreedyBinaryRelation.values()) {
+				if (start.equals(relationName(relation))) {
+					return new TabooSolver(new GreedySolver(relation), true);
+				}
+			}
+			return new TabooSolver(new GreedySolver(GreedyBinaryRelation.SPT), true);
+		}
+
+		if (name.endsWith(RELINK_SUFFIX)) {
+			return new PathRelinkingSolver(solver(name.substring(0, name.length() - RELINK_SUFFIX.length())));
+		}
+
+		if (name.endsWith(BIDIRECTIONAL_SUFFIX)) {
+			String base = name.substring(0, name.length() - BIDIRECTIONAL_SUFFIX.length());
+			return new BidirectionalSolver(solver(base), solver(base));
+		}
+
+		/* ilssb_n7 is ilssb on the N7 neighbourhood, ilssb_n7_all on the N7 moves of every critical path */
+		boolean allCriticalPaths = name.endsWith(ALL_PATHS_SUFFIX);
+		if (allCriticalPaths) {
+			name = name.substring(0, name.length() - ALL_PATHS_SUFFIX.length());
+		}
+		Neighborhood neighborhood = null;
+		int separator = name.lastIndexOf(NEIGHBORHOOD_SEPARATOR);
+		if (separator >= 0 && Neighborhood.of(name.substring(separator + 1)) != null) {
+			neighborhood = Neighborhood.of(name.substring(separator + 1));
+			name = name.substring(0, separator);
+		}
+
+		if (name.endsWith(SHIFTING_BOTTLENECK_SUFFIX)) {
+			return improvement(name.substring(0, name.length() - SHIFTING_BOTTLENECK_SUFFIX.length()), new ShiftingBottleneckSolver(), neighborhood, allCriticalPaths);
+		}
+
+		/* {greedy|descent|ils|taboo|rolling|lns}{relation}[_random], {aco|acodescent|grasp}{relation} */
+		boolean randomized = name.endsWith(RANDOM_SUFFIX);
+		String base = randomized ? name.substring(0, name.length() - RANDOM_SUFFIX.length()) : name;
+
+		for (GreedyBinaryRelation relation : GreedyBinaryRelation.values()) {
+			if (!base.endsWith(relationName(relation))) {
+				continue;
+			}
+			String method = base.substring(0, base.length() - relationName(relation).length());
+			if (method.equals("aco") || method.equals("acodescent")) {
+				return new AntColonySolver(relation, method.equals("acodescent"));
+			}
+			if (method.equals("grasp")) {
+				return new GraspSolver(relation);
+			}
+			/* greedyestlrpt also ends with lrpt : method "greedyest" is not one */
+			Solver solver = neighborhood == null
+				? ruleSolver(method, DispatchingRule.of(relation), randomized)
+				: improvement(method, new GreedySolver(relation), neighborhood, allCriticalPaths);
+			if (solver != null) {
+				return solver;
+			}
+		}
+		throw new IllegalStateException("solver \"" + name + "\" is registered but cannot be built");
+	}
+
+	/* The greedy solver on the rule, or the improvement method starting from its solution, null if there is no such method */
+	private static Solver ruleSolver(String method, DispatchingRule rule, boolean randomized) {
+		Solver greedy = randomized
+			? new GreedySolver(rule, DEFAULT_RANDOMNESS_LEVEL)
+			: new GreedySolver(rule);
+		return method.equals("greedy") ? greedy : improvement(method, greedy, null, false);
+	}
+
+	/* Why solver() builds nothing for the name of a rule solver, as method:RULE[_random][_active] */
+	private static String ruleSolverError(String name) {
+		while (name.endsWith(ACTIVE_SUFFIX)) {
+			name = name.substring(0, name.length() - ACTIVE_SUFFIX.length());
+		}
+		if (name.endsWith(RANDOM_SUFFIX)) {
+			name = name.substring(0, name.length() - RANDOM_SUFFIX.length());
+		}
+		int separator = name.indexOf(RULE_SEPARATOR);
+		String method = name.substring(0, separator);
+		if (ruleSolver(method, DispatchingRule.of(GreedyBinaryRelation.SPT), false) == null) {
+			return "unknown method \"" + method + "\" before " + RULE_SEPARATOR;
+		}
+		try {
+			DispatchingRule.parse(name.substring(separator + 1));
+		} catch (IllegalArgumentException e) {
+			return e.getMessage();
+		}
+		return "invalid solver name";
+	}
+
+	/*
+	 * The improvement method starting from the solution of the initial solver, on the given
+	 * neighbourhood (of one critical path or all of them) if not null, null if there is no such method
+	 */
+	private static Solver improvement(String method, Solver initialSolver, Neighborhood neighborhood, boolean allCriticalPaths) {
+		if (neighborhood != null) {
+			switch (method) {
+				case "descent":	return new DescentSolver(initialSolver, false, allCriticalPaths, neighborhood);
+				case "ils":	return new DescentSolver(initialSolver, true, allCriticalPaths, neighborhood);
+				case "taboo":	return new TabooSolver(initialSolver, allCriticalPaths, neighborhood);
+			}
+			return null;
+		}
+		switch (method) {
+			case "descent":	return new DescentSolver(initialSolver);
+			case "ils":	return new DescentSolver(initialSolver, true);
+			case "taboo":	return new TabooSolver(initialSolver);
+			case "rolling":	return new RollingHorizonSolver(initialSolver);
+			case "lns":	return new LargeNeighborhoodSolver(initialSolver);
+		}
+		return null;
 	}
 
 
@@ -118,6 +314,31 @@ public class Main {
 			.required(true)
 			.help("Instance(s) to solve (space separated if more than one)");
 
+		parser.addArgument("--seed")
+			.setDefault(SolveContext.DEFAULT_SEED)
+			.type(Long.class)
+			.help("Seed of the randomized solvers, the seeds of repeated runs are derived from it");
+		parser.addArgument("--runs")
+			.type(Integer.class)
+			.help("Run each solver RUNS times on each instance and report statistics instead of a single result");
+		parser.addArgument("--output")
+			.nargs(2)
+			.metavar("FORMAT", "FILE")
+			.help("Also stream every result to FILE as it completes, FORMAT being one of " + Arrays.toString(ResultWriter.FORMATS));
+		parser.addArgument("--metrics")
+			.action(Arguments.storeTrue())
+			.help("Instrument the solvers and print their counters and timers on stderr once done (same as -Djobshop.metrics=true)");
+		parser.addArgument("--threads")
+			.setDefault(Runtime.getRuntime().availableProcessors())
+			.type(Integer.class)
+			.help("Number of runs executed in parallel with --runs");
+		parser.addArgument("--trace")
+			.metavar("DIR")
+			.help("Record the makespan over time of every run into DIR/<instance>_<solver>_<seed>.csv");
+		parser.addArgument("--server")
+			.metavar("URL")
+			.help("Solve on a running solve server (e.g. http://127.0.0.1:8765/) instead of in this JVM");
+
 		Namespace ns = null;
 		try {
 			ns = parser.parseArgs(args);
@@ -128,14 +349,25 @@ public class Main {
 
 		PrintStream output = System.out;
 
+		/* must happen before any solver runs : the switch is read once, when Metrics is loaded */
+		if (ns.getBoolean("metrics")) {
+			System.setProperty("jobshop.metrics", "true");
+		}
+
 		long solveTimeMs = ns.getLong("timeout") * 1000;
 
+		long seed = ns.getLong("seed");
+
 		List<String> solversToTest = ns.getList("solver");
 		for(String solverName : solversToTest) {
-			if(!solvers.containsKey(solverName)) {
+			if(solver(solverName) == null) {
 				System.err.println("ERROR: Solver \"" + solverName + "\" is not avalaible.");
-				System.err.println("       Available solvers: " + solvers.keySet().toString());
-				System.err.println("       You can provide your own solvers by adding them to the `Main.solvers` HashMap.");
+				if (solverName.contains(RULE_SEPARATOR)) {
+					System.err.println("       " + ruleSolverError(solverName));
+				}
+				System.err.println("       Available solvers: " + solvers.toString() + ", each one also followed by " + ACTIVE_SUFFIX);
+				System.err.println("       and {greedy|descent|ils|taboo|rolling|lns}" + RULE_SEPARATOR + "RULE[" + RANDOM_SUFFIX + "] for any valid dispatching rule (see DispatchingRule).");
+				System.err.println("       You can provide your own solvers by adding them to `Main.solvers` and `Main.solver()`.");
 				System.exit(1);
 			}
 		}
@@ -151,68 +383,219 @@ public class Main {
 			instances.addAll(matches);
 		}
 
+		if (ns.getString("trace") != null) {
+			traceDirectory = Paths.get(ns.getString("trace"));
+			try {
+				Files.createDirectories(traceDirectory);
+			} catch (IOException e) {
+				System.err.println("ERROR: cannot create trace directory " + traceDirectory + " : " + e.getMessage());
+				System.exit(1);
+			}
+		}
+
+		if (ns.getString("server") != null) {
+			if (traceDirectory != null || ns.getBoolean("metrics")) {
+				System.err.println("ERROR: --trace and --metrics are not available with --server.");
+				System.exit(1);
+			}
+			server = new SolveClient(URI.create(ns.getString("server")));
+		}
+
+		ResultWriter writer = null;
+		List<String> outputArgs = ns.getList("output");
+		if (outputArgs != null) {
+			if (!Arrays.asList(ResultWriter.FORMATS).contains(outputArgs.get(0))) {
+				System.err.println("ERROR: output format \"" + outputArgs.get(0) + "\" is not available.");
+				System.err.println("       Available formats: " + Arrays.toString(ResultWriter.FORMATS));
+				System.exit(1);
+			}
+			try {
+				writer = ResultWriter.open(outputArgs.get(0), Paths.get(outputArgs.get(1)));
+			} catch (IOException e) {
+				System.err.println("ERROR: cannot write to " + outputArgs.get(1) + " : " + e.getMessage());
+				System.exit(1);
+			}
+		}
+
+		try {
+			if (ns.getInt("runs") != null) {
+				runStatistics(output, writer, solversToTest, instances, solveTimeMs, seed, ns.getInt("runs"), ns.getInt("threads"));
+			} else {
+				runOnce(output, writer, solversToTest, instances, solveTimeMs, seed);
+			}
+			if (writer != null) {
+				writer.close();
+			}
+			if (Metrics.ENABLED) {
+				Metrics.report(System.err);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/** Runs every solver once on every instance and prints the result table. */
+	private static void runOnce(PrintStream output, ResultWriter writer, List<String> solversToTest, List<String> instances,
+			long solveTimeMs, long seed) throws Exception {
+
 		float[] runtimes = new float[solversToTest.size()];
 		float[] distances = new float[solversToTest.size()];
 
-		try {
-			output.print(  "                         ");
-			for(String s : solversToTest)
-				output.printf("%-30s", s);
-			output.println();
-			output.print("instance size  best      ");
-			for(String s : solversToTest) {
-				output.print("runtime makespan ecart        ");
+		output.print(  "                         ");
+		for(String s : solversToTest)
+			output.printf("%-30s", s);
+		output.println();
+		output.print("instance size  best      ");
+		for(String s : solversToTest) {
+			output.print("runtime makespan ecart        ");
+		}
+		output.println();
+
+
+		for(String instanceName : instances) {
+			int bestKnown = BestKnownResult.of(instanceName);
+
+
+			Path path = Paths.get("instances/", instanceName);
+			Instance instance = Instance.fromFile(path);
+
+			output.printf("%-8s %-5s %4d      ",instanceName, instance.numJobs +"x"+instance.numTasks, bestKnown);
+
+			for(int solverId = 0 ; solverId < solversToTest.size() ; solverId++) {
+				String solverName = solversToTest.get(solverId);
+				ResultRecord record = solveOnce(solverName, instanceName, instance, bestKnown, solveTimeMs, seed);
+				if (writer != null) {
+					writer.write(record);
+				}
+
+				long runtime = record.runtimeNs / 1_000_000;
+				int makespan = record.makespan;
+				float dist = 100f * (makespan - bestKnown) / (float) bestKnown;
+				runtimes[solverId] += (float) runtime / (float) instances.size();
+				distances[solverId] += dist / (float) instances.size();
+
+				output.printf("%7d %8s %5.1f        ", runtime, makespan, dist);
+				output.flush();
 			}
 			output.println();
 
+		}
 
-			for(String instanceName : instances) {
-				int bestKnown = BestKnownResult.of(instanceName);
 
+		output.printf("%-8s %-5s %4s      ", "AVG", "-", "-");
+		for(int solverId = 0 ; solverId < solversToTest.size() ; solverId++) {
+			output.printf("%7.1f %8s %5.1f        ", runtimes[solverId], "-", distances[solverId]);
+		}
+		output.println();
+	}
 
-				Path path = Paths.get("instances/", instanceName);
-				Instance instance = Instance.fromFile(path);
+	/**
+	 * Runs every solver `runs` times on every instance, in parallel on `threads` threads,
+	 * and prints the statistics of the makespans and runtimes of these runs.
+	 * The seed of each run is derived from `seed`, run i of every (solver, instance)
+	 * pair gets the same seed so that solvers are compared on the same random draws.
+	 */
+	private static void runStatistics(PrintStream output, ResultWriter writer, List<String> solversToTest, List<String> instances,
+			long solveTimeMs, long seed, int runs, int threads) throws Exception {
+
+		if (runs < 1 || threads < 1) {
+			throw new IllegalArgumentException("--runs and --threads must be positive");
+		}
 
-				output.printf("%-8s %-5s %4d      ",instanceName, instance.numJobs +"x"+instance.numTasks, bestKnown);
+		long[] runSeeds = new long[runs];
+		SplittableRandom seeds = new SplittableRandom(seed);
+		for (int run = 0 ; run < runs ; run++) {
+			runSeeds[run] = seeds.split().nextLong();
+		}
 
-				for(int solverId = 0 ; solverId < solversToTest.size() ; solverId++) {
-					String solverName = solversToTest.get(solverId);
-					Solver solver = solvers.get(solverName);
-					long start = System.currentTimeMillis();
-					long deadline = System.currentTimeMillis() + solveTimeMs;
-					Result result = solver.solve(instance, deadline);
-					long runtime = System.currentTimeMillis() - start;
+		output.printf("%-8s %-5s %4s  %-22s %4s  %8s %8s %7s %6s %8s %8s  %8s %8s %7s %7s %8s %8s  %5s%n",
+			"instance", "size", "best", "solver", "runs",
+			"mk_mean", "mk_med", "mk_std", "mk_min", "mk_ci_lo", "mk_ci_hi",
+			"rt_mean", "rt_med", "rt_std", "rt_min", "rt_ci_lo", "rt_ci_hi", "ecart");
 
-					if(!result.schedule.isValid()) {
-						System.err.println("ERROR: solver returned an invalid schedule");
-						System.exit(1);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			for (String instanceName : instances) {
+				int bestKnown = BestKnownResult.of(instanceName);
+				Instance instance = Instance.fromFile(Paths.get("instances/", instanceName));
+
+				/* submit every run on this instance at once so that all threads are kept busy */
+				List<List<Future<ResultRecord>>> futures = new ArrayList<>();
+				for (String solverName : solversToTest) {
+					List<Future<ResultRecord>> solverFutures = new ArrayList<>();
+					for (int run = 0 ; run < runs ; run++) {
+						long runSeed = runSeeds[run];
+						solverFutures.add(pool.submit(() -> {
+							ResultRecord record = solveOnce(solverName, instanceName, instance, bestKnown, solveTimeMs, runSeed);
+							/* written as soon as the run completes, not when the whole instance is done */
+							if (writer != null) {
+								writer.write(record);
+							}
+							return record;
+						}));
 					}
+					futures.add(solverFutures);
+				}
 
-					assert result.schedule.isValid();
-					int makespan = result.schedule.makespan();
-					float dist = 100f * (makespan - bestKnown) / (float) bestKnown;
-					runtimes[solverId] += (float) runtime / (float) instances.size();
-					distances[solverId] += dist / (float) instances.size();
-
-					output.printf("%7d %8s %5.1f        ", runtime, makespan, dist);
+				for (int solverId = 0 ; solverId < solversToTest.size() ; solverId++) {
+					double[] makespans = new double[runs];
+					double[] runtimes = new double[runs];
+					for (int run = 0 ; run < runs ; run++) {
+						ResultRecord record = futures.get(solverId).get(run).get();
+						makespans[run] = record.makespan;
+						runtimes[run] = record.runtimeNs / 1e6;
+					}
+					Statistics mk = new Statistics(makespans);
+					Statistics rt = new Statistics(runtimes);
+
+					output.printf("%-8s %-5s %4d  %-22s %4d  %8.1f %8.1f %7.1f %6.0f %8.1f %8.1f  %8.1f %8.1f %7.1f %7.1f %8.1f %8.1f  %5.1f%n",
+						instanceName, instance.numJobs +"x"+instance.numTasks, bestKnown, solversToTest.get(solverId), runs,
+						mk.mean, mk.median, mk.stddev, mk.min, mk.ciLow, mk.ciHigh,
+						rt.mean, rt.median, rt.stddev, rt.min, rt.ciLow, rt.ciHigh,
+						100f * (mk.mean - bestKnown) / bestKnown);
 					output.flush();
 				}
-				output.println();
-
 			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
 
+	/* Solves the instance with a fresh solver, within a fresh context so that evaluations and incumbents do not add up */
+	private static ResultRecord solveOnce(String solverName, String instanceName, Instance instance, int bestKnown,
+			long solveTimeMs, long seed) throws IOException {
+		if (server != null) {
+			return server.solve(solverName, instanceName, instance.numJobs + "x" + instance.numTasks, bestKnown, solveTimeMs, seed);
+		}
 
-			output.printf("%-8s %-5s %4s      ", "AVG", "-", "-");
-			for(int solverId = 0 ; solverId < solversToTest.size() ; solverId++) {
-				output.printf("%7.1f %8s %5.1f        ", runtimes[solverId], "-", distances[solverId]);
-			}
-			System.out.println();
+		Solver solver = solver(solverName);
 
+		try (SolveContext context = SolveContext.open(solverName, seed, Long.MAX_VALUE)) {
+			ConvergenceTrace trace = null;
+			if (traceDirectory != null) {
+				trace = new ConvergenceTrace();
+				context.setTrace(trace);
+			}
 
+			long start = System.nanoTime();
+			Result result = solver.solve(instance, System.currentTimeMillis() + solveTimeMs);
+			long runtime = System.nanoTime() - start;
 
-		} catch (Exception e) {
-			e.printStackTrace();
-			System.exit(1);
+			if (!result.schedule.isValid()) {
+				throw new IllegalStateException("ERROR: solver " + solverName + " returned an invalid schedule");
+			}
+			if (trace != null) {
+				/* the final sample, so that every trace ends with the makespan returned */
+				trace.record(runtime, context.iterations(), result.schedule.makespan(), result.schedule.makespan());
+				Path file = traceDirectory.resolve(instanceName + "_" + solverName + "_" + seed + ".csv");
+				try (Writer out = Files.newBufferedWriter(file)) {
+					trace.writeCsv(out);
+				}
+			}
+			return new ResultRecord(instanceName, instance.numJobs + "x" + instance.numTasks, solverName, seed, runtime,
+				result.schedule.makespan(), bestKnown, result.cause,
+				context.evaluations(), context.lastImprovementNanos(), context.lastImprovementEvaluations());
 		}
 	}
 }
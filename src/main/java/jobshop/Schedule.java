@@ -23,6 +23,24 @@ public class Schedule {
 		return times[job][task];
 	}
 
+	/**
+	 * This schedule read backwards in time, a schedule of the reversed instance (see
+	 * Instance.reversed()) with the same makespan. A semi-active schedule becomes one where
+	 * every operation starts as late as possible, new ResourceOrder(s).toSchedule() gives
+	 * back a semi-active one, never longer.
+	 */
+	public Schedule reversed() {
+		int makespan = this.makespan();
+		int last = pb.numTasks - 1;
+		int[][] mirrored = new int[pb.numJobs][pb.numTasks];
+		for (int j = 0 ; j < pb.numJobs ; j++) {
+			for (int t = 0 ; t < pb.numTasks ; t++) {
+				mirrored[j][last - t] = makespan - times[j][t] - pb.duration(j, t);
+			}
+		}
+		return new Schedule(pb.reversed(), mirrored);
+	}
+
 	/** Returns true if this schedule is valid (no constraint is violated) */
 	public boolean isValid() {
 		for(int j = 0 ; j<pb.numJobs ; j++) {
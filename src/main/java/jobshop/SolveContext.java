@@ -0,0 +1,280 @@
+package jobshop;
+
+import jobshop.metrics.ConvergenceTrace;
+import jobshop.metrics.Metrics;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * State of a single solver run, shared by the solver and whoever launched it.
+ *
+ * It carries the seed randomized solvers must draw from, the evaluation budget
+ * (number of decoded solutions) the run is allowed to spend, and the history of
+ * the incumbent makespan.
+ *
+ * The context is bound to the thread running the solver : solvers and decoders
+ * get it through {@link #current()}, so the {@link Solver} interface does not
+ * need to change. Solvers spawning worker threads must {@link #attach()} the
+ * context on each of them.
+ */
+public class SolveContext implements AutoCloseable {
+
+	/** Seed used when nobody asked for a specific one (RandomSolver historically used 0). */
+	public static final long DEFAULT_SEED = 0;
+
+	private static final ThreadLocal<SolveContext> current =
+		ThreadLocal.withInitial(() -> new SolveContext("solver", DEFAULT_SEED, Long.MAX_VALUE));
+
+	/** Name of what is being run (typically the solver name), used to label reports. */
+	public final String label;
+
+	/** Seed of this run. */
+	public final long seed;
+
+	/** Maximum number of evaluations this run may perform. */
+	public final long maxEvaluations;
+
+	/* Date (System.nanoTime()) at which the context has been created */
+	private final long startNs;
+
+	/* Number of decoded solutions so far */
+	private final AtomicLong evaluations = new AtomicLong();
+
+	/* Number of local search iterations so far */
+	private final AtomicLong iterations = new AtomicLong();
+
+	/* Lazily created, see random() */
+	private Random random;
+
+	/* Generators of the threads attached with a seed of their own, see attach(long) */
+	private final ThreadLocal<Random> threadRandom = new ThreadLocal<>();
+
+	/* Optional makespan-over-time recording */
+	private volatile ConvergenceTrace trace;
+
+	/* Optional callback notified of every new incumbent */
+	private volatile ImprovementListener improvementListener;
+
+	/* Iterations reported to the flight recorder, only used when metrics are enabled */
+	private Metrics.IterationBatch iterationBatch;
+
+	/* Incumbent history */
+	private volatile int bestMakespan = Integer.MAX_VALUE;
+	private long lastImprovementNs = -1;
+	private long lastImprovementEvaluations = -1;
+
+	/* Time-to-target bookkeeping, only meaningful once a target is set */
+	private int target = -1;
+	private long targetReachedNs = -1;
+	private long targetReachedEvaluations = -1;
+
+	public SolveContext(String label, long seed, long maxEvaluations) {
+		this.label = label;
+		this.seed = seed;
+		this.maxEvaluations = maxEvaluations;
+		this.startNs = System.nanoTime();
+	}
+
+	/**
+	 * Creates a context and binds it to the calling thread.
+	 * @param label			Name of what is being run, typically the solver name
+	 * @param seed			Seed randomized solvers will use
+	 * @param maxEvaluations	Evaluation budget of the run (Long.MAX_VALUE for none)
+	 * @return			The newly bound context, to be closed once the run is over
+	 */
+	public static SolveContext open(String label, long seed, long maxEvaluations) {
+		SolveContext context = new SolveContext(label, seed, maxEvaluations);
+		context.attach();
+		return context;
+	}
+
+	/** Returns the context bound to the calling thread. */
+	public static SolveContext current() {
+		return current.get();
+	}
+
+	/** Binds this context to the calling thread. */
+	public void attach() {
+		current.set(this);
+	}
+
+	/**
+	 * Binds this context to the calling thread, whose random() is then a generator of its
+	 * own : a solver running beside others draws the same numbers whatever their order.
+	 * @param seed	Seed of the thread's generator, typically drawn from random() by the thread starting it
+	 */
+	public void attach(long seed) {
+		this.attach();
+		this.threadRandom.set(new Random(seed));
+	}
+
+	/** Unbinds this context from the calling thread. */
+	@Override
+	public void close() {
+		this.threadRandom.remove();
+		if (current.get() == this) {
+			current.remove();
+		}
+	}
+
+	/**
+	 * Random generator seeded with this run's seed, shared by all the solvers taking part in the
+	 * run, or the calling thread's own generator if it was attached with a seed.
+	 */
+	public synchronized Random random() {
+		Random own = this.threadRandom.get();
+		if (own != null) {
+			return own;
+		}
+		if (this.random == null) {
+			this.random = new Random(this.seed);
+		}
+		return this.random;
+	}
+
+	/** Must be called each time a solution is decoded into a schedule. */
+	public void evaluated() {
+		this.evaluations.incrementAndGet();
+		Metrics.count(Metrics.Counter.EVALUATIONS);
+	}
+
+	public long evaluations() {
+		return this.evaluations.get();
+	}
+
+	/**
+	 * Must be called by local searches at each iteration.
+	 * @param currentMakespan	Makespan of the solution the search currently stands on
+	 */
+	public void iteration(int currentMakespan) {
+		long iteration = this.iterations.incrementAndGet();
+
+		if (Metrics.ENABLED) {
+			synchronized (this) {
+				if (this.iterationBatch == null) {
+					this.iterationBatch = Metrics.iterations(this.label);
+				}
+				this.iterationBatch.iteration(currentMakespan, this.bestMakespan);
+			}
+		}
+
+		ConvergenceTrace trace = this.trace;
+		if (trace != null && iteration % trace.stride == 0) {
+			trace.record(this.elapsedNanos(), iteration, currentMakespan, this.bestMakespan);
+		}
+	}
+
+	public long iterations() {
+		return this.iterations.get();
+	}
+
+	/** Records the makespan over time of this run into the given trace (null to stop recording). */
+	public void setTrace(ConvergenceTrace trace) {
+		this.trace = trace;
+	}
+
+	public ConvergenceTrace trace() {
+		return this.trace;
+	}
+
+	/** Callback notified of every new incumbent of a run. */
+	public interface ImprovementListener {
+		/**
+		 * Called by the solver thread, in improvement order, while the context is locked : this must not take long.
+		 * @param schedule	The new best schedule
+		 * @param elapsedNs	Nanoseconds elapsed since the context has been created
+		 */
+		void improved(Schedule schedule, long elapsedNs);
+	}
+
+	/** Notifies the given listener of every new incumbent of this run (null to stop). */
+	public void setImprovementListener(ImprovementListener listener) {
+		this.improvementListener = listener;
+	}
+
+	/** The listener notified of every new incumbent, null if none. */
+	public ImprovementListener improvementListener() {
+		return this.improvementListener;
+	}
+
+	/** Returns true once the run has either reached the deadline or spent its evaluation budget. */
+	public boolean exhausted(long deadline) {
+		return this.evaluations.get() >= this.maxEvaluations || System.currentTimeMillis() >= deadline;
+	}
+
+	/** Returns true once the evaluation budget is spent, regardless of the deadline. */
+	public boolean outOfEvaluations() {
+		return this.evaluations.get() >= this.maxEvaluations;
+	}
+
+	/** Nanoseconds elapsed since the context has been created. */
+	public long elapsedNanos() {
+		return System.nanoTime() - this.startNs;
+	}
+
+	/**
+	 * Reports a new candidate incumbent. Solvers call this whenever they find a
+	 * schedule better than their best one, calls not improving the run's best are ignored.
+	 */
+	public synchronized void improved(Schedule schedule) {
+		int makespan = schedule.makespan();
+
+		if (makespan >= this.bestMakespan) {
+			return;
+		}
+		this.bestMakespan = makespan;
+		this.lastImprovementNs = this.elapsedNanos();
+		this.lastImprovementEvaluations = this.evaluations();
+		Metrics.improvement(makespan, this.lastImprovementEvaluations, this.lastImprovementNs);
+
+		ConvergenceTrace trace = this.trace;
+		if (trace != null) {
+			trace.record(this.lastImprovementNs, this.iterations.get(), makespan, makespan);
+		}
+
+		ImprovementListener listener = this.improvementListener;
+		if (listener != null) {
+			listener.improved(schedule, this.lastImprovementNs);
+		}
+
+		if (this.target >= 0 && this.targetReachedNs < 0 && makespan <= this.target) {
+			this.targetReachedNs = this.lastImprovementNs;
+			this.targetReachedEvaluations = this.evaluations();
+		}
+	}
+
+	/** Best makespan reported through improved(), Integer.MAX_VALUE if none. */
+	public synchronized int bestMakespan() {
+		return this.bestMakespan;
+	}
+
+	/** Elapsed nanoseconds at the last improvement, -1 if none. */
+	public synchronized long lastImprovementNanos() {
+		return this.lastImprovementNs;
+	}
+
+	/** Number of evaluations performed at the last improvement, -1 if none. */
+	public synchronized long lastImprovementEvaluations() {
+		return this.lastImprovementEvaluations;
+	}
+
+	/** Sets the makespan whose first reach is timed by timeToTargetNanos(). */
+	public synchronized void setTarget(int makespan) {
+		this.target = makespan;
+		if (this.bestMakespan <= makespan) {
+			this.targetReachedNs = this.lastImprovementNs;
+			this.targetReachedEvaluations = this.lastImprovementEvaluations;
+		}
+	}
+
+	/** Elapsed nanoseconds when the target has first been reached, -1 if never. */
+	public synchronized long timeToTargetNanos() {
+		return this.targetReachedNs;
+	}
+
+	/** Number of evaluations performed when the target has first been reached, -1 if never. */
+	public synchronized long evaluationsToTarget() {
+		return this.targetReachedEvaluations;
+	}
+}
@@ -0,0 +1,184 @@
+package jobshop.bench;
+
+import jobshop.Instance;
+import jobshop.SolveContext;
+import jobshop.encodings.JobNumbers;
+import jobshop.encodings.JobNumbersBatch;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+/**
+ * Batch decoding benchmark : throughput of the makespan evaluation of random JobNumbers
+ * sequences, one at a time with JobNumbers.toSchedule() and in lockstep batches of
+ * several widths with JobNumbersBatch.
+ *
+ * Everything runs on the calling thread, the throughputs are per core. Each measure is
+ * repeated `rounds` times after a warm-up of the same length and the best round is kept,
+ * the sequences being the same pool of pre-shuffled ones for every method.
+ */
+public class BatchBenchmark {
+
+	static final String[] DEFAULT_INSTANCES = { "ft06", "ft10", "ta01", "ta21", "ta41", "ta61" };
+	static final Integer[] DEFAULT_WIDTHS = { 1, 4, 8, 16 };
+
+	/* Random sequences evaluated in turn */
+	private static final int POOL = 256;
+
+	public static void main(String[] args) {
+		ArgumentParser parser = ArgumentParsers.newFor("jsp-batch-benchmark").build()
+			.defaultHelp(true)
+			.description("Compares one at a time and batched decoding of JobNumbers sequences.");
+		parser.addArgument("--instance")
+			.nargs("+")
+			.setDefault(Arrays.asList(DEFAULT_INSTANCES))
+			.help("Instances whose sequences are decoded");
+		parser.addArgument("--width")
+			.nargs("+")
+			.type(Integer.class)
+			.setDefault(Arrays.asList(DEFAULT_WIDTHS))
+			.help("Numbers of sequences decoded together");
+		parser.addArgument("--rounds")
+			.setDefault(5)
+			.type(Integer.class)
+			.help("Measures of each method, the best one is kept");
+		parser.addArgument("--round-ms")
+			.setDefault(200L)
+			.type(Long.class)
+			.help("Duration of a measure, in milliseconds");
+		parser.addArgument("--seed")
+			.setDefault(1L)
+			.type(Long.class)
+			.help("Seed of the random sequences");
+
+		Namespace ns = null;
+		try {
+			ns = parser.parseArgs(args);
+		} catch (ArgumentParserException e) {
+			parser.handleError(e);
+			System.exit(1);
+		}
+
+		List<String> instanceNames = ns.getList("instance");
+		List<Instance> instances = new ArrayList<>();
+		for (String instanceName : instanceNames) {
+			try {
+				instances.add(Instance.fromFile(Paths.get("instances/", instanceName)));
+			} catch (IOException e) {
+				System.err.println("ERROR: cannot read instance \"" + instanceName + "\" : " + e.getMessage());
+				System.exit(1);
+			}
+		}
+		List<Integer> widths = ns.getList("width");
+		for (int width : widths) {
+			if (width < 1) {
+				System.err.println("ERROR: invalid width " + width);
+				System.exit(1);
+			}
+		}
+
+		run(instanceNames, instances, widths, ns.getInt("rounds"), ns.getLong("round_ms") * 1_000_000, ns.getLong("seed"), System.out);
+	}
+
+	@SuppressWarnings("try")
+	private static void run(List<String> instanceNames, List<Instance> instances, List<Integer> widths, int rounds, long roundNs, long seed, PrintStream output) {
+		output.println("Decoded sequences per second and per core, speedup over toSchedule() :");
+		output.printf(Locale.ROOT, "%-8s %9s %14s", "instance", "ops", "toSchedule");
+		for (int width : widths) {
+			output.printf(Locale.ROOT, " %14s %8s", "batch_" + width, "speedup");
+		}
+		output.println();
+
+		/* the evaluations are counted by a context of their own, without budget */
+		try (SolveContext context = SolveContext.open("batch-benchmark", seed, Long.MAX_VALUE)) {
+			for (int i = 0 ; i < instances.size() ; i++) {
+				Instance instance = instances.get(i);
+				JobNumbers[] pool = pool(instance, new SplittableRandom(seed));
+
+				double single = best(rounds, roundNs, () -> {
+					long decoded = 0;
+					for (JobNumbers sequence : pool) {
+						decoded += sequence.toSchedule().makespan() >= 0 ? 1 : 0;
+					}
+					return decoded;
+				});
+				output.printf(Locale.ROOT, "%-8s %9d %14.0f", instanceNames.get(i), instance.numJobs * instance.numTasks, single);
+
+				for (int width : widths) {
+					JobNumbersBatch batch = new JobNumbersBatch(instance, width);
+					double batched = best(rounds, roundNs, () -> {
+						long decoded = 0;
+						for (int s = 0 ; s < pool.length ; s++) {
+							batch.add(pool[s]);
+							if (batch.isFull() || s == pool.length - 1) {
+								batch.evaluate();
+								for (int lane = 0 ; lane < batch.size() ; lane++) {
+									decoded += batch.makespan(lane) >= 0 ? 1 : 0;
+								}
+								batch.clear();
+							}
+						}
+						return decoded;
+					});
+					output.printf(Locale.ROOT, " %14.0f %7.2fx", batched, batched / single);
+				}
+				output.println();
+			}
+		}
+	}
+
+	/* Shuffled complete sequences of the instance */
+	private static JobNumbers[] pool(Instance instance, SplittableRandom random) {
+		JobNumbers[] pool = new JobNumbers[POOL];
+		for (int s = 0 ; s < POOL ; s++) {
+			JobNumbers sequence = new JobNumbers(instance);
+			for (int job = 0 ; job < instance.numJobs ; job++) {
+				for (int task = 0 ; task < instance.numTasks ; task++) {
+					sequence.jobs[sequence.nextToSet++] = job;
+				}
+			}
+			for (int k = sequence.jobs.length - 1 ; k > 0 ; k--) {
+				int other = random.nextInt(k + 1);
+				int job = sequence.jobs[k];
+				sequence.jobs[k] = sequence.jobs[other];
+				sequence.jobs[other] = job;
+			}
+			pool[s] = sequence;
+		}
+		return pool;
+	}
+
+	/** A pass over the pool of sequences, returning the number decoded. */
+	private interface Pass {
+		long run();
+	}
+
+	/* Best throughput, in sequences per second, over the rounds following a warm-up round */
+	private static double best(int rounds, long roundNs, Pass pass) {
+		double best = 0;
+		for (int round = 0 ; round <= rounds ; round++) {
+			long decoded = 0;
+			long start = System.nanoTime();
+			long elapsed;
+			do {
+				decoded += pass.run();
+				elapsed = System.nanoTime() - start;
+			} while (elapsed < roundNs);
+			if (round > 0) {
+				best = Math.max(best, decoded * 1e9 / elapsed);
+			}
+		}
+		return best;
+	}
+}
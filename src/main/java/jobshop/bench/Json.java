@@ -0,0 +1,188 @@
+package jobshop.bench;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON reader, just enough to load the files this project writes itself
+ * (baselines, stats) without pulling a dependency in.
+ *
+ * Objects are returned as Map<String, Object>, arrays as List<Object>, numbers
+ * as Double, and true/false/null as Boolean/null.
+ */
+public final class Json {
+
+	private final String text;
+	private int pos = 0;
+
+	private Json(String text) {
+		this.text = text;
+	}
+
+	/** Parses the given JSON document. */
+	public static Object parse(String text) {
+		Json json = new Json(text);
+		Object value = json.value();
+		json.skipWhitespaces();
+		if (json.pos != text.length()) {
+			throw json.error("trailing characters");
+		}
+		return value;
+	}
+
+	/** Escapes a string so that it can be written between double quotes in a JSON document. */
+	public static String quote(String s) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+				case '"':  sb.append("\\\""); break;
+				case '\\': sb.append("\\\\"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				case '\t': sb.append("\\t"); break;
+				default:
+					if (c < 0x20) {
+						sb.append(String.format("\\u%04x", (int) c));
+					} else {
+						sb.append(c);
+					}
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	private Object value() {
+		skipWhitespaces();
+		if (pos >= text.length()) {
+			throw error("unexpected end of document");
+		}
+		char c = text.charAt(pos);
+		switch (c) {
+			case '{': return object();
+			case '[': return array();
+			case '"': return string();
+			case 't': expect("true"); return Boolean.TRUE;
+			case 'f': expect("false"); return Boolean.FALSE;
+			case 'n': expect("null"); return null;
+			default:  return number();
+		}
+	}
+
+	private Map<String, Object> object() {
+		Map<String, Object> map = new LinkedHashMap<>();
+		pos++;
+		skipWhitespaces();
+		if (peek() == '}') {
+			pos++;
+			return map;
+		}
+		while (true) {
+			skipWhitespaces();
+			String key = string();
+			skipWhitespaces();
+			expect(":");
+			map.put(key, value());
+			skipWhitespaces();
+			char c = next();
+			if (c == '}') {
+				return map;
+			}
+			if (c != ',') {
+				throw error("expected ',' or '}'");
+			}
+		}
+	}
+
+	private List<Object> array() {
+		List<Object> list = new ArrayList<>();
+		pos++;
+		skipWhitespaces();
+		if (peek() == ']') {
+			pos++;
+			return list;
+		}
+		while (true) {
+			list.add(value());
+			skipWhitespaces();
+			char c = next();
+			if (c == ']') {
+				return list;
+			}
+			if (c != ',') {
+				throw error("expected ',' or ']'");
+			}
+		}
+	}
+
+	private String string() {
+		if (next() != '"') {
+			throw error("expected a string");
+		}
+		StringBuilder sb = new StringBuilder();
+		while (true) {
+			char c = next();
+			if (c == '"') {
+				return sb.toString();
+			}
+			if (c != '\\') {
+				sb.append(c);
+				continue;
+			}
+			c = next();
+			switch (c) {
+				case 'n': sb.append('\n'); break;
+				case 'r': sb.append('\r'); break;
+				case 't': sb.append('\t'); break;
+				case 'b': sb.append('\b'); break;
+				case 'f': sb.append('\f'); break;
+				case 'u':
+					sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+					pos += 4;
+					break;
+				default: sb.append(c);
+			}
+		}
+	}
+
+	private Double number() {
+		int start = pos;
+		while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+			pos++;
+		}
+		if (start == pos) {
+			throw error("unexpected character '" + text.charAt(pos) + "'");
+		}
+		return Double.valueOf(text.substring(start, pos));
+	}
+
+	private void expect(String word) {
+		if (!text.startsWith(word, pos)) {
+			throw error("expected '" + word + "'");
+		}
+		pos += word.length();
+	}
+
+	private char peek() {
+		return pos < text.length() ? text.charAt(pos) : '\0';
+	}
+
+	private char next() {
+		if (pos >= text.length()) {
+			throw error("unexpected end of document");
+		}
+		return text.charAt(pos++);
+	}
+
+	private void skipWhitespaces() {
+		while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+			pos++;
+		}
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException("JSON: " + message + " at offset " + pos);
+	}
+}
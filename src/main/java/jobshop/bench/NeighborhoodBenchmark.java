@@ -0,0 +1,155 @@
+package jobshop.bench;
+
+import jobshop.BestKnownResult;
+import jobshop.Instance;
+import jobshop.Main;
+import jobshop.Result;
+import jobshop.SolveContext;
+import jobshop.Solver;
+import jobshop.solvers.Neighborhood;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+/**
+ * Neighbourhood benchmark : the same local searches (descent, iterated local search,
+ * taboo search, all starting from the EST_LRPT greedy solution) run with each
+ * neighbourhood of jobshop.solvers.Neighborhood on Taillard's instances.
+ *
+ * Besides the average gap to the best known makespans, the cost of each neighbourhood
+ * is reported : moves per neighbourhood generated, time to generate a move and to evaluate
+ * one. The quality per millisecond is the improvement over the greedy start, in
+ * percent of its makespan, per millisecond of evaluation time : how much each unit of
+ * work on a neighbourhood buys.
+ *
+ * With --all-critical-paths the neighbourhoods cover the blocks of every critical path.
+ */
+public class NeighborhoodBenchmark {
+
+	static final String[] DEFAULT_METHODS = { "descent", "ils", "taboo" };
+	static final String[] DEFAULT_INSTANCES = { "ta01", "ta02", "ta03", "ta04", "ta05", "ta11", "ta12", "ta13", "ta14", "ta15" };
+
+	/* Name of the start of the local searches in Main's registry */
+	private static final String START = "estlrpt";
+
+	public static void main(String[] args) {
+		ArgumentParser parser = ArgumentParsers.newFor("jsp-neighborhood-benchmark").build()
+			.defaultHelp(true)
+			.description("Compares the quality and cost of the neighbourhoods of the local searches.");
+		parser.addArgument("--method")
+			.nargs("+")
+			.setDefault(Arrays.asList(DEFAULT_METHODS))
+			.help("Local searches to run with each neighbourhood, among " + Arrays.toString(DEFAULT_METHODS));
+		parser.addArgument("--instance")
+			.nargs("+")
+			.setDefault(Arrays.asList(DEFAULT_INSTANCES))
+			.help("Instances to solve");
+		parser.addArgument("-t", "--timeout")
+			.setDefault(1L)
+			.type(Long.class)
+			.help("Solving time of each run, in seconds");
+		parser.addArgument("--all-critical-paths")
+			.action(Arguments.storeTrue())
+			.help("Moves on the blocks of every critical path rather than one");
+		parser.addArgument("--seed")
+			.setDefault(1L)
+			.type(Long.class)
+			.help("Seed of the solvers");
+
+		Namespace ns = null;
+		try {
+			ns = parser.parseArgs(args);
+		} catch (ArgumentParserException e) {
+			parser.handleError(e);
+			System.exit(1);
+		}
+
+		List<String> methods = ns.getList("method");
+		for (String method : methods) {
+			if (Main.solver(name(method, Neighborhood.N1, false)) == null) {
+				System.err.println("ERROR: unknown method \"" + method + "\"");
+				System.exit(1);
+			}
+		}
+		List<String> instanceNames = ns.getList("instance");
+		List<Instance> instances = new ArrayList<>();
+		for (String instanceName : instanceNames) {
+			if (!BestKnownResult.isKnown(instanceName)) {
+				System.err.println("ERROR: no best known result for instance \"" + instanceName + "\"");
+				System.exit(1);
+			}
+			try {
+				instances.add(Instance.fromFile(Paths.get("instances/", instanceName)));
+			} catch (IOException e) {
+				System.err.println("ERROR: cannot read instance \"" + instanceName + "\" : " + e.getMessage());
+				System.exit(1);
+			}
+		}
+
+		run(methods, instanceNames, instances, ns.getBoolean("all_critical_paths"), ns.getLong("timeout") * 1000, ns.getLong("seed"), System.out);
+	}
+
+	/* Main's name of the local search on that neighbourhood, as ilsestlrpt_n7 or ilsestlrpt_n7_all */
+	private static String name(String method, Neighborhood neighborhood, boolean allCriticalPaths) {
+		return method + START + "_" + neighborhood.name().toLowerCase() + (allCriticalPaths ? "_all" : "");
+	}
+
+	@SuppressWarnings("try")
+	private static void run(List<String> methods, List<String> instanceNames, List<Instance> instances, boolean allCriticalPaths, long solveTimeMs, long seed, PrintStream output) {
+		/* the makespans of the greedy starts */
+		int[] starts = new int[instances.size()];
+		for (int i = 0 ; i < instances.size() ; i++) {
+			try (SolveContext context = SolveContext.open("greedy" + START, seed, Long.MAX_VALUE)) {
+				starts[i] = Main.solver("greedy" + START).solve(instances.get(i), Long.MAX_VALUE).schedule.makespan();
+			}
+		}
+
+		output.println(instances.size() + " instances, " + solveTimeMs + "ms per run, " + (allCriticalPaths ? "all critical paths" : "one critical path")
+			+ " (gap to the best known, averaged) :");
+		output.printf(Locale.ROOT, "%-8s %-10s %8s %12s %12s %12s %12s %12s%n",
+			"method", "nbhood", "gap_%", "iterations", "moves/nbhd", "ns/move", "us/eval", "gain_%/ms");
+
+		for (String method : methods) {
+			for (Neighborhood neighborhood : Neighborhood.values()) {
+				neighborhood.resetCosts();
+				String solverName = name(method, neighborhood, allCriticalPaths);
+
+				double gaps = 0;
+				double gains = 0;
+				long iterations = 0;
+				for (int i = 0 ; i < instances.size() ; i++) {
+					Solver solver = Main.solver(solverName);
+					try (SolveContext context = SolveContext.open(solverName, seed, Long.MAX_VALUE)) {
+						Result result = solver.solve(instances.get(i), System.currentTimeMillis() + solveTimeMs);
+						int makespan = result.schedule.makespan();
+						int bestKnown = BestKnownResult.of(instanceNames.get(i));
+						gaps += 100.0 * (makespan - bestKnown) / bestKnown;
+						gains += 100.0 * (starts[i] - makespan) / starts[i];
+						iterations += context.iterations();
+					}
+				}
+
+				long[] costs = neighborhood.costs();
+				long generated = Math.max(1, costs[1]);
+				long evaluated = Math.max(1, costs[3]);
+				output.printf(Locale.ROOT, "%-8s %-10s %8.2f %12d %12.1f %12.1f %12.2f %12.4f%n",
+					method, neighborhood.name().toLowerCase(), gaps / instances.size(),
+					iterations, (double) costs[1] / Math.max(1, costs[0]),
+					(double) costs[2] / generated, costs[4] / 1e3 / evaluated,
+					gains / Math.max(1e-3, costs[4] / 1e6));
+			}
+			output.println();
+		}
+	}
+}
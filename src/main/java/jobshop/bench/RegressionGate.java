@@ -0,0 +1,322 @@
+package jobshop.bench;
+
+import jobshop.Instance;
+import jobshop.Main;
+import jobshop.Result;
+import jobshop.Solver;
+import jobshop.SolveContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+/**
+ * Performance regression gate.
+ *
+ * Runs a fixed set of solvers on a fixed subset of instances, with fixed seeds and a
+ * fixed evaluation budget instead of a wall-clock timeout, so that the final makespans
+ * are reproducible from one machine to another. Each run is compared against the
+ * committed baseline file :
+ *  -	the final makespan must not be worse than the baseline one by more than `tolerance` percent,
+ *  -	the number of evaluations needed to reach the baseline's final makespan (the target)
+ *	must not grow by more than `tolerance` percent,
+ *  -	the evaluation throughput of each solver must not drop by more than
+ *	`throughput-tolerance` percent. This one depends on the machine, a negative value disables it.
+ *
+ * The process exits with status 1 when a regression is found, which fails the
+ * `regressionGate` gradle task.
+ */
+public class RegressionGate {
+
+	static final String[] DEFAULT_SOLVERS = { "random", "greedyestlrpt", "greedyestlrpt_random", "descentestlrpt", "tabooestlrpt" };
+	static final String[] DEFAULT_INSTANCES = { "ft06", "ft10", "ft20", "la01", "la16", "abz5", "orb01", "ta01" };
+	static final Long[] DEFAULT_SEEDS = { 1L, 2L, 3L };
+
+	/* Wall clock safety net, the evaluation budget is supposed to stop the solvers way before */
+	private static final long MAX_RUN_MS = 60_000;
+
+	/** Measures of one (solver, instance, seed) run. */
+	static class Run {
+		final String solver;
+		final String instance;
+		final long seed;
+		int makespan;
+		long evaluations;
+		long runtimeNs;
+		long timeToTargetNs;
+		long evaluationsToTarget;
+
+		Run(String solver, String instance, long seed) {
+			this.solver = solver;
+			this.instance = instance;
+			this.seed = seed;
+		}
+
+		String key() {
+			return solver + "/" + instance + "/" + seed;
+		}
+
+		double evaluationsPerSecond() {
+			return runtimeNs == 0 ? 0 : evaluations * 1e9 / runtimeNs;
+		}
+
+		String toJson() {
+			return String.format(Locale.ROOT,
+				"{\"solver\": %s, \"instance\": %s, \"seed\": %d, \"makespan\": %d, \"evaluations\": %d, "
+				+ "\"runtimeNs\": %d, \"evaluationsPerSecond\": %.1f, \"timeToTargetNs\": %d, \"evaluationsToTarget\": %d}",
+				Json.quote(solver), Json.quote(instance), seed, makespan, evaluations,
+				runtimeNs, evaluationsPerSecond(), timeToTargetNs, evaluationsToTarget);
+		}
+
+		static Run fromJson(Map<String, Object> o) {
+			Run r = new Run((String) o.get("solver"), (String) o.get("instance"), ((Double) o.get("seed")).longValue());
+			r.makespan = ((Double) o.get("makespan")).intValue();
+			r.evaluations = ((Double) o.get("evaluations")).longValue();
+			r.runtimeNs = ((Double) o.get("runtimeNs")).longValue();
+			r.timeToTargetNs = ((Double) o.get("timeToTargetNs")).longValue();
+			r.evaluationsToTarget = ((Double) o.get("evaluationsToTarget")).longValue();
+			return r;
+		}
+	}
+
+	public static void main(String[] args) {
+		ArgumentParser parser = ArgumentParsers.newFor("jsp-regression-gate").build()
+			.defaultHelp(true)
+			.description("Compares solvers quality-per-evaluation against a committed baseline.");
+
+		parser.addArgument("--baseline")
+			.setDefault("resources/bench/baseline.json")
+			.help("Baseline file to compare against (or to write with --update)");
+		parser.addArgument("--update")
+			.action(Arguments.storeTrue())
+			.help("Overwrite the baseline with the results of this run instead of comparing");
+		parser.addArgument("--evaluations")
+			.setDefault(20_000L)
+			.type(Long.class)
+			.help("Evaluation budget of each run");
+		parser.addArgument("--tolerance")
+			.setDefault(5.0)
+			.type(Double.class)
+			.help("Accepted makespan and evaluations-to-target degradation, in percent");
+		parser.addArgument("--throughput-tolerance")
+			.setDefault(50.0)
+			.type(Double.class)
+			.help("Accepted evaluations/sec degradation, in percent (negative to disable)");
+		parser.addArgument("--solver")
+			.nargs("+")
+			.setDefault(Arrays.asList(DEFAULT_SOLVERS))
+			.help("Solver(s) to check");
+		parser.addArgument("--instance")
+			.nargs("+")
+			.setDefault(Arrays.asList(DEFAULT_INSTANCES))
+			.help("Instance(s) to run on");
+		parser.addArgument("--seed")
+			.nargs("+")
+			.type(Long.class)
+			.setDefault(Arrays.asList(DEFAULT_SEEDS))
+			.help("Seed(s) of the runs");
+
+		Namespace ns = null;
+		try {
+			ns = parser.parseArgs(args);
+		} catch (ArgumentParserException e) {
+			parser.handleError(e);
+			System.exit(1);
+		}
+
+		try {
+			System.exit(run(ns, System.out) ? 0 : 1);
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	private static boolean run(Namespace ns, PrintStream output) throws IOException {
+		Path baselinePath = Paths.get(ns.getString("baseline"));
+		boolean update = ns.getBoolean("update");
+		long budget = ns.getLong("evaluations");
+		double tolerance = ns.getDouble("tolerance");
+		double throughputTolerance = ns.getDouble("throughput_tolerance");
+		List<String> solverNames = ns.getList("solver");
+		List<String> instanceNames = ns.getList("instance");
+		List<Long> seeds = ns.getList("seed");
+
+		Map<String, Run> baseline = new HashMap<>();
+		if (!update) {
+			if (!Files.exists(baselinePath)) {
+				System.err.println("ERROR: no baseline at " + baselinePath + ", run with --update to create it.");
+				return false;
+			}
+			baseline = loadBaseline(baselinePath, budget);
+		}
+
+		Map<String, Instance> instances = new LinkedHashMap<>();
+		for (String name : instanceNames) {
+			instances.put(name, Instance.fromFile(Paths.get("instances/", name)));
+		}
+
+		/* Let the JIT compile the hot paths so that the throughput of the first runs is not penalized */
+		for (String solverName : solverNames) {
+			Instance warmup = instances.values().iterator().next();
+			runOnce(solverName, warmup, 0, Math.min(budget, 2_000), -1);
+		}
+
+		output.printf("%-22s %-8s %4s %8s %8s %10s %12s %12s  %s%n",
+			"solver", "instance", "seed", "makespan", "baseline", "evals/s", "evals2target", "time2target", "verdict");
+
+		List<Run> runs = new ArrayList<>();
+		List<String> regressions = new ArrayList<>();
+
+		for (String solverName : solverNames) {
+			long solverEvaluations = 0, solverNs = 0;
+			long baselineEvaluations = 0, baselineNs = 0;
+
+			for (Map.Entry<String, Instance> entry : instances.entrySet()) {
+				for (long seed : seeds) {
+					Run run = new Run(solverName, entry.getKey(), seed);
+					Run reference = baseline.get(run.key());
+
+					SolveContext context = runOnce(solverName, entry.getValue(), seed, budget,
+						reference == null ? -1 : reference.makespan);
+					run.makespan = context.bestMakespan();
+					run.evaluations = context.evaluations();
+					run.runtimeNs = context.elapsedNanos();
+					if (reference == null) {
+						/* the target of a baseline run is its own final makespan */
+						run.timeToTargetNs = context.lastImprovementNanos();
+						run.evaluationsToTarget = context.lastImprovementEvaluations();
+					} else {
+						run.timeToTargetNs = context.timeToTargetNanos();
+						run.evaluationsToTarget = context.evaluationsToTarget();
+					}
+					runs.add(run);
+
+					String verdict = "new";
+					if (reference != null) {
+						verdict = "ok";
+						if (run.makespan > reference.makespan * (1 + tolerance / 100)) {
+							verdict = "REGRESSION (makespan)";
+						} else if (run.evaluationsToTarget >= 0 && reference.evaluationsToTarget > 0
+								&& run.evaluationsToTarget > reference.evaluationsToTarget * (1 + tolerance / 100)) {
+							verdict = "REGRESSION (evaluations to target)";
+						}
+						if (!verdict.equals("ok")) {
+							regressions.add(run.key() + " : " + verdict);
+						}
+						solverEvaluations += run.evaluations;
+						solverNs += run.runtimeNs;
+						baselineEvaluations += reference.evaluations;
+						baselineNs += reference.runtimeNs;
+					}
+
+					output.printf("%-22s %-8s %4d %8d %8s %10.0f %12d %12s  %s%n",
+						solverName, entry.getKey(), seed, run.makespan,
+						reference == null ? "-" : Integer.toString(reference.makespan),
+						run.evaluationsPerSecond(), run.evaluationsToTarget,
+						run.timeToTargetNs < 0 ? "-" : String.format("%.2fms", run.timeToTargetNs / 1e6),
+						verdict);
+					output.flush();
+				}
+			}
+
+			if (throughputTolerance >= 0 && baselineNs > 0 && solverNs > 0) {
+				double current = solverEvaluations * 1e9 / solverNs;
+				double reference = baselineEvaluations * 1e9 / baselineNs;
+				output.printf("%-22s throughput %.0f evals/s (baseline %.0f)%n", solverName, current, reference);
+				if (current < reference * (1 - throughputTolerance / 100)) {
+					regressions.add(solverName + " : REGRESSION (throughput " + Math.round(current) + " < " + Math.round(reference) + " evals/s)");
+				}
+			}
+		}
+
+		if (update) {
+			writeBaseline(baselinePath, budget, runs);
+			output.println("Baseline written to " + baselinePath);
+			return true;
+		}
+
+		if (!regressions.isEmpty()) {
+			System.err.println("\n" + regressions.size() + " regression(s) :");
+			for (String r : regressions) {
+				System.err.println("  " + r);
+			}
+			return false;
+		}
+		output.println("\nNo regression.");
+		return true;
+	}
+
+	private static Solver solver(String name) {
+		Solver solver = Main.solver(name);
+		if (solver == null) {
+			throw new IllegalArgumentException("Unknown solver \"" + name + "\"");
+		}
+		return solver;
+	}
+
+	/* Runs the solver within its own context and returns that context once the run is over */
+	private static SolveContext runOnce(String solverName, Instance instance, long seed, long budget, int target) {
+		Solver solver = solver(solverName);
+		try (SolveContext context = SolveContext.open(solverName, seed, budget)) {
+			if (target >= 0) {
+				context.setTarget(target);
+			}
+			Result result = solver.solve(instance, System.currentTimeMillis() + MAX_RUN_MS);
+			if (!result.schedule.isValid()) {
+				throw new IllegalStateException("solver returned an invalid schedule");
+			}
+			/* not every solver reports its incumbents, make sure the final one is accounted for */
+			context.improved(result.schedule);
+			return context;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Run> loadBaseline(Path path, long budget) throws IOException {
+		Map<String, Object> root = (Map<String, Object>) Json.parse(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+
+		long baselineBudget = ((Double) root.get("evaluations")).longValue();
+		if (baselineBudget != budget) {
+			throw new IllegalArgumentException("baseline was recorded with " + baselineBudget
+				+ " evaluations per run, not " + budget);
+		}
+
+		Map<String, Run> runs = new HashMap<>();
+		for (Object o : (List<Object>) root.get("runs")) {
+			Run r = Run.fromJson((Map<String, Object>) o);
+			runs.put(r.key(), r);
+		}
+		return runs;
+	}
+
+	private static void writeBaseline(Path path, long budget, List<Run> runs) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\n\"evaluations\": ").append(budget).append(",\n\"runs\": [\n");
+		for (int i = 0; i < runs.size(); i++) {
+			sb.append(runs.get(i).toJson()).append(i == runs.size() - 1 ? "\n" : ",\n");
+		}
+		sb.append("]}\n");
+
+		if (path.getParent() != null) {
+			Files.createDirectories(path.getParent());
+		}
+		Files.write(path, sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,429 @@
+package jobshop.bench;
+
+import jobshop.BestKnownResult;
+import jobshop.Instance;
+import jobshop.SolveContext;
+import jobshop.solvers.DispatchingRule;
+import jobshop.solvers.GreedyBinaryRelation;
+import jobshop.solvers.GreedySolver;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+/**
+ * Evolution of dispatching rules by genetic programming.
+ *
+ * Each individual is a rule of two keys (see DispatchingRule), a priority and a tie
+ * breaker, each one an expression tree over the features of a task with the operators
+ * + - * / min max and small constants. Its fitness is the mean gap of the greedy solver
+ * on that rule over the training instances, to the best known makespan or, for an
+ * instance without one, to the lower bound of its makespan (most loaded job or machine).
+ *
+ * The first population holds the rules of the eight GreedyBinaryRelation and random
+ * trees (ramped half and half). Each generation keeps the best ELITES individuals and
+ * breeds the rest from tournaments : subtree crossover of the same key of two parents,
+ * or replacement of a subtree by a random one. Trees deeper than MAX_DEPTH are not kept.
+ * Among individuals of equal fitness the smaller is preferred.
+ *
+ * The rules are evaluated in parallel, and a rule is only evaluated once : fitnesses are
+ * cached by canonical rule text, which different trees often share. The best rules are
+ * finally measured on the validation instances, next to the eight relations, and can be
+ * written to a file. Each one is used as is in production through the solver name
+ * greedy:RULE (or any other method followed by ':RULE'), at the speed of the greedy solver.
+ */
+public class RuleEvolution {
+
+	static final String[] DEFAULT_TRAINING = { "ft10", "la16", "la21", "la26", "la31", "la36", "orb01", "orb05", "abz5", "ta01", "ta11", "ta21" };
+	static final String[] DEFAULT_VALIDATION = { "ft20", "la19", "la24", "la29", "la38", "orb03", "abz6", "ta02", "ta12", "ta22" };
+
+	/* Operators of the trees, in the syntax of DispatchingRule */
+	private static final String[] OPERATORS = { "+", "-", "*", "/", "min", "max" };
+	private static final String[] CONSTANTS = { "0.5", "1", "2", "3", "5", "10" };
+
+	private static final int MAX_DEPTH = 6;
+	private static final int INITIAL_DEPTH = 4;
+	private static final int MUTATION_DEPTH = 3;
+	private static final int TOURNAMENT = 3;
+	private static final int ELITES = 2;
+	private static final double CROSSOVER = 0.8;
+
+	/** Expression tree of a key : a feature or a constant, or an operator applied to two subtrees. */
+	static final class Tree {
+		final String label;
+		final Tree left;
+		final Tree right;
+		final int size;
+		final int depth;
+
+		Tree(String label, Tree left, Tree right) {
+			this.label = label;
+			this.left = left;
+			this.right = right;
+			this.size = 1 + (left == null ? 0 : left.size + right.size);
+			this.depth = 1 + (left == null ? 0 : Math.max(left.depth, right.depth));
+		}
+
+		/* The index-th node, in preorder */
+		Tree get(int index) {
+			if (index == 0) {
+				return this;
+			}
+			return index <= this.left.size ? this.left.get(index - 1) : this.right.get(index - 1 - this.left.size);
+		}
+
+		/* A copy of this tree whose index-th node, in preorder, is replaced */
+		Tree replace(int index, Tree by) {
+			if (index == 0) {
+				return by;
+			}
+			return index <= this.left.size
+				? new Tree(this.label, this.left.replace(index - 1, by), this.right)
+				: new Tree(this.label, this.left, this.right.replace(index - 1 - this.left.size, by));
+		}
+
+		@Override
+		public String toString() {
+			if (this.left == null) {
+				return this.label;
+			}
+			if (Character.isLetter(this.label.charAt(0))) {
+				return this.label + "(" + this.left + ", " + this.right + ")";
+			}
+			return "(" + this.left + " " + this.label + " " + this.right + ")";
+		}
+	}
+
+	/** A rule being evolved, as its key trees and its compiled rule. */
+	static final class Individual {
+		final Tree[] keys;
+		final DispatchingRule rule;
+		final int size;
+		double fitness = Double.NaN;
+
+		Individual(Tree... keys) {
+			this(null, keys);
+		}
+
+		/* The rule of the trees, unless one is given (that of a relation, which the trees only approximate in text) */
+		Individual(DispatchingRule rule, Tree... keys) {
+			this.keys = keys;
+			StringBuilder text = new StringBuilder();
+			int size = 0;
+			for (Tree key : keys) {
+				text.append(text.length() == 0 ? "" : ", ").append(key);
+				size += key.size;
+			}
+			this.rule = rule != null ? rule : DispatchingRule.parse(text.toString());
+			this.size = size;
+		}
+	}
+
+	/** The training or validation instances, with the makespan their gaps are computed to. */
+	static final class Benchmark {
+		final List<String> names = new ArrayList<>();
+		final List<Instance> instances = new ArrayList<>();
+		final List<Integer> references = new ArrayList<>();
+
+		Benchmark(List<String> specs) throws IOException {
+			for (String spec : specs) {
+				/* an instance name of the instances directory or the path of an instance file */
+				Path path = Files.exists(Paths.get(spec)) ? Paths.get(spec) : Paths.get("instances/", spec);
+				Instance instance = Instance.fromFile(path);
+				String name = path.getFileName().toString();
+				this.names.add(name);
+				this.instances.add(instance);
+				this.references.add(BestKnownResult.isKnown(name) ? BestKnownResult.of(name) : lowerBound(instance));
+			}
+		}
+
+		/* Mean gap of the greedy solver on the rule, in percent */
+		@SuppressWarnings("try")
+		double gap(DispatchingRule rule) {
+			double gaps = 0;
+			for (int i = 0 ; i < this.instances.size() ; i++) {
+				try (SolveContext context = SolveContext.open("rule-evolution", SolveContext.DEFAULT_SEED, Long.MAX_VALUE)) {
+					int makespan = new GreedySolver(rule).solve(this.instances.get(i), Long.MAX_VALUE).schedule.makespan();
+					gaps += 100.0 * (makespan - this.references.get(i)) / this.references.get(i);
+				}
+			}
+			return gaps / this.instances.size();
+		}
+
+		private static int lowerBound(Instance instance) {
+			int bound = 0;
+			int[] machineLoads = new int[instance.numMachines];
+			for (int job = 0 ; job < instance.numJobs ; job++) {
+				int work = 0;
+				for (int task = 0 ; task < instance.numTasks ; task++) {
+					work += instance.duration(job, task);
+					machineLoads[instance.machine(job, task)] += instance.duration(job, task);
+				}
+				bound = Math.max(bound, work);
+			}
+			for (int load : machineLoads) {
+				bound = Math.max(bound, load);
+			}
+			return bound;
+		}
+	}
+
+	public static void main(String[] args) {
+		ArgumentParser parser = ArgumentParsers.newFor("jsp-rule-evolution").build()
+			.defaultHelp(true)
+			.description("Evolves dispatching rules of the greedy solver by genetic programming.");
+		parser.addArgument("--training")
+			.nargs("+")
+			.setDefault(Arrays.asList(DEFAULT_TRAINING))
+			.help("Instances the rules are trained on (names in instances/ or instance files)");
+		parser.addArgument("--validation")
+			.nargs("*")
+			.setDefault(Arrays.asList(DEFAULT_VALIDATION))
+			.help("Instances the best rules are measured on once trained");
+		parser.addArgument("--population")
+			.setDefault(100)
+			.type(Integer.class)
+			.help("Number of rules of each generation");
+		parser.addArgument("--generations")
+			.setDefault(30)
+			.type(Integer.class)
+			.help("Number of generations");
+		parser.addArgument("--top")
+			.setDefault(5)
+			.type(Integer.class)
+			.help("Number of best rules reported and written");
+		parser.addArgument("--threads")
+			.setDefault(Runtime.getRuntime().availableProcessors())
+			.type(Integer.class)
+			.help("Number of rules evaluated in parallel");
+		parser.addArgument("--seed")
+			.setDefault(1L)
+			.type(Long.class)
+			.help("Seed of the evolution");
+		parser.addArgument("--output")
+			.metavar("FILE")
+			.help("Also write the best rules to FILE, one per line, the best first");
+
+		Namespace ns = null;
+		try {
+			ns = parser.parseArgs(args);
+		} catch (ArgumentParserException e) {
+			parser.handleError(e);
+			System.exit(1);
+		}
+
+		int population = ns.getInt("population");
+		if (population <= ELITES || ns.getInt("generations") < 0 || ns.getInt("top") < 1 || ns.getInt("threads") < 1) {
+			System.err.println("ERROR: the population must exceed " + ELITES + ", the generations, top and threads be positive");
+			System.exit(1);
+		}
+
+		Benchmark training = null;
+		Benchmark validation = null;
+		try {
+			training = new Benchmark(ns.getList("training"));
+			validation = new Benchmark(ns.getList("validation"));
+		} catch (IOException e) {
+			System.err.println("ERROR: cannot read instance : " + e.getMessage());
+			System.exit(1);
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(ns.getInt("threads"));
+		try {
+			List<Individual> best = new RuleEvolution(training, pool, new SplittableRandom(ns.getLong("seed")))
+				.evolve(population, ns.getInt("generations"), ns.getInt("top"), System.out);
+			report(best, training, validation, System.out);
+
+			if (ns.getString("output") != null) {
+				List<String> lines = new ArrayList<>();
+				for (Individual individual : best) {
+					lines.add(individual.rule.toString());
+				}
+				Files.write(Paths.get(ns.getString("output")), lines, StandardCharsets.UTF_8);
+			}
+		} catch (IOException | InterruptedException | ExecutionException e) {
+			System.err.println("ERROR: " + e);
+			System.exit(1);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private final Benchmark training;
+	private final ExecutorService pool;
+	private final SplittableRandom random;
+	/* training gap of every rule evaluated so far, by canonical text */
+	private final Map<DispatchingRule, Double> fitnesses = new HashMap<>();
+	private long cacheHits;
+
+	RuleEvolution(Benchmark training, ExecutorService pool, SplittableRandom random) {
+		this.training = training;
+		this.pool = pool;
+		this.random = random;
+	}
+
+	/* Runs the evolution, printing one line per generation, and returns the `top` best distinct rules */
+	List<Individual> evolve(int size, int generations, int top, PrintStream output) throws InterruptedException, ExecutionException {
+		List<Individual> population = new ArrayList<>();
+		/* the relations, scored and reported as their own rules ("est, -rpt", not "est, 0 - rpt") */
+		for (GreedyBinaryRelation relation : GreedyBinaryRelation.values()) {
+			String[] keys = relation.rule.split(",");
+			population.add(new Individual(DispatchingRule.of(relation),
+				relationTree(keys[0]), keys.length > 1 ? relationTree(keys[1]) : new Tree("0", null, null)));
+		}
+		for (int i = 0 ; population.size() < size ; i++) {
+			/* ramped half and half : depths 2 .. INITIAL_DEPTH, full and grown trees in turn */
+			int depth = 2 + i % (INITIAL_DEPTH - 1);
+			boolean full = (i / (INITIAL_DEPTH - 1)) % 2 == 0;
+			population.add(new Individual(this.tree(depth, full), this.tree(depth, full)));
+		}
+
+		output.printf(Locale.ROOT, "%d training instances, %d rules per generation :%n", this.training.instances.size(), size);
+		output.printf(Locale.ROOT, "%4s %10s %10s %10s %10s  %s%n", "gen", "best_gap_%", "mean_gap_%", "evaluated", "cached", "best rule");
+
+		Comparator<Individual> order = Comparator.<Individual>comparingDouble(individual -> individual.fitness)
+			.thenComparingInt(individual -> individual.size);
+		for (int generation = 0 ; ; generation++) {
+			this.evaluate(population);
+			population.sort(order);
+
+			double mean = 0;
+			for (Individual individual : population) {
+				mean += individual.fitness;
+			}
+			output.printf(Locale.ROOT, "%4d %10.2f %10.2f %10d %10d  %s%n", generation, population.get(0).fitness,
+				mean / population.size(), this.fitnesses.size(), this.cacheHits, population.get(0).rule);
+			output.flush();
+
+			if (generation == generations) {
+				break;
+			}
+
+			List<Individual> next = new ArrayList<>(population.subList(0, ELITES));
+			while (next.size() < size) {
+				Individual parent = this.tournament(population, order);
+				next.add(this.random.nextDouble() < CROSSOVER
+					? this.crossover(parent, this.tournament(population, order))
+					: this.mutate(parent));
+			}
+			population = next;
+		}
+
+		/* the best distinct rules */
+		Map<DispatchingRule, Individual> best = new LinkedHashMap<>();
+		for (Individual individual : population) {
+			if (best.size() < top) {
+				best.putIfAbsent(individual.rule, individual);
+			}
+		}
+		return new ArrayList<>(best.values());
+	}
+
+	/* Sets the fitness of every individual, evaluating in parallel the rules not seen yet */
+	private void evaluate(List<Individual> population) throws InterruptedException, ExecutionException {
+		Map<DispatchingRule, Future<Double>> pending = new LinkedHashMap<>();
+		for (Individual individual : population) {
+			if (this.fitnesses.containsKey(individual.rule) || pending.containsKey(individual.rule)) {
+				this.cacheHits++;
+			} else {
+				pending.put(individual.rule, this.pool.submit(() -> this.training.gap(individual.rule)));
+			}
+		}
+		for (Map.Entry<DispatchingRule, Future<Double>> entry : pending.entrySet()) {
+			this.fitnesses.put(entry.getKey(), entry.getValue().get());
+		}
+		for (Individual individual : population) {
+			individual.fitness = this.fitnesses.get(individual.rule);
+		}
+	}
+
+	private Individual tournament(List<Individual> population, Comparator<Individual> order) {
+		Individual best = population.get(this.random.nextInt(population.size()));
+		for (int i = 1 ; i < TOURNAMENT ; i++) {
+			Individual other = population.get(this.random.nextInt(population.size()));
+			if (order.compare(other, best) < 0) {
+				best = other;
+			}
+		}
+		return best;
+	}
+
+	/* The first parent, a subtree of one of its keys replaced by a subtree of the same key of the second one */
+	private Individual crossover(Individual first, Individual second) {
+		int k = this.random.nextInt(first.keys.length);
+		Tree graft = second.keys[k].get(this.random.nextInt(second.keys[k].size));
+		return this.replaced(first, k, graft);
+	}
+
+	/* The parent, a subtree of one of its keys replaced by a random tree */
+	private Individual mutate(Individual parent) {
+		int k = this.random.nextInt(parent.keys.length);
+		return this.replaced(parent, k, this.tree(1 + this.random.nextInt(MUTATION_DEPTH), false));
+	}
+
+	/* The individual with a random node of key k replaced by the tree, itself if that tree would be too deep */
+	private Individual replaced(Individual individual, int k, Tree by) {
+		Tree[] keys = individual.keys.clone();
+		keys[k] = keys[k].replace(this.random.nextInt(keys[k].size), by);
+		return keys[k].depth > MAX_DEPTH ? individual : new Individual(keys);
+	}
+
+	/* Random tree of at most that depth, of exactly that depth on every branch if full */
+	private Tree tree(int depth, boolean full) {
+		if (depth == 1 || (!full && this.random.nextDouble() < 0.3)) {
+			String[] features = new String[DispatchingRule.Feature.values().length];
+			for (DispatchingRule.Feature feature : DispatchingRule.Feature.values()) {
+				features[feature.ordinal()] = feature.label();
+			}
+			return new Tree(this.random.nextDouble() < 0.8
+				? features[this.random.nextInt(features.length)]
+				: CONSTANTS[this.random.nextInt(CONSTANTS.length)], null, null);
+		}
+		return new Tree(OPERATORS[this.random.nextInt(OPERATORS.length)], this.tree(depth - 1, full), this.tree(depth - 1, full));
+	}
+
+	/* Tree of a key of a relation's rule : a feature or a negated one, as 0 - feature since trees have no unary operator */
+	private static Tree relationTree(String key) {
+		key = key.trim();
+		return key.startsWith("-")
+			? new Tree("-", new Tree("0", null, null), new Tree(key.substring(1), null, null))
+			: new Tree(key, null, null);
+	}
+
+	/* Gaps of the best rules and of the relations on the training and validation instances */
+	private static void report(List<Individual> best, Benchmark training, Benchmark validation, PrintStream output) {
+		output.println();
+		output.printf(Locale.ROOT, "%-18s %10s %10s  %s%n", "rule", "train_%", "valid_%", "solver");
+		for (int i = 0 ; i < best.size() ; i++) {
+			DispatchingRule rule = best.get(i).rule;
+			output.printf(Locale.ROOT, "%-18s %10.2f %10s  greedy:%s%n", "evolved #" + (i + 1), best.get(i).fitness,
+				validation.instances.isEmpty() ? "-" : String.format(Locale.ROOT, "%.2f", validation.gap(rule)), rule);
+		}
+		for (GreedyBinaryRelation relation : GreedyBinaryRelation.values()) {
+			DispatchingRule rule = DispatchingRule.of(relation);
+			output.printf(Locale.ROOT, "%-18s %10.2f %10s  greedy:%s%n", relation, training.gap(rule),
+				validation.instances.isEmpty() ? "-" : String.format(Locale.ROOT, "%.2f", validation.gap(rule)), rule);
+		}
+	}
+}
@@ -0,0 +1,249 @@
+package jobshop.bench;
+
+import jobshop.Instance;
+import jobshop.Main;
+import jobshop.Result;
+import jobshop.Schedule;
+import jobshop.SolveContext;
+import jobshop.Solver;
+import jobshop.encodings.JobNumbers;
+import jobshop.encodings.JobNumbersEvaluator;
+import jobshop.encodings.ResourceOrder;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+/**
+ * Scaling benchmark : how the cost of the building blocks (decoding, copying, critical
+ * path extraction) and of each solver grows with the size of the instance, on
+ * Taillard-style instances up to 2000 jobs x 100 machines.
+ *
+ * jn_swap is the incremental evaluation of a random swap of a JobNumbers sequence (see
+ * JobNumbersEvaluator), to be compared with jn_decode.
+ *
+ * Besides the raw measures, the growth exponent between two consecutive sizes is
+ * reported : cost ~ operations^exponent, where operations = jobs x machines. An
+ * exponent close to 1 is linear, anything well above it scales super-linearly.
+ */
+public class ScalingBenchmark {
+
+	static final String[] DEFAULT_SIZES = { "15x15", "50x20", "100x20", "200x50", "500x50", "1000x100", "2000x100" };
+	static final String[] DEFAULT_SOLVERS = { "random", "greedyestlrpt", "descentestlrpt", "tabooestlrpt" };
+
+	/* Each building block is measured for at least that long */
+	private static final long MEASURE_NS = 200_000_000L;
+
+	/* Growth exponents above this are flagged */
+	private static final double SUPER_LINEAR = 1.2;
+
+	/** Measures of one instance size. */
+	static class Size {
+		final int jobs;
+		final int machines;
+		final List<String> names = new ArrayList<>();
+		final List<Double> costs = new ArrayList<>();
+
+		Size(String spec) {
+			String[] parts = spec.toLowerCase().split("x");
+			if (parts.length != 2) {
+				throw new IllegalArgumentException("invalid size \"" + spec + "\", expected JOBSxMACHINES");
+			}
+			this.jobs = Integer.parseInt(parts[0]);
+			this.machines = Integer.parseInt(parts[1]);
+		}
+
+		int operations() {
+			return jobs * machines;
+		}
+
+		@Override
+		public String toString() {
+			return jobs + "x" + machines;
+		}
+	}
+
+	public static void main(String[] args) {
+		ArgumentParser parser = ArgumentParsers.newFor("jsp-scaling-benchmark").build()
+			.defaultHelp(true)
+			.description("Measures how decoding, copying, critical paths and solvers scale with the instance size.");
+		parser.addArgument("--sizes")
+			.nargs("+")
+			.setDefault(Arrays.asList(DEFAULT_SIZES))
+			.help("Instance sizes, as JOBSxMACHINES");
+		parser.addArgument("--solver")
+			.nargs("+")
+			.setDefault(Arrays.asList(DEFAULT_SOLVERS))
+			.help("Solver(s) to measure");
+		parser.addArgument("-t", "--timeout")
+			.setDefault(2L)
+			.type(Long.class)
+			.help("Solving time of each solver on each size, in seconds");
+		parser.addArgument("--seed")
+			.setDefault(1L)
+			.type(Long.class)
+			.help("Seed of the instances and the solvers");
+
+		Namespace ns = null;
+		try {
+			ns = parser.parseArgs(args);
+		} catch (ArgumentParserException e) {
+			parser.handleError(e);
+			System.exit(1);
+		}
+
+		List<Size> sizes = new ArrayList<>();
+		for (Object spec : ns.getList("sizes")) {
+			sizes.add(new Size(spec.toString()));
+		}
+		List<String> solverNames = ns.getList("solver");
+		for (String solverName : solverNames) {
+			if (Main.solver(solverName) == null) {
+				System.err.println("ERROR: unknown solver \"" + solverName + "\"");
+				System.exit(1);
+			}
+		}
+
+		run(sizes, solverNames, ns.getLong("timeout") * 1000, ns.getLong("seed"), System.out);
+	}
+
+	private static void run(List<Size> sizes, List<String> solverNames, long solveTimeMs, long seed, PrintStream output) {
+		output.println("Building blocks, in microseconds per call :");
+		output.printf(Locale.ROOT, "%-9s %9s %12s %12s %12s %12s %12s %12s%n",
+			"size", "ops", "jn_decode", "jn_swap", "ro_decode", "ro_copy", "ro_from_sch", "crit_path");
+
+		for (Size size : sizes) {
+			Instance instance = instance(size, seed);
+			Schedule schedule = Main.solver("greedyestlrpt").solve(instance, Long.MAX_VALUE).schedule;
+			ResourceOrder order = new ResourceOrder(schedule);
+			JobNumbers numbers = new JobNumbers(schedule);
+
+			JobNumbersEvaluator evaluator = new JobNumbersEvaluator(numbers);
+			SplittableRandom random = new SplittableRandom(seed);
+			int positions = numbers.jobs.length;
+
+			measure(size, "jn_decode", numbers::toSchedule);
+			measure(size, "jn_swap", () -> evaluator.evaluateSwap(random.nextInt(positions), random.nextInt(positions)));
+			measure(size, "ro_decode", order::toSchedule);
+			measure(size, "ro_copy", order::copy);
+			measure(size, "ro_from_sch", () -> new ResourceOrder(schedule));
+			measure(size, "crit_path", schedule::criticalPath);
+
+			output.printf(Locale.ROOT, "%-9s %9d", size, size.operations());
+			for (int i = 0 ; i < size.costs.size() ; i++) {
+				output.printf(Locale.ROOT, " %12.2f", size.costs.get(i));
+			}
+			output.println();
+		}
+
+		output.println();
+		output.println("Solvers, " + solveTimeMs + "ms per run (us/eval is runtime per evaluation, alloc per evaluation) :");
+		output.printf(Locale.ROOT, "%-9s %-22s %9s %10s %12s %12s %10s %8s%n",
+			"size", "solver", "runtime", "evals", "us/eval", "alloc_kB", "heap_MB", "makespan");
+
+		for (Size size : sizes) {
+			Instance instance = instance(size, seed);
+			for (String solverName : solverNames) {
+				solve(output, size, solverName, instance, solveTimeMs, seed);
+			}
+		}
+
+		output.println();
+		output.println("Growth exponents (cost ~ ops^e), '!' marks super-linear growth (e > " + SUPER_LINEAR + ") :");
+		output.printf(Locale.ROOT, "%-20s", "sizes");
+		for (String name : sizes.get(0).names) {
+			output.printf(Locale.ROOT, " %15s", name);
+		}
+		output.println();
+		for (int i = 1 ; i < sizes.size() ; i++) {
+			Size previous = sizes.get(i - 1);
+			Size current = sizes.get(i);
+			output.printf(Locale.ROOT, "%-20s", previous + " -> " + current);
+			for (int m = 0 ; m < current.costs.size() ; m++) {
+				double exponent = Math.log(current.costs.get(m) / previous.costs.get(m))
+					/ Math.log((double) current.operations() / previous.operations());
+				if (Double.isNaN(exponent) || Double.isInfinite(exponent)) {
+					output.printf(Locale.ROOT, " %15s", "-");
+				} else {
+					output.printf(Locale.ROOT, " %14.2f%s", exponent, exponent > SUPER_LINEAR ? "!" : " ");
+				}
+			}
+			output.println();
+		}
+	}
+
+	/* The instance of that size, the same one for a given seed */
+	private static Instance instance(Size size, long seed) {
+		long timeSeed = 1 + Math.floorMod(seed * 7_919 + size.operations(), Integer.MAX_VALUE - 2);
+		long machineSeed = 1 + Math.floorMod(seed * 104_729 + size.jobs, Integer.MAX_VALUE - 2);
+		return Instance.fromString(TaillardGenerator.generate(size.jobs, size.machines, timeSeed, machineSeed));
+	}
+
+	/* Average time of a call, in microseconds, once the JIT had a chance to compile it */
+	private static void measure(Size size, String name, Supplier<?> block) {
+		for (int i = 0 ; i < 3 ; i++) {
+			block.get();
+		}
+		long calls = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			block.get();
+			calls++;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < MEASURE_NS || calls < 3);
+
+		size.names.add(name);
+		size.costs.add(elapsed / 1e3 / calls);
+	}
+
+	private static void solve(PrintStream output, Size size, String solverName, Instance instance, long solveTimeMs, long seed) {
+		Solver solver = Main.solver(solverName);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		List<MemoryPoolMXBean> heap = new ArrayList<>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				heap.add(pool);
+			}
+		}
+
+		System.gc();
+		for (MemoryPoolMXBean pool : heap) {
+			pool.resetPeakUsage();
+		}
+
+		try (SolveContext context = SolveContext.open(solverName, seed, Long.MAX_VALUE)) {
+			long allocatedBefore = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+			long start = System.nanoTime();
+			Result result = solver.solve(instance, System.currentTimeMillis() + solveTimeMs);
+			long runtime = System.nanoTime() - start;
+			long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+
+			long peak = 0;
+			for (MemoryPoolMXBean pool : heap) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+
+			long evaluations = Math.max(1, context.evaluations());
+			double usPerEvaluation = runtime / 1e3 / evaluations;
+			output.printf(Locale.ROOT, "%-9s %-22s %7dms %10d %12.2f %12.2f %10.1f %8d%n",
+				size, solverName, runtime / 1_000_000, context.evaluations(), usPerEvaluation,
+				allocated / 1e3 / evaluations, peak / 1e6, result.schedule.makespan());
+
+			size.names.add(solverName);
+			size.costs.add(usPerEvaluation);
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package jobshop.bench;
+
+import java.util.Arrays;
+
+/**
+ * Summary statistics of a sample of measures (makespans, runtimes...) gathered
+ * over repeated runs of a solver.
+ */
+public final class Statistics {
+
+	/* Two-sided 95% quantiles of Student's t distribution for 1 to 30 degrees of freedom */
+	private static final double[] T_95 = {
+		12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+		2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+		2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+	};
+
+	/** Size of the sample */
+	public final int count;
+	public final double mean;
+	public final double median;
+	/** Sample (n - 1) standard deviation, 0 for a single measure */
+	public final double stddev;
+	public final double min;
+	public final double max;
+	/** Bounds of the 95% confidence interval of the mean */
+	public final double ciLow;
+	public final double ciHigh;
+
+	public Statistics(double[] values) {
+		if (values.length == 0) {
+			throw new IllegalArgumentException("no value to summarize");
+		}
+		double[] sorted = Arrays.copyOf(values, values.length);
+		Arrays.sort(sorted);
+
+		this.count = sorted.length;
+		this.min = sorted[0];
+		this.max = sorted[count - 1];
+		this.median = count % 2 == 1
+			? sorted[count / 2]
+			: (sorted[count / 2 - 1] + sorted[count / 2]) / 2;
+
+		double sum = 0;
+		for (double v : sorted) {
+			sum += v;
+		}
+		this.mean = sum / count;
+
+		double squares = 0;
+		for (double v : sorted) {
+			squares += (v - mean) * (v - mean);
+		}
+		this.stddev = count > 1 ? Math.sqrt(squares / (count - 1)) : 0;
+
+		double halfWidth = count > 1 ? tQuantile(count - 1) * stddev / Math.sqrt(count) : 0;
+		this.ciLow = mean - halfWidth;
+		this.ciHigh = mean + halfWidth;
+	}
+
+	/* 95% two-sided quantile, the normal one is close enough past 30 degrees of freedom */
+	private static double tQuantile(int degreesOfFreedom) {
+		return degreesOfFreedom <= T_95.length ? T_95[degreesOfFreedom - 1] : 1.960;
+	}
+}
@@ -0,0 +1,135 @@
+package jobshop.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+/**
+ * Random job-shop instances generated the way Taillard generated the ta01-ta80 instances
+ * ("Benchmarks for basic scheduling problems", 1993) : durations are drawn uniformly in
+ * [1, 99] and each job visits the machines in a random order, both from Lehmer's
+ * minimal standard generator. With Taillard's seeds the ta instances are reproduced
+ * exactly, e.g. time seed 840612802 and machine seed 398197754 give ta01.
+ *
+ * Instances are written in the text format Instance.fromFile reads.
+ */
+public final class TaillardGenerator {
+
+	private static final long A = 16807;
+	private static final long B = 127773;
+	private static final long C = 2836;
+	private static final long M = Integer.MAX_VALUE;
+
+	private long seed;
+
+	private TaillardGenerator(long seed) {
+		if (seed <= 0 || seed >= M) {
+			throw new IllegalArgumentException("seeds must be in [1, 2^31 - 2]");
+		}
+		this.seed = seed;
+	}
+
+	/* Uniform integer in [low, high], Schrage's overflow free computation of seed * A mod M */
+	private int uniform(int low, int high) {
+		long k = seed / B;
+		seed = A * (seed % B) - k * C;
+		if (seed < 0) {
+			seed += M;
+		}
+		double value = (double) seed / M;
+		return low + (int) Math.floor(value * (high - low + 1));
+	}
+
+	/**
+	 * Returns the text of the instance generated from the given seeds.
+	 * @param numJobs	Number of jobs
+	 * @param numMachines	Number of machines, which is also the number of tasks per job
+	 */
+	public static String generate(int numJobs, int numMachines, long timeSeed, long machineSeed) {
+		TaillardGenerator times = new TaillardGenerator(timeSeed);
+		TaillardGenerator order = new TaillardGenerator(machineSeed);
+
+		int[][] durations = new int[numJobs][numMachines];
+		for (int job = 0 ; job < numJobs ; job++) {
+			for (int task = 0 ; task < numMachines ; task++) {
+				durations[job][task] = times.uniform(1, 99);
+			}
+		}
+
+		int[][] machines = new int[numJobs][numMachines];
+		for (int job = 0 ; job < numJobs ; job++) {
+			for (int task = 0 ; task < numMachines ; task++) {
+				machines[job][task] = task;
+			}
+			for (int task = 0 ; task < numMachines ; task++) {
+				int other = order.uniform(task, numMachines - 1);
+				int tmp = machines[job][task];
+				machines[job][task] = machines[job][other];
+				machines[job][other] = tmp;
+			}
+		}
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("# Taillard-style instance, time seed ").append(timeSeed)
+			.append(", machine seed ").append(machineSeed).append('\n');
+		sb.append(numJobs).append(' ').append(numMachines).append('\n');
+		for (int job = 0 ; job < numJobs ; job++) {
+			for (int task = 0 ; task < numMachines ; task++) {
+				sb.append(String.format("%2d %2d ", machines[job][task], durations[job][task]));
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	public static void main(String[] args) {
+		ArgumentParser parser = ArgumentParsers.newFor("jsp-taillard-generator").build()
+			.defaultHelp(true)
+			.description("Generates a job-shop instance with Taillard's procedure.");
+		parser.addArgument("--jobs")
+			.required(true)
+			.type(Integer.class)
+			.help("Number of jobs");
+		parser.addArgument("--machines")
+			.required(true)
+			.type(Integer.class)
+			.help("Number of machines (and tasks per job)");
+		parser.addArgument("--time-seed")
+			.setDefault(840612802L)
+			.type(Long.class)
+			.help("Seed of the durations");
+		parser.addArgument("--machine-seed")
+			.setDefault(398197754L)
+			.type(Long.class)
+			.help("Seed of the machine orders");
+		parser.addArgument("--output")
+			.help("File to write the instance to, standard output if none");
+
+		Namespace ns = null;
+		try {
+			ns = parser.parseArgs(args);
+		} catch (ArgumentParserException e) {
+			parser.handleError(e);
+			System.exit(1);
+		}
+
+		String instance = generate(ns.getInt("jobs"), ns.getInt("machines"), ns.getLong("time_seed"), ns.getLong("machine_seed"));
+
+		if (ns.getString("output") == null) {
+			System.out.print(instance);
+		} else {
+			try {
+				Files.write(Paths.get(ns.getString("output")), instance.getBytes(StandardCharsets.UTF_8));
+			} catch (IOException e) {
+				System.err.println("ERROR: cannot write " + ns.getString("output") + " : " + e.getMessage());
+				System.exit(1);
+			}
+		}
+	}
+}
@@ -0,0 +1,684 @@
+package jobshop.encodings;
+
+import jobshop.Encoding;
+import jobshop.Instance;
+import jobshop.Schedule;
+import jobshop.SolveContext;
+import jobshop.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A resource order stored as the disjunctive graph of the instance, on primitive arrays.
+ *
+ * Operation (job, task) is numbered job * numTasks + task. Its job predecessor is the
+ * previous number (unless task is 0), its machine predecessor the operation right
+ * before it in the sequence of its machine.
+ *
+ * evaluate() computes, in linear time, the head (earliest start time) and the tail
+ * (longest path from the end of the operation to the end of the schedule) of every
+ * operation. The makespan of the schedule is max(head + duration + tail).
+ *
+ * Operations may be removed from the sequence of their machine, they then only
+ * keep their job precedences, and inserted back : update(operation) then only
+ * recomputes the heads and tails the insertion may have changed. After any other
+ * change of the sequences (a swap, an operation moved), reevaluate(operations) does
+ * the same for the heads and tails that may have decreased.
+ */
+public final class DisjunctiveGraph extends Encoding {
+
+	public final int numOperations;
+
+	/* An incremental update processing more than numOperations / PROPAGATION_FRACTION
+	 * operations (and at least PROPAGATION_MIN_BUDGET) is slower than evaluating everything */
+	private static final int PROPAGATION_FRACTION = 8;
+	private static final int PROPAGATION_MIN_BUDGET = 64;
+
+	/* duration and machine of each operation */
+	private final int[] duration;
+	private final int[] machine;
+
+	/** sequence[m][k] is the k-th operation executed on machine m, for k < sequenceLength(m) */
+	public final int[][] sequence;
+
+	/* number of operations in the sequence of each machine */
+	private final int[] count;
+
+	/* position[o] is the index of operation o in the sequence of its machine, -1 if it has been removed */
+	private final int[] position;
+
+	/** Earliest start times and tails, valid after a successful evaluate() */
+	public final int[] heads;
+	public final int[] tails;
+
+	private int makespan = -1;
+
+	/* scratch of evaluate(), update() and reevaluate() */
+	private final int[] order;
+	private final int[] indegree;
+	private final int[] queue;
+	private final int[] mark;
+	private int stamp = 0;
+	private final Heap changed = new Heap();
+	private final int totalDuration;
+
+	private DisjunctiveGraph(Instance instance, int[][] sequence) {
+		super(instance);
+		this.numOperations = instance.numJobs * instance.numTasks;
+		this.duration = new int[numOperations];
+		this.machine = new int[numOperations];
+		for (int job = 0 ; job < instance.numJobs ; job++) {
+			for (int task = 0 ; task < instance.numTasks ; task++) {
+				int o = job * instance.numTasks + task;
+				duration[o] = instance.duration(job, task);
+				machine[o] = instance.machine(job, task);
+			}
+		}
+		this.totalDuration = Arrays.stream(duration).sum();
+		this.sequence = sequence;
+		this.count = new int[sequence.length];
+		this.position = new int[numOperations];
+		for (int m = 0 ; m < sequence.length ; m++) {
+			count[m] = sequence[m].length;
+			for (int k = 0 ; k < sequence[m].length ; k++) {
+				position[sequence[m][k]] = k;
+			}
+		}
+		this.heads = new int[numOperations];
+		this.tails = new int[numOperations];
+		this.order = new int[numOperations];
+		this.indegree = new int[numOperations];
+		this.queue = new int[numOperations];
+		this.mark = new int[numOperations];
+	}
+
+	/** Creates the graph of a complete resource order. */
+	public DisjunctiveGraph(ResourceOrder resourceOrder) {
+		this(resourceOrder.instance, sequencesOf(resourceOrder));
+	}
+
+	/** Creates the graph of the order of the operations on the machines in the given schedule. */
+	public DisjunctiveGraph(Schedule schedule) {
+		this(new ResourceOrder(schedule));
+	}
+
+	/** Creates the graph of the instance with empty machine sequences : only job precedences. */
+	public static DisjunctiveGraph unsequenced(Instance instance) {
+		DisjunctiveGraph graph = new DisjunctiveGraph(instance, new int[instance.numMachines][instance.numJobs]);
+		Arrays.fill(graph.count, 0);
+		Arrays.fill(graph.position, -1);
+		return graph;
+	}
+
+	private static int[][] sequencesOf(ResourceOrder resourceOrder) {
+		Instance instance = resourceOrder.instance;
+		int[][] sequence = new int[instance.numMachines][instance.numJobs];
+		for (int m = 0 ; m < instance.numMachines ; m++) {
+			for (int k = 0 ; k < instance.numJobs ; k++) {
+				Task t = resourceOrder.tasksByMachine[m][k];
+				sequence[m][k] = t.job * instance.numTasks + t.task;
+			}
+		}
+		return sequence;
+	}
+
+	/** Creates an exact copy of this graph, including heads and tails. */
+	public DisjunctiveGraph copy() {
+		int[][] sequenceCopy = new int[sequence.length][];
+		for (int m = 0 ; m < sequence.length ; m++) {
+			sequenceCopy[m] = sequence[m].clone();
+		}
+		DisjunctiveGraph copy = new DisjunctiveGraph(instance, sequenceCopy);
+		System.arraycopy(count, 0, copy.count, 0, count.length);
+		System.arraycopy(position, 0, copy.position, 0, numOperations);
+		System.arraycopy(heads, 0, copy.heads, 0, numOperations);
+		System.arraycopy(tails, 0, copy.tails, 0, numOperations);
+		copy.makespan = makespan;
+		return copy;
+	}
+
+	public int operation(int job, int task) {
+		return job * instance.numTasks + task;
+	}
+
+	public int job(int operation) {
+		return operation / instance.numTasks;
+	}
+
+	public int task(int operation) {
+		return operation % instance.numTasks;
+	}
+
+	public int duration(int operation) {
+		return duration[operation];
+	}
+
+	public int machine(int operation) {
+		return machine[operation];
+	}
+
+	/** Index of the operation in the sequence of its machine, -1 if it has been removed. */
+	public int position(int operation) {
+		return position[operation];
+	}
+
+	/** Number of operations currently in the sequence of machine m. */
+	public int sequenceLength(int m) {
+		return count[m];
+	}
+
+	/** Previous operation of the same job, -1 if none. */
+	public int jobPredecessor(int operation) {
+		return operation % instance.numTasks == 0 ? -1 : operation - 1;
+	}
+
+	/** Next operation of the same job, -1 if none. */
+	public int jobSuccessor(int operation) {
+		return (operation + 1) % instance.numTasks == 0 ? -1 : operation + 1;
+	}
+
+	/** Previous operation on the same machine, -1 if none. */
+	public int machinePredecessor(int operation) {
+		int k = position[operation];
+		return k <= 0 ? -1 : sequence[machine[operation]][k - 1];
+	}
+
+	/** Next operation on the same machine, -1 if none. */
+	public int machineSuccessor(int operation) {
+		int m = machine[operation];
+		int k = position[operation];
+		return k < 0 || k == count[m] - 1 ? -1 : sequence[m][k + 1];
+	}
+
+	/** Removes the operation from the sequence of its machine. Heads and tails are outdated until the next evaluate(). */
+	public void remove(int operation) {
+		int m = machine[operation];
+		int k = position[operation];
+		if (k < 0) {
+			return;
+		}
+		System.arraycopy(sequence[m], k + 1, sequence[m], k, count[m] - k - 1);
+		count[m]--;
+		for (int i = k ; i < count[m] ; i++) {
+			position[sequence[m][i]] = i;
+		}
+		position[operation] = -1;
+	}
+
+	/** Inserts a removed operation at position k of the sequence of its machine, see update(). */
+	public void insert(int operation, int k) {
+		int m = machine[operation];
+		System.arraycopy(sequence[m], k, sequence[m], k + 1, count[m] - k);
+		sequence[m][k] = operation;
+		count[m]++;
+		for (int i = k ; i < count[m] ; i++) {
+			position[sequence[m][i]] = i;
+		}
+	}
+
+	/** Swaps the operations at positions k1 and k2 of machine m. Heads and tails are outdated until the next evaluate(). */
+	public void swap(int m, int k1, int k2) {
+		int o1 = sequence[m][k1];
+		int o2 = sequence[m][k2];
+		sequence[m][k1] = o2;
+		sequence[m][k2] = o1;
+		position[o2] = k1;
+		position[o1] = k2;
+	}
+
+	/** Replaces the operations at positions [from, from + operations.length) of machine m. */
+	public void setSequence(int m, int from, int[] operations) {
+		for (int i = 0 ; i < operations.length ; i++) {
+			sequence[m][from + i] = operations[i];
+			position[operations[i]] = from + i;
+		}
+	}
+
+	/**
+	 * Computes heads, tails and makespan in a topological order of the graph.
+	 * @return	false if the machine sequences contain a cycle, in which case heads and tails are meaningless
+	 */
+	public boolean evaluate() {
+		SolveContext.current().evaluated();
+		long t = Metrics.start();
+		boolean acyclic = this.computeHeadsAndTails();
+		Metrics.stop(Metrics.Section.DECODE, t);
+		return acyclic;
+	}
+
+	private boolean computeHeadsAndTails() {
+		/* Kahn's algorithm : an operation is ready once both its predecessors are done */
+		int size = 0;
+		for (int o = 0 ; o < numOperations ; o++) {
+			indegree[o] = (jobPredecessor(o) >= 0 ? 1 : 0) + (machinePredecessor(o) >= 0 ? 1 : 0);
+			if (indegree[o] == 0) {
+				order[size++] = o;
+			}
+		}
+		for (int i = 0 ; i < size ; i++) {
+			int o = order[i];
+			int js = jobSuccessor(o);
+			if (js >= 0 && --indegree[js] == 0) {
+				order[size++] = js;
+			}
+			int ms = machineSuccessor(o);
+			if (ms >= 0 && --indegree[ms] == 0) {
+				order[size++] = ms;
+			}
+		}
+		if (size < numOperations) {
+			this.makespan = -1;
+			return false;
+		}
+
+		int max = 0;
+		for (int i = 0 ; i < numOperations ; i++) {
+			int o = order[i];
+			heads[o] = this.head(o);
+			max = Math.max(max, heads[o] + duration[o]);
+		}
+		for (int i = numOperations - 1 ; i >= 0 ; i--) {
+			int o = order[i];
+			tails[o] = this.tail(o);
+		}
+		this.makespan = max;
+		return true;
+	}
+
+	/* Head of the operation from the heads of its predecessors */
+	private int head(int o) {
+		int head = 0;
+		int jp = jobPredecessor(o);
+		if (jp >= 0) {
+			head = heads[jp] + duration[jp];
+		}
+		int mp = machinePredecessor(o);
+		if (mp >= 0) {
+			head = Math.max(head, heads[mp] + duration[mp]);
+		}
+		return head;
+	}
+
+	/* Tail of the operation from the tails of its successors */
+	private int tail(int o) {
+		int tail = 0;
+		int js = jobSuccessor(o);
+		if (js >= 0) {
+			tail = duration[js] + tails[js];
+		}
+		int ms = machineSuccessor(o);
+		if (ms >= 0) {
+			tail = Math.max(tail, duration[ms] + tails[ms]);
+		}
+		return tail;
+	}
+
+	/**
+	 * Updates heads, tails and makespan after the given operation has been inserted in
+	 * a graph whose heads and tails were up to date. Heads are propagated forward from
+	 * the operation and tails backward, only as far as they change (or the whole graph
+	 * is evaluated again when most of it changes).
+	 * @return	false if the insertion closed a cycle, in which case nothing was updated
+	 *		and the operation should be removed again
+	 */
+	public boolean update(int operation) {
+		long t = Metrics.start();
+		boolean acyclic = !this.closesCycle(operation);
+		if (acyclic) {
+			this.refresh(new int[] { operation });
+		}
+		Metrics.stop(Metrics.Section.DECODE, t);
+		return acyclic;
+	}
+
+	/**
+	 * Updates heads, tails and makespan after the given operations have been inserted in
+	 * a graph whose heads and tails were up to date, e.g. a whole machine sequence.
+	 * @return	false if the insertions closed a cycle, in which case heads and tails are
+	 *		meaningless until the operations are removed and the graph evaluated again
+	 */
+	public boolean update(int[] operations) {
+		long t = Metrics.start();
+		boolean acyclic = this.refresh(operations);
+		Metrics.stop(Metrics.Section.DECODE, t);
+		return acyclic;
+	}
+
+	/**
+	 * Updates heads, tails and makespan after any change of the machine sequences of a
+	 * graph whose heads and tails were up to date : heads are computed again for the
+	 * operations reachable from the given ones, tails for the operations reaching them.
+	 * @param operations	Every operation whose machine predecessor or successor changed
+	 * @return		false if the change closed a cycle, in which case heads and tails are
+	 *			meaningless until the sequences are restored and the graph evaluated again
+	 */
+	public boolean reevaluate(int[] operations) {
+		SolveContext.current().evaluated();
+		long t = Metrics.start();
+		boolean acyclic = this.recompute(operations, true) && this.recompute(operations, false);
+		if (acyclic) {
+			/* the longest path ends with the last task of a job */
+			this.makespan = 0;
+			for (int job = 0 ; job < instance.numJobs ; job++) {
+				int last = this.operation(job, instance.numTasks - 1);
+				this.makespan = Math.max(this.makespan, heads[last] + duration[last]);
+			}
+		} else {
+			this.makespan = -1;
+		}
+		Metrics.stop(Metrics.Section.DECODE, t);
+		return acyclic;
+	}
+
+	/**
+	 * Moves the operation to position k of the sequence of its machine, then updates heads,
+	 * tails and makespan as reevaluate() does.
+	 * @return	false if the move closed a cycle, see reevaluate()
+	 */
+	public boolean move(int operation, int k) {
+		int m = machine[operation];
+		int from = position[operation];
+		this.remove(operation);
+		this.insert(operation, k);
+
+		/* the operations whose machine neighbours changed */
+		int first = Math.max(0, Math.min(from, k) - 1);
+		int last = Math.min(count[m] - 1, Math.max(from, k) + 1);
+		return this.reevaluate(Arrays.copyOfRange(sequence[m], first, last + 1));
+	}
+
+	/**
+	 * Moves the operation back to position k, where it was before a move() that closed
+	 * a cycle, and makes heads, tails and makespan exact again. The failed move only
+	 * changed the values of the operations reachable from (or reaching) its machine
+	 * neighbours, the same ones as in the restored graph, so they are simply computed again.
+	 */
+	public void restore(int operation, int k) {
+		if (!this.move(operation, k)) {
+			throw new IllegalStateException("the graph had a cycle before the move");
+		}
+	}
+
+	/* Kahn's algorithm on the operations reachable from the given ones (forward), or reaching them (backward) */
+	private boolean recompute(int[] operations, boolean forward) {
+		int[] values = forward ? heads : tails;
+		stamp++;
+		int size = 0;
+		for (int o : operations) {
+			if (mark[o] != stamp) {
+				mark[o] = stamp;
+				order[size++] = o;
+			}
+		}
+		for (int i = 0 ; i < size ; i++) {
+			int o = order[i];
+			int next = forward ? jobSuccessor(o) : jobPredecessor(o);
+			if (next >= 0 && mark[next] != stamp) {
+				mark[next] = stamp;
+				order[size++] = next;
+			}
+			next = forward ? machineSuccessor(o) : machinePredecessor(o);
+			if (next >= 0 && mark[next] != stamp) {
+				mark[next] = stamp;
+				order[size++] = next;
+			}
+		}
+
+		/* values of the operations outside the region are exact, only the ones inside are waited for */
+		int ready = 0;
+		for (int i = 0 ; i < size ; i++) {
+			int o = order[i];
+			int previous = forward ? jobPredecessor(o) : jobSuccessor(o);
+			indegree[o] = previous >= 0 && mark[previous] == stamp ? 1 : 0;
+			previous = forward ? machinePredecessor(o) : machineSuccessor(o);
+			indegree[o] += previous >= 0 && mark[previous] == stamp ? 1 : 0;
+			if (indegree[o] == 0) {
+				queue[ready++] = o;
+			}
+		}
+		for (int done = 0 ; done < ready ; done++) {
+			int o = queue[done];
+			values[o] = forward ? this.head(o) : this.tail(o);
+			int next = forward ? jobSuccessor(o) : jobPredecessor(o);
+			if (next >= 0 && mark[next] == stamp && --indegree[next] == 0) {
+				queue[ready++] = next;
+			}
+			next = forward ? machineSuccessor(o) : machinePredecessor(o);
+			if (next >= 0 && mark[next] == stamp && --indegree[next] == 0) {
+				queue[ready++] = next;
+			}
+		}
+		/* the operations left waiting are on a cycle */
+		return ready == size;
+	}
+
+	/* Propagates from the operations, or evaluates the whole graph once that gets cheaper or a cycle shows up */
+	private boolean refresh(int[] operations) {
+		if (this.propagate(operations, true) && this.propagate(operations, false)) {
+			for (int o : operations) {
+				this.makespan = Math.max(this.makespan, heads[o] + duration[o] + tails[o]);
+			}
+			return true;
+		}
+		return this.computeHeadsAndTails();
+	}
+
+	/* The machine predecessor u and successor w of the operation were adjacent before its
+	 * insertion : a cycle through it is either a path from w to its job predecessor or a
+	 * path from its job successor to u, in the graph the heads are still exact for */
+	private boolean closesCycle(int operation) {
+		int jp = jobPredecessor(operation);
+		int js = jobSuccessor(operation);
+		int u = machinePredecessor(operation);
+		int w = machineSuccessor(operation);
+		return (w >= 0 && jp >= 0 && this.reaches(w, jp)) || (js >= 0 && u >= 0 && this.reaches(js, u));
+	}
+
+	/* Depth-first search, the operations of a path to 'to' start no later than it */
+	private boolean reaches(int from, int to) {
+		stamp++;
+		int size = 0;
+		queue[size++] = from;
+		mark[from] = stamp;
+		while (size > 0) {
+			int o = queue[--size];
+			if (o == to) {
+				return true;
+			}
+			int js = jobSuccessor(o);
+			if (js >= 0 && mark[js] != stamp && heads[js] <= heads[to]) {
+				mark[js] = stamp;
+				queue[size++] = js;
+			}
+			int ms = machineSuccessor(o);
+			if (ms >= 0 && mark[ms] != stamp && heads[ms] <= heads[to]) {
+				mark[ms] = stamp;
+				queue[size++] = ms;
+			}
+		}
+		return false;
+	}
+
+	/* Label-correcting propagation of the increased heads (forward) or tails (backward),
+	 * smallest value first so that an operation is rarely processed twice. Gives up (false)
+	 * when it processed more operations than a full evaluation is worth, or when a value
+	 * exceeds the sum of all durations, which no path of an acyclic graph does. */
+	private boolean propagate(int[] operations, boolean forward) {
+		int[] values = forward ? heads : tails;
+		changed.clear();
+		for (int o : operations) {
+			values[o] = forward ? this.head(o) : this.tail(o);
+			changed.push(values[o], o);
+		}
+		int budget = Math.max(PROPAGATION_MIN_BUDGET, numOperations / PROPAGATION_FRACTION);
+		while (!changed.isEmpty()) {
+			long top = changed.pop();
+			int o = (int) top;
+			if ((int) (top >>> 32) != values[o]) {
+				continue;
+			}
+			if (values[o] > totalDuration || --budget < 0) {
+				return false;
+			}
+			this.relax(forward ? jobSuccessor(o) : jobPredecessor(o), forward);
+			this.relax(forward ? machineSuccessor(o) : machinePredecessor(o), forward);
+		}
+		return true;
+	}
+
+	private void relax(int o, boolean forward) {
+		if (o < 0) {
+			return;
+		}
+		int[] values = forward ? heads : tails;
+		int value = forward ? this.head(o) : this.tail(o);
+		if (value > values[o]) {
+			values[o] = value;
+			changed.push(value, o);
+		}
+	}
+
+	/* Binary min-heap of (value, operation) pairs packed in longs */
+	private static final class Heap {
+		private long[] entries = new long[64];
+		private int size = 0;
+
+		void clear() {
+			size = 0;
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		void push(int value, int operation) {
+			if (size == entries.length) {
+				entries = Arrays.copyOf(entries, 2 * size);
+			}
+			long entry = ((long) value << 32) | operation;
+			int i = size++;
+			while (i > 0 && entries[(i - 1) / 2] > entry) {
+				entries[i] = entries[(i - 1) / 2];
+				i = (i - 1) / 2;
+			}
+			entries[i] = entry;
+		}
+
+		long pop() {
+			long top = entries[0];
+			long last = entries[--size];
+			int i = 0;
+			while (2 * i + 1 < size) {
+				int child = 2 * i + 1;
+				if (child + 1 < size && entries[child + 1] < entries[child]) {
+					child++;
+				}
+				if (entries[child] >= last) {
+					break;
+				}
+				entries[i] = entries[child];
+				i = child;
+			}
+			entries[i] = last;
+			return top;
+		}
+	}
+
+	/** Makespan computed by the last evaluate(), -1 if the graph has a cycle. */
+	public int makespan() {
+		return makespan;
+	}
+
+	/** True if the operation lies on a critical path, valid after a successful evaluate(). */
+	public boolean isCritical(int operation) {
+		return heads[operation] + duration[operation] + tails[operation] == makespan;
+	}
+
+	/**
+	 * The blocks of a critical path, valid after a successful evaluate() : maximal runs of
+	 * consecutive critical operations on one machine, as { machine, first position, last position }.
+	 * Machine arcs are followed first so that the blocks are maximal.
+	 */
+	public List<int[]> criticalBlocks() {
+		List<int[]> blocks = new ArrayList<>();
+
+		int o = 0;
+		while (heads[o] != 0 || !isCritical(o)) {
+			o++;
+		}
+		int first = position(o);
+		while (true) {
+			int end = heads[o] + duration[o];
+			int ms = machineSuccessor(o);
+			int js = jobSuccessor(o);
+			int next;
+			if (ms >= 0 && heads[ms] == end && isCritical(ms)) {
+				next = ms;
+			} else {
+				if (position(o) > first) {
+					blocks.add(new int[] { machine(o), first, position(o) });
+				}
+				if (js >= 0 && heads[js] == end && isCritical(js)) {
+					next = js;
+				} else {
+					return blocks;
+				}
+				first = position(next);
+			}
+			o = next;
+		}
+	}
+
+	/**
+	 * The blocks of every critical path, valid after a successful evaluate() : maximal runs of
+	 * operations on one machine linked by critical arcs (both critical, the second one starting
+	 * when the first one ends), as { machine, first position, last position }. The critical
+	 * subgraph is read off the heads and tails in one pass over the sequences, without
+	 * enumerating its paths.
+	 */
+	public List<int[]> criticalSubgraphBlocks() {
+		List<int[]> blocks = new ArrayList<>();
+		for (int m = 0 ; m < sequence.length ; m++) {
+			int first = 0;
+			for (int k = 1 ; k <= count[m] ; k++) {
+				int a = sequence[m][k - 1];
+				boolean critical = k < count[m] && isCritical(a) && isCritical(sequence[m][k])
+					&& heads[a] + duration[a] == heads[sequence[m][k]];
+				if (!critical) {
+					if (k - 1 > first) {
+						blocks.add(new int[] { m, first, k - 1 });
+					}
+					first = k;
+				}
+			}
+		}
+		return blocks;
+	}
+
+	public ResourceOrder toResourceOrder() {
+		ResourceOrder resourceOrder = new ResourceOrder(instance);
+		for (int m = 0 ; m < sequence.length ; m++) {
+			for (int k = 0 ; k < count[m] ; k++) {
+				int o = sequence[m][k];
+				resourceOrder.tasksByMachine[m][k] = new Task(job(o), task(o));
+			}
+			resourceOrder.nextFreeSlot[m] = count[m];
+		}
+		return resourceOrder;
+	}
+
+	/** Returns the semi-active schedule of this graph (its heads), null if it has a cycle. */
+	@Override
+	public Schedule toSchedule() {
+		if (!this.evaluate()) {
+			return null;
+		}
+		int[][] times = new int[instance.numJobs][instance.numTasks];
+		for (int o = 0 ; o < numOperations ; o++) {
+			times[job(o)][task(o)] = heads[o];
+		}
+		return new Schedule(instance, times);
+	}
+}
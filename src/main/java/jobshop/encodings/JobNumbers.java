@@ -3,10 +3,10 @@ package jobshop.encodings;
 import jobshop.Encoding;
 import jobshop.Instance;
 import jobshop.Schedule;
+import jobshop.SolveContext;
+import jobshop.metrics.Metrics;
 
 import java.util.Arrays;
-import java.util.Comparator;
-import java.util.stream.IntStream;
 
 /** Représentation par numéro de job. */
 public class JobNumbers extends Encoding {
@@ -25,32 +25,64 @@ public class JobNumbers extends Encoding {
 		Arrays.fill(jobs, -1);
 	}
 
+	/* Copy constructor, see copy() */
+	private JobNumbers(JobNumbers other) {
+		super(other.instance);
+		this.jobs = other.jobs.clone();
+		this.nextToSet = other.nextToSet;
+	}
+
+	/**
+	 * The sequence of the tasks of a schedule by start time, ties broken by job then task :
+	 * its decoding starts every task no later than in the schedule.
+	 */
 	public JobNumbers(Schedule schedule) {
 		super(schedule.pb);
 
-		this.jobs = new int[this.instance.numJobs * this.instance.numTasks];
-
-		int[] nextOnJob = new int[this.instance.numJobs];
-
-		while (Arrays.stream(nextOnJob).anyMatch(t -> t < this.instance.numTasks)) {
-			Task next = IntStream
-				/* for all jobs number */
-				.range(0, this.instance.numJobs)
-				/* build the next task for this job */
-				.mapToObj(j -> new Task(j, nextOnJob[j]))
-				/* only keep valid tasks (some jobs have no task left to be executed) */
-				.filter(t -> t.task < this.instance.numTasks)
-				/* select the task with the earliest execution time */
-				.min(Comparator.comparing(t -> schedule.startTime(t.job, t.task)))
-				.get();
-			
-			this.jobs[nextToSet++] = next.job;
-			nextOnJob[next.job] += 1;
+		int numTasks = this.instance.numTasks;
+		int numOperations = this.instance.numJobs * numTasks;
+		this.jobs = new int[numOperations];
+
+		/* start * numOperations + job * numTasks + task */
+		long[] byStart = new long[numOperations];
+		for (int o = 0 ; o < numOperations ; o++) {
+			byStart[o] = (long) schedule.startTime(o / numTasks, o % numTasks) * numOperations + o;
+		}
+		Arrays.sort(byStart);
+		for (long key : byStart) {
+			this.jobs[nextToSet++] = (int) (key % numOperations) / numTasks;
 		}
 	}
 
+	/**
+	 * The order in which this sequence puts the tasks on each machine, in one pass over the
+	 * sequence : it decodes into the same schedule.
+	 */
+	public ResourceOrder toResourceOrder() {
+		ResourceOrder order = new ResourceOrder(this.instance);
+		int[] nextTask = new int[this.instance.numJobs];
+		for (int i = 0 ; i < this.nextToSet ; i++) {
+			int job = this.jobs[i];
+			int task = nextTask[job]++;
+			int machine = this.instance.machine(job, task);
+			order.tasksByMachine[machine][order.nextFreeSlot[machine]++] = new Task(job, task);
+		}
+		return order;
+	}
+
 	@Override
 	public Schedule toSchedule() {
+		SolveContext.current().evaluated();
+
+		long t = Metrics.start();
+		Schedule schedule = this.decode();
+		Metrics.stop(Metrics.Section.DECODE, t);
+
+		return schedule;
+	}
+
+	/* Builds the semi-active schedule of this sequence */
+	private Schedule decode() {
 		// time at which each machine is going to be freed
 		int[] nextFreeTimeResource = new int[instance.numMachines];
 
@@ -80,8 +112,12 @@ public class JobNumbers extends Encoding {
 
 	}
 
+	/** Creates an exact copy of this sequence. */
 	public JobNumbers copy() {
-		return new JobNumbers(this.toSchedule());
+		long t = Metrics.start();
+		JobNumbers copy = new JobNumbers(this);
+		Metrics.stop(Metrics.Section.COPY, t);
+		return copy;
 	}
 
 	@Override
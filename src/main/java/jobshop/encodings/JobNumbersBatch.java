@@ -0,0 +1,189 @@
+package jobshop.encodings;
+
+import jobshop.Instance;
+import jobshop.Schedule;
+import jobshop.SolveContext;
+import jobshop.metrics.Metrics;
+
+import java.util.Arrays;
+
+/**
+ * Makespans of up to `width` JobNumbers sequences of one instance, decoded in lockstep.
+ *
+ * Decoding one sequence is a chain of dependent loads, max and add : each step waits for
+ * the release date of a machine written a few steps earlier. Here position p of every
+ * sequence is decoded before position p + 1 of any, so consecutive steps belong to
+ * independent chains the processor overlaps. The decoder state is laid out as a structure
+ * of arrays with the sequence (the lane) innermost : release date of machine m for lane l
+ * at m * width + l, and likewise for the jobs, so the lanes of a step touch neighbouring
+ * memory.
+ *
+ * The batch is filled with add(), evaluated, read with makespan(lane), then cleared for
+ * the next one. Each evaluation of a sequence counts as one (see SolveContext.evaluated()).
+ */
+public final class JobNumbersBatch {
+
+	/** Number of sequences decoded together when none is given. */
+	public static final int DEFAULT_WIDTH = 8;
+
+	public final Instance instance;
+	public final int width;
+
+	/* machine and duration of operation job * numTasks + task */
+	private final int[] machines;
+	private final int[] durations;
+
+	/* job at position p of lane l, at p * width + l */
+	private final int[] sequences;
+	private int size;
+
+	/* decoding state : release date of each machine, end date and next operation of each job */
+	private final int[] machineFree;
+	private final int[] jobEnd;
+	private final int[] jobNext;
+	private final int[] makespans;
+
+	public JobNumbersBatch(Instance instance) {
+		this(instance, DEFAULT_WIDTH);
+	}
+
+	public JobNumbersBatch(Instance instance, int width) {
+		if (width < 1) {
+			throw new IllegalArgumentException("a batch holds at least 1 sequence");
+		}
+		this.instance = instance;
+		this.width = width;
+
+		int numOperations = instance.numJobs * instance.numTasks;
+		this.machines = new int[numOperations];
+		this.durations = new int[numOperations];
+		for (int job = 0 ; job < instance.numJobs ; job++) {
+			for (int task = 0 ; task < instance.numTasks ; task++) {
+				this.machines[job * instance.numTasks + task] = instance.machine(job, task);
+				this.durations[job * instance.numTasks + task] = instance.duration(job, task);
+			}
+		}
+
+		this.sequences = new int[numOperations * width];
+		this.machineFree = new int[instance.numMachines * width];
+		this.jobEnd = new int[instance.numJobs * width];
+		this.jobNext = new int[instance.numJobs * width];
+		this.makespans = new int[width];
+	}
+
+	/** Number of sequences in the batch. */
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isFull() {
+		return this.size == this.width;
+	}
+
+	public void clear() {
+		this.size = 0;
+	}
+
+	/**
+	 * Appends a copy of a complete sequence of the instance.
+	 * @return	its lane in the batch
+	 */
+	public int add(JobNumbers sequence) {
+		if (this.isFull()) {
+			throw new IllegalStateException("the batch is full");
+		}
+		int[] jobs = sequence.jobs;
+		int lane = this.size++;
+		for (int p = 0, i = lane ; p < jobs.length ; p++, i += this.width) {
+			this.sequences[i] = jobs[p];
+		}
+		return lane;
+	}
+
+	/** Decodes every sequence of the batch, their makespans are then given by makespan(lane). */
+	public void evaluate() {
+		SolveContext context = SolveContext.current();
+		for (int lane = 0 ; lane < this.size ; lane++) {
+			context.evaluated();
+		}
+
+		long t = Metrics.start();
+		int width = this.width;
+		int size = this.size;
+		int numTasks = this.instance.numTasks;
+		int[] machineFree = this.machineFree;
+		int[] jobEnd = this.jobEnd;
+		int[] jobNext = this.jobNext;
+
+		Arrays.fill(machineFree, 0);
+		Arrays.fill(jobEnd, 0);
+		for (int job = 0 ; job < this.instance.numJobs ; job++) {
+			Arrays.fill(jobNext, job * width, job * width + size, job * numTasks);
+		}
+
+		for (int base = 0 ; base < this.sequences.length ; base += width) {
+			for (int lane = 0 ; lane < size ; lane++) {
+				int j = this.sequences[base + lane] * width + lane;
+				int o = jobNext[j]++;
+				int m = this.machines[o] * width + lane;
+				int end = Math.max(jobEnd[j], machineFree[m]) + this.durations[o];
+				jobEnd[j] = end;
+				machineFree[m] = end;
+			}
+		}
+
+		Arrays.fill(this.makespans, 0);
+		for (int j = 0 ; j < jobEnd.length ; j += width) {
+			for (int lane = 0 ; lane < size ; lane++) {
+				this.makespans[lane] = Math.max(this.makespans[lane], jobEnd[j + lane]);
+			}
+		}
+		Metrics.stop(Metrics.Section.DECODE, t);
+	}
+
+	/** Makespan of the sequence of that lane, as of the last evaluate(). */
+	public int makespan(int lane) {
+		if (lane >= this.size) {
+			throw new IndexOutOfBoundsException("no sequence in lane " + lane);
+		}
+		return this.makespans[lane];
+	}
+
+	/** A copy of the sequence of that lane. */
+	public JobNumbers sequence(int lane) {
+		if (lane >= this.size) {
+			throw new IndexOutOfBoundsException("no sequence in lane " + lane);
+		}
+		JobNumbers sequence = new JobNumbers(this.instance);
+		for (int i = lane ; i < this.sequences.length ; i += this.width) {
+			sequence.jobs[sequence.nextToSet++] = this.sequences[i];
+		}
+		return sequence;
+	}
+
+	/** The schedule of the sequence of that lane, already counted as evaluated by evaluate(). */
+	public Schedule schedule(int lane) {
+		if (lane >= this.size) {
+			throw new IndexOutOfBoundsException("no sequence in lane " + lane);
+		}
+		int numTasks = this.instance.numTasks;
+		int[][] startTimes = new int[this.instance.numJobs][numTasks];
+		int[] freeAt = new int[this.instance.numMachines];
+		int[] endAt = new int[this.instance.numJobs];
+		int[] next = new int[this.instance.numJobs];
+
+		long t = Metrics.start();
+		for (int i = lane ; i < this.sequences.length ; i += this.width) {
+			int job = this.sequences[i];
+			int task = next[job]++;
+			int o = job * numTasks + task;
+			int start = Math.max(endAt[job], freeAt[this.machines[o]]);
+			startTimes[job][task] = start;
+			endAt[job] = start + this.durations[o];
+			freeAt[this.machines[o]] = endAt[job];
+		}
+		Metrics.stop(Metrics.Section.DECODE, t);
+
+		return new Schedule(this.instance, startTimes);
+	}
+}
@@ -0,0 +1,183 @@
+package jobshop.encodings;
+
+import jobshop.Instance;
+import jobshop.SolveContext;
+import jobshop.metrics.Metrics;
+
+import java.util.Arrays;
+
+/**
+ * Incremental makespan evaluation of the moves of a JobNumbers sequence.
+ *
+ * Decoding a sequence is a left to right scan : the decoder state before position p
+ * (release date of each machine, end date and next task of each job) only depends on
+ * positions 0 .. p - 1. This evaluator keeps that state every `interval` positions. A
+ * move changing positions p .. q only decodes again from the checkpoint before p, and
+ * stops as soon as it reaches a checkpoint past q whose state is unchanged : the rest of
+ * the decoding, hence the makespan, would be the same. On average a move costs about half
+ * a full decoding, or much less when it has only local effects.
+ *
+ * The evaluator works on the sequence it was built from : after a move is made on it,
+ * update() must be called with the changed positions before any other evaluation.
+ */
+public final class JobNumbersEvaluator {
+
+	private final JobNumbers solution;
+	private final Instance instance;
+	private final int interval;
+
+	/* state before position c * interval, at c * numMachines (machines) or c * numJobs (jobs) */
+	private final int[] machineFree;
+	private final int[] jobEnd;
+	private final int[] jobNext;
+	private int makespan;
+
+	/* decoding state */
+	private final int[] freeAt;
+	private final int[] endAt;
+	private final int[] next;
+
+	/** Evaluator of the moves of a complete sequence, with a checkpoint every numJobs + numMachines positions. */
+	public JobNumbersEvaluator(JobNumbers solution) {
+		this(solution, solution.instance.numJobs + solution.instance.numMachines);
+	}
+
+	/**
+	 * @param solution	Complete sequence whose moves are evaluated
+	 * @param interval	Number of positions between two checkpoints : the smaller, the less
+	 *			decoded again and the more state saved
+	 */
+	public JobNumbersEvaluator(JobNumbers solution, int interval) {
+		if (interval < 1) {
+			throw new IllegalArgumentException("there must be at least 1 position between checkpoints");
+		}
+		this.solution = solution;
+		this.instance = solution.instance;
+		this.interval = interval;
+
+		int checkpoints = (solution.jobs.length + interval - 1) / interval;
+		this.machineFree = new int[checkpoints * instance.numMachines];
+		this.jobEnd = new int[checkpoints * instance.numJobs];
+		this.jobNext = new int[checkpoints * instance.numJobs];
+		this.freeAt = new int[instance.numMachines];
+		this.endAt = new int[instance.numJobs];
+		this.next = new int[instance.numJobs];
+
+		this.makespan = this.decode(0, solution.jobs.length - 1, true);
+	}
+
+	/** Makespan of the sequence as of the last update(). */
+	public int makespan() {
+		return this.makespan;
+	}
+
+	/**
+	 * Makespan of the sequence once positions p and q are swapped, the sequence and the
+	 * checkpoints being left as they are.
+	 */
+	public int evaluateSwap(int p, int q) {
+		int[] jobs = this.solution.jobs;
+		int first = Math.min(p, q);
+		int last = Math.max(p, q);
+		if (jobs[first] == jobs[last]) {
+			return this.makespan;
+		}
+		swap(jobs, first, last);
+		int result = this.decode(first, last, false);
+		swap(jobs, first, last);
+		return result;
+	}
+
+	/**
+	 * Makespan of the sequence once the job at position `from` is moved to position `to`
+	 * (the ones in between shifting by one), the sequence and the checkpoints being left as they are.
+	 */
+	public int evaluateInsertion(int from, int to) {
+		int[] jobs = this.solution.jobs;
+		if (from == to) {
+			return this.makespan;
+		}
+		move(jobs, from, to);
+		int result = this.decode(Math.min(from, to), Math.max(from, to), false);
+		move(jobs, to, from);
+		return result;
+	}
+
+	/**
+	 * Takes into account a change of the sequence between positions `first` and `last`
+	 * (included), returns the new makespan.
+	 */
+	public int update(int first, int last) {
+		this.makespan = this.decode(Math.min(first, last), Math.max(first, last), true);
+		return this.makespan;
+	}
+
+	/* Decodes from the checkpoint before `first`, returns the makespan. Checkpoints are rewritten if `save` is set. */
+	private int decode(int first, int last, boolean save) {
+		SolveContext.current().evaluated();
+		long t = Metrics.start();
+
+		int numMachines = instance.numMachines;
+		int numJobs = instance.numJobs;
+		int[] jobs = this.solution.jobs;
+
+		int c = first / this.interval;
+		System.arraycopy(this.machineFree, c * numMachines, this.freeAt, 0, numMachines);
+		System.arraycopy(this.jobEnd, c * numJobs, this.endAt, 0, numJobs);
+		System.arraycopy(this.jobNext, c * numJobs, this.next, 0, numJobs);
+
+		for (int position = c * this.interval ; position < jobs.length ; position++) {
+			if (position % this.interval == 0) {
+				c = position / this.interval;
+				/* past the change, the same state leads to the same makespan */
+				if (position > last && this.unchanged(c)) {
+					Metrics.stop(Metrics.Section.DECODE, t);
+					return this.makespan;
+				}
+				if (save) {
+					System.arraycopy(this.freeAt, 0, this.machineFree, c * numMachines, numMachines);
+					System.arraycopy(this.endAt, 0, this.jobEnd, c * numJobs, numJobs);
+					System.arraycopy(this.next, 0, this.jobNext, c * numJobs, numJobs);
+				}
+			}
+			int job = jobs[position];
+			int task = this.next[job]++;
+			int machine = instance.machine(job, task);
+			int end = Math.max(this.endAt[job], this.freeAt[machine]) + instance.duration(job, task);
+			this.endAt[job] = end;
+			this.freeAt[machine] = end;
+		}
+
+		int result = 0;
+		for (int end : this.endAt) {
+			result = Math.max(result, end);
+		}
+		Metrics.stop(Metrics.Section.DECODE, t);
+		return result;
+	}
+
+	/* Whether the decoding state is the one saved at checkpoint c, next tasks aside : past the change they are the same */
+	private boolean unchanged(int c) {
+		int numMachines = instance.numMachines;
+		int numJobs = instance.numJobs;
+		return Arrays.equals(this.freeAt, 0, numMachines, this.machineFree, c * numMachines, (c + 1) * numMachines)
+			&& Arrays.equals(this.endAt, 0, numJobs, this.jobEnd, c * numJobs, (c + 1) * numJobs);
+	}
+
+	private static void swap(int[] jobs, int p, int q) {
+		int job = jobs[p];
+		jobs[p] = jobs[q];
+		jobs[q] = job;
+	}
+
+	/* Moves the job at position `from` to position `to`, shifting the ones in between */
+	private static void move(int[] jobs, int from, int to) {
+		int job = jobs[from];
+		if (from < to) {
+			System.arraycopy(jobs, from + 1, jobs, from, to - from);
+		} else {
+			System.arraycopy(jobs, to, jobs, to + 1, from - to);
+		}
+		jobs[to] = job;
+	}
+}
@@ -0,0 +1,108 @@
+package jobshop.encodings;
+
+import jobshop.Instance;
+import jobshop.Schedule;
+import jobshop.SolveContext;
+import jobshop.metrics.Metrics;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Left-shift compaction : turns any schedule into an active one, where no operation can
+ * start earlier without delaying another one.
+ *
+ * The decoders build semi-active schedules : an operation starts as soon as its job and
+ * machine predecessors are done, but never jumps into an earlier idle gap of its machine.
+ * Here the operations are taken by increasing start time, each one placed at the start
+ * of the first idle gap of its machine where it fits after its job predecessor. The idle
+ * gaps of each machine are kept sorted by start date, so that finding the gap is a
+ * lookup followed by a scan of the gaps too short for the operation.
+ *
+ * No operation starts later than in the given schedule, so the makespan never grows.
+ */
+public final class LeftShift {
+
+	/** The active schedule. */
+	public final Schedule schedule;
+
+	/** Its resource order, whose decoding gives back the same schedule. */
+	public final ResourceOrder order;
+
+	private LeftShift(Schedule schedule, ResourceOrder order) {
+		this.schedule = schedule;
+		this.order = order;
+	}
+
+	/** Compacts the schedule into an active one, see the class description. */
+	public static LeftShift compact(Schedule schedule) {
+		SolveContext.current().evaluated();
+		long t = Metrics.start();
+
+		Instance instance = schedule.pb;
+		int numTasks = instance.numTasks;
+		int numOperations = instance.numJobs * numTasks;
+
+		/* operations by increasing start time, as start * numOperations + operation */
+		long[] byStart = new long[numOperations];
+		for (int o = 0 ; o < numOperations ; o++) {
+			byStart[o] = (long) schedule.startTime(o / numTasks, o % numTasks) * numOperations + o;
+		}
+		Arrays.sort(byStart);
+
+		/* idle gaps of each machine : start -> end, the last one never ends */
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		TreeMap<Integer, Integer>[] gaps = new TreeMap[instance.numMachines];
+		for (int m = 0 ; m < instance.numMachines ; m++) {
+			gaps[m] = new TreeMap<>();
+			gaps[m].put(0, Integer.MAX_VALUE);
+		}
+
+		int[][] times = new int[instance.numJobs][numTasks];
+		for (long key : byStart) {
+			int o = (int) (key % numOperations);
+			int job = o / numTasks;
+			int task = o % numTasks;
+			int duration = instance.duration(job, task);
+			int ready = task == 0 ? 0 : times[job][task - 1] + instance.duration(job, task - 1);
+			TreeMap<Integer, Integer> machineGaps = gaps[instance.machine(job, task)];
+
+			/* the gap holding the ready date if any, then the later ones */
+			Map.Entry<Integer, Integer> gap = machineGaps.floorEntry(ready);
+			if (gap == null || gap.getValue() - ready < duration) {
+				gap = machineGaps.higherEntry(ready);
+				while (gap.getValue() - gap.getKey() < duration) {
+					gap = machineGaps.higherEntry(gap.getKey());
+				}
+			}
+
+			int start = Math.max(gap.getKey(), ready);
+			int end = start + duration;
+			machineGaps.remove(gap.getKey());
+			if (gap.getKey() < start) {
+				machineGaps.put(gap.getKey(), start);
+			}
+			if (end < gap.getValue()) {
+				machineGaps.put(end, gap.getValue());
+			}
+			times[job][task] = start;
+		}
+
+		Schedule active = new Schedule(instance, times);
+		ResourceOrder order = new ResourceOrder(instance);
+		/* the same order by start time gives each machine its sequence */
+		for (int o = 0 ; o < numOperations ; o++) {
+			byStart[o] = (long) times[o / numTasks][o % numTasks] * numOperations + o;
+		}
+		Arrays.sort(byStart);
+		for (long key : byStart) {
+			int o = (int) (key % numOperations);
+			int m = instance.machine(o / numTasks, o % numTasks);
+			order.tasksByMachine[m][order.nextFreeSlot[m]++] = new Task(o / numTasks, o % numTasks);
+		}
+
+		Metrics.stop(Metrics.Section.DECODE, t);
+		return new LeftShift(active, order);
+	}
+}
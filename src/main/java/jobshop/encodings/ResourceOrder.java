@@ -3,8 +3,9 @@ package jobshop.encodings;
 import jobshop.Encoding;
 import jobshop.Instance;
 import jobshop.Schedule;
+import jobshop.SolveContext;
+import jobshop.metrics.Metrics;
 
-import java.util.Comparator;
 import java.util.Optional;
 import java.util.stream.IntStream;
 import java.util.Arrays;
@@ -30,86 +31,177 @@ public class ResourceOrder extends Encoding {
 		nextFreeSlot = new int[instance.numMachines];
 	}
 
-	/** Creates a resource order from a schedule. */
+	/** Creates a resource order from a schedule : the tasks of each machine by start time, ties broken by job. */
 	public ResourceOrder(Schedule schedule)
 	{
 		super(schedule.pb);
 		Instance pb = schedule.pb;
 
-		this.tasksByMachine = new Task[pb.numMachines][];
-		this.nextFreeSlot = new int[instance.numMachines];
+		this.tasksByMachine = new Task[pb.numMachines][pb.numJobs];
+		this.nextFreeSlot = new int[pb.numMachines];
 
-		for(int m = 0 ; m < schedule.pb.numMachines ; m++) {
-			final int machine = m;
+		/* start * numOperations + job * numTasks + task, for the tasks of each machine */
+		int numOperations = pb.numJobs * pb.numTasks;
+		long[][] byStart = new long[pb.numMachines][pb.numJobs];
+		for (int o = 0 ; o < numOperations ; o++) {
+			int machine = pb.machine(o / pb.numTasks, o % pb.numTasks);
+			byStart[machine][nextFreeSlot[machine]++] = (long) schedule.startTime(o / pb.numTasks, o % pb.numTasks) * numOperations + o;
+		}
+		for (int m = 0 ; m < pb.numMachines ; m++) {
+			Arrays.sort(byStart[m]);
+			for (int k = 0 ; k < pb.numJobs ; k++) {
+				int o = (int) (byStart[m][k] % numOperations);
+				tasksByMachine[m][k] = new Task(o / pb.numTasks, o % pb.numTasks);
+			}
+		}
+	}
+
+	/**
+	 * A sequence of the tasks consistent with this order (a topological order of its graph),
+	 * which decodes into the same schedule, null if the order contains a cycle. Each task
+	 * is taken once both its job and machine predecessors are, in first come first served order.
+	 */
+	public JobNumbers toJobNumbers() {
+		int numJobs = instance.numJobs;
+		int numTasks = instance.numTasks;
+		JobNumbers sequence = new JobNumbers(instance);
+
+		int[] nextByJob = new int[numJobs];
+		int[] nextByMachine = new int[instance.numMachines];
+		/* jobs whose next task is schedulable, a task becomes so when the second of its predecessors is taken */
+		int[] ready = new int[numJobs];
+		int head = 0;
+		int tail = 0;
+		for (int job = 0 ; job < numJobs ; job++) {
+			if (this.isNext(job, 0, nextByMachine)) {
+				ready[tail++ % numJobs] = job;
+			}
+		}
+
+		while (head < tail) {
+			int job = ready[head++ % numJobs];
+			int task = nextByJob[job]++;
+			int machine = instance.machine(job, task);
+			nextByMachine[machine]++;
+			sequence.jobs[sequence.nextToSet++] = job;
+
+			if (task + 1 < numTasks && this.isNext(job, task + 1, nextByMachine)) {
+				ready[tail++ % numJobs] = job;
+			}
+			if (nextByMachine[machine] < this.nextFreeSlot[machine]) {
+				Task following = this.tasksByMachine[machine][nextByMachine[machine]];
+				if (following.job != job && nextByJob[following.job] == following.task) {
+					ready[tail++ % numJobs] = following.job;
+				}
+			}
+		}
 
-			// for thi machine, find all tasks that are executed on it and sort them by their start time
-			tasksByMachine[m] =
-				IntStream.range(0, pb.numJobs) // all job numbers
-				.mapToObj(j -> new Task(j, pb.task_with_machine(j, machine))) // all tasks on this machine (one per job)
-				.sorted(Comparator.comparing(t -> schedule.startTime(t.job, t.task))) // sorted by start time
-				.toArray(Task[]::new); // as new array and store in tasksByMachine
+		return sequence.nextToSet == numJobs * numTasks ? sequence : null;
+	}
 
-			// indicate that all tasks have been initialized for machine m
-			nextFreeSlot[m] = instance.numJobs;
+	/* Whether the task is the next one of its machine */
+	private boolean isNext(int job, int task, int[] nextByMachine) {
+		int machine = instance.machine(job, task);
+		if (nextByMachine[machine] >= this.nextFreeSlot[machine]) {
+			return false;
 		}
+		Task next = this.tasksByMachine[machine][nextByMachine[machine]];
+		return next.job == job && next.task == task;
 	}
 
 	@Override
-		public Schedule toSchedule() {
-			// indicate for each task that have been scheduled, its start time
-			int [][] startTimes = new int [instance.numJobs][instance.numTasks];
-
-			// for each job, how many tasks have been scheduled (0 initially)
-			int[] nextToScheduleByJob = new int[instance.numJobs];
-
-			// for each machine, how many tasks have been scheduled (0 initially)
-			int[] nextToScheduleByMachine = new int[instance.numMachines];
-
-			// for each machine, earliest time at which the machine can be used
-			int[] releaseTimeOfMachine = new int[instance.numMachines];
-
-
-			// loop while there remains a job that has unscheduled tasks
-			while(IntStream.range(0, instance.numJobs).anyMatch(m -> nextToScheduleByJob[m] < instance.numTasks)) {
-
-				// selects a task that has noun scheduled predecessor on its job and machine :
-				//  - it is the next to be schedule on a machine
-				//  - it is the next to be scheduled on its job
-				// if there is no such task, we have cyclic dependency and the solution is invalid
-				Optional<Task> schedulable =
-					IntStream.range(0, instance.numMachines) // all machines ...
-					.filter(m -> nextToScheduleByMachine[m] < instance.numJobs) // ... with unscheduled jobs
-					.mapToObj(m -> this.tasksByMachine[m][nextToScheduleByMachine[m]]) // tasks that are next to schedule on a machine ...
-					.filter(task -> task.task == nextToScheduleByJob[task.job])  // ... and on their job
-					.findFirst(); // select the first one if any
-
-				if(schedulable.isPresent()) {
-					// we found a schedulable task, lets call it t
-					Task t = schedulable.get();
-					int machine = instance.machine(t.job, t.task);
-
-					// compute the earliest start time (est) of the task
-					int est = t.task == 0 ? 0 : startTimes[t.job][t.task-1] + instance.duration(t.job, t.task-1);
-					est = Math.max(est, releaseTimeOfMachine[instance.machine(t)]);
-					startTimes[t.job][t.task] = est;
-
-					// mark the task as scheduled
-					nextToScheduleByJob[t.job]++;
-					nextToScheduleByMachine[machine]++;
-					// increase the release time of the machine
-					releaseTimeOfMachine[machine] = est + instance.duration(t.job, t.task);
-				} else {
-					// no tasks are schedulable, there is no solution for this resource ordering
-					return null;
-				}
+	public Schedule toSchedule() {
+		SolveContext.current().evaluated();
+
+		long t = Metrics.start();
+		Schedule schedule = this.decode();
+		Metrics.stop(Metrics.Section.DECODE, t);
+
+		return schedule;
+	}
+
+	/* Builds the semi-active schedule of this order, null if the order contains a cycle */
+	private Schedule decode() {
+		// indicate for each task that have been scheduled, its start time
+		int [][] startTimes = new int [instance.numJobs][instance.numTasks];
+
+		// for each job, how many tasks have been scheduled (0 initially)
+		int[] nextToScheduleByJob = new int[instance.numJobs];
+
+		// for each machine, how many tasks have been scheduled (0 initially)
+		int[] nextToScheduleByMachine = new int[instance.numMachines];
+
+		// for each machine, earliest time at which the machine can be used
+		int[] releaseTimeOfMachine = new int[instance.numMachines];
+
+
+		// loop while there remains a job that has unscheduled tasks
+		while(IntStream.range(0, instance.numJobs).anyMatch(m -> nextToScheduleByJob[m] < instance.numTasks)) {
+
+			// selects a task that has noun scheduled predecessor on its job and machine :
+			//  - it is the next to be schedule on a machine
+			//  - it is the next to be scheduled on its job
+			// if there is no such task, we have cyclic dependency and the solution is invalid
+			Optional<Task> schedulable =
+				IntStream.range(0, instance.numMachines) // all machines ...
+				.filter(m -> nextToScheduleByMachine[m] < instance.numJobs) // ... with unscheduled jobs
+				.mapToObj(m -> this.tasksByMachine[m][nextToScheduleByMachine[m]]) // tasks that are next to schedule on a machine ...
+				.filter(task -> task.task == nextToScheduleByJob[task.job])  // ... and on their job
+				.findFirst(); // select the first one if any
+
+			if(schedulable.isPresent()) {
+				// we found a schedulable task, lets call it t
+				Task t = schedulable.get();
+				int machine = instance.machine(t.job, t.task);
+
+				// compute the earliest start time (est) of the task
+				int est = t.task == 0 ? 0 : startTimes[t.job][t.task-1] + instance.duration(t.job, t.task-1);
+				est = Math.max(est, releaseTimeOfMachine[instance.machine(t)]);
+				startTimes[t.job][t.task] = est;
+
+				// mark the task as scheduled
+				nextToScheduleByJob[t.job]++;
+				nextToScheduleByMachine[machine]++;
+				// increase the release time of the machine
+				releaseTimeOfMachine[machine] = est + instance.duration(t.job, t.task);
+			} else {
+				// no tasks are schedulable, there is no solution for this resource ordering
+				return null;
 			}
-			// we exited the loop : all tasks have been scheduled successfully
-			return new Schedule(instance, startTimes);
 		}
+		// we exited the loop : all tasks have been scheduled successfully
+		return new Schedule(instance, startTimes);
+	}
+
+	/**
+	 * This order on the reversed instance (see Instance.reversed()) : every machine goes
+	 * through its tasks backwards. Both orders have the same makespan : their graphs are the
+	 * same, arcs reversed.
+	 */
+	public ResourceOrder reversed() {
+		ResourceOrder reversed = new ResourceOrder(instance.reversed());
+		for (int m = 0 ; m < instance.numMachines ; m++) {
+			int count = this.nextFreeSlot[m];
+			for (int k = 0 ; k < count ; k++) {
+				Task task = this.tasksByMachine[m][count - 1 - k];
+				reversed.tasksByMachine[m][k] = new Task(task.job, instance.numTasks - 1 - task.task);
+			}
+			reversed.nextFreeSlot[m] = count;
+		}
+		return reversed;
+	}
 
 	/** Creates an exact copy of this resource order. */
 	public ResourceOrder copy() {
-		return new ResourceOrder(this.toSchedule());
+		long t = Metrics.start();
+		ResourceOrder copy = new ResourceOrder(this.instance);
+
+		for (int m = 0; m < instance.numMachines; m++) {
+			System.arraycopy(this.tasksByMachine[m], 0, copy.tasksByMachine[m], 0, instance.numJobs);
+			copy.nextFreeSlot[m] = this.nextFreeSlot[m];
+		}
+		Metrics.stop(Metrics.Section.COPY, t);
+		return copy;
 	}
 
 	/*
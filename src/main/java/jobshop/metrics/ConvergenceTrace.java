@@ -0,0 +1,91 @@
+package jobshop.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Makespan-over-time samples of one solver run, kept in a preallocated ring buffer.
+ *
+ * Recording neither allocates nor locks : a writer claims a slot with a single
+ * atomic increment and fills the primitive arrays in place, so several threads of
+ * a parallel solver may record concurrently. When the buffer is full the oldest
+ * samples are overwritten. The samples are meant to be read once the run is over
+ * (the thread that waited for the solver sees every sample).
+ */
+public final class ConvergenceTrace {
+
+	/** Number of samples kept when no capacity is specified */
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	/** Default number of iterations between two samples (improvements are always sampled) */
+	public static final int DEFAULT_STRIDE = 100;
+
+	/** An iteration is sampled every `stride` iterations */
+	public final int stride;
+
+	private final int mask;
+	private final long[] elapsedNs;
+	private final long[] iterations;
+	private final int[] currentMakespans;
+	private final int[] bestMakespans;
+
+	/* Sequence number of the next sample */
+	private final AtomicLong next = new AtomicLong();
+
+	public ConvergenceTrace() {
+		this(DEFAULT_CAPACITY, DEFAULT_STRIDE);
+	}
+
+	/**
+	 * @param capacity	Maximum number of samples kept, rounded up to a power of two
+	 * @param stride	An iteration is sampled every `stride` iterations
+	 */
+	public ConvergenceTrace(int capacity, int stride) {
+		if (capacity < 1 || capacity > (1 << 30) || stride < 1) {
+			throw new IllegalArgumentException("capacity and stride must be positive");
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.mask = size - 1;
+		this.stride = stride;
+		this.elapsedNs = new long[size];
+		this.iterations = new long[size];
+		this.currentMakespans = new int[size];
+		this.bestMakespans = new int[size];
+	}
+
+	/** Records one sample. */
+	public void record(long elapsedNs, long iteration, int currentMakespan, int bestMakespan) {
+		int slot = (int) (next.getAndIncrement() & mask);
+		this.elapsedNs[slot] = elapsedNs;
+		this.iterations[slot] = iteration;
+		this.currentMakespans[slot] = currentMakespan;
+		this.bestMakespans[slot] = bestMakespan;
+	}
+
+	/** Number of samples currently held. */
+	public int size() {
+		return (int) Math.min(next.get(), mask + 1);
+	}
+
+	/** Number of samples that have been overwritten because the buffer was full. */
+	public long dropped() {
+		return Math.max(0, next.get() - (mask + 1));
+	}
+
+	/** Writes the samples held, oldest first, as CSV with a header line. */
+	public void writeCsv(Writer out) throws IOException {
+		long end = next.get();
+		long start = Math.max(0, end - (mask + 1));
+
+		out.write("elapsed_ns,iteration,current_makespan,best_makespan\n");
+		for (long seq = start; seq < end; seq++) {
+			int slot = (int) (seq & mask);
+			out.write(elapsedNs[slot] + "," + iterations[slot] + "," + currentMakespans[slot] + "," + bestMakespans[slot] + "\n");
+		}
+		out.flush();
+	}
+}
@@ -0,0 +1,26 @@
+package jobshop.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/** Flight recorder event emitted each time a run finds a new best makespan. */
+@Name("jobshop.Improvement")
+@Label("Improvement")
+@Category("Jobshop")
+@Description("A solver found a new best makespan")
+class ImprovementEvent extends jdk.jfr.Event {
+
+	@Label("Makespan")
+	int makespan;
+
+	@Label("Evaluations")
+	@Description("Solutions decoded by the run so far")
+	long evaluations;
+
+	@Label("Elapsed")
+	@Timespan(Timespan.NANOSECONDS)
+	long elapsedNs;
+}
@@ -0,0 +1,26 @@
+package jobshop.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Flight recorder event spanning a batch of local search iterations. */
+@Name("jobshop.IterationBatch")
+@Label("Iteration batch")
+@Category("Jobshop")
+@Description("A batch of iterations of a local search, its duration is the time spent on them")
+class IterationBatchEvent extends jdk.jfr.Event {
+
+	@Label("Solver")
+	String solver;
+
+	@Label("Iterations")
+	int iterations;
+
+	@Label("Current makespan")
+	int currentMakespan;
+
+	@Label("Best makespan")
+	int bestMakespan;
+}
@@ -0,0 +1,186 @@
+package jobshop.metrics;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Low overhead instrumentation of the solvers : event counters and timed code sections.
+ *
+ * Metrics are switched on at startup with `-Djobshop.metrics=true` (or Main's
+ * `--metrics`, which sets the property before any solver runs). The switch is a
+ * static final constant : when it is off, the JIT removes every instrumentation
+ * call site as dead code and solvers run exactly as if they were not instrumented.
+ *
+ * Counters are striped (LongAdder) so that parallel runs do not contend on them.
+ * They are global to the JVM : parallel runs add up.
+ *
+ * A timed section is measured as follows :
+ *	long t = Metrics.start();
+ *	...
+ *	Metrics.stop(Metrics.Section.DECODE, t);
+ */
+public final class Metrics {
+
+	/** Whether the instrumentation is enabled, fixed for the lifetime of the JVM. */
+	public static final boolean ENABLED = Boolean.getBoolean("jobshop.metrics");
+
+	/** Number of iterations gathered in one IterationBatchEvent */
+	static final int ITERATION_BATCH = 1000;
+
+	public enum Counter {
+		/** solutions decoded into a schedule */
+		EVALUATIONS,
+		/** neighbors whose decoding produced a schedule */
+		FEASIBLE_NEIGHBORS,
+		/** neighbors whose decoding failed (cyclic resource order, toSchedule() returned null) */
+		INFEASIBLE_NEIGHBORS,
+		/** new best makespans found by a run */
+		IMPROVEMENTS,
+		/** iterations of a local search */
+		ITERATIONS,
+		/** restarts of a search from a new initial solution */
+		RESTARTS
+	}
+
+	public enum Section {
+		/** encoding to schedule */
+		DECODE,
+		/** encoding copies */
+		COPY,
+		/** critical path and block extraction */
+		CRITICAL_PATH,
+		/** taboo list lookups and updates */
+		TABOO_BOOKKEEPING
+	}
+
+	private static final LongAdder[] counters = new LongAdder[Counter.values().length];
+	private static final LongAdder[] sectionCalls = new LongAdder[Section.values().length];
+	private static final LongAdder[] sectionNanos = new LongAdder[Section.values().length];
+	static {
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] = new LongAdder();
+		}
+		for (int i = 0; i < sectionNanos.length; i++) {
+			sectionCalls[i] = new LongAdder();
+			sectionNanos[i] = new LongAdder();
+		}
+	}
+
+	private Metrics() {}
+
+	public static void count(Counter counter) {
+		if (ENABLED) {
+			counters[counter.ordinal()].increment();
+		}
+	}
+
+	/** Start of a timed section, to be given back to stop(). */
+	public static long start() {
+		return ENABLED ? System.nanoTime() : 0;
+	}
+
+	/** End of a timed section started at `start`. */
+	public static void stop(Section section, long start) {
+		if (ENABLED) {
+			sectionNanos[section.ordinal()].add(System.nanoTime() - start);
+			sectionCalls[section.ordinal()].increment();
+		}
+	}
+
+	/** Records a new best makespan (counter and flight recorder event). */
+	public static void improvement(int makespan, long evaluations, long elapsedNs) {
+		if (ENABLED) {
+			counters[Counter.IMPROVEMENTS.ordinal()].increment();
+
+			ImprovementEvent event = new ImprovementEvent();
+			if (event.shouldCommit()) {
+				event.makespan = makespan;
+				event.evaluations = evaluations;
+				event.elapsedNs = elapsedNs;
+				event.commit();
+			}
+		}
+	}
+
+	/** Returns a new iteration counter for one run of the given solver. */
+	public static IterationBatch iterations(String solver) {
+		return new IterationBatch(solver);
+	}
+
+	public static long get(Counter counter) {
+		return counters[counter.ordinal()].sum();
+	}
+
+	public static long calls(Section section) {
+		return sectionCalls[section.ordinal()].sum();
+	}
+
+	public static long nanos(Section section) {
+		return sectionNanos[section.ordinal()].sum();
+	}
+
+	/** Zeroes every counter and section. */
+	public static void reset() {
+		for (LongAdder a : counters) {
+			a.reset();
+		}
+		for (int i = 0; i < sectionNanos.length; i++) {
+			sectionCalls[i].reset();
+			sectionNanos[i].reset();
+		}
+	}
+
+	/** Prints every counter and section. */
+	public static void report(PrintStream out) {
+		if (!ENABLED) {
+			out.println("metrics disabled (run with -Djobshop.metrics=true)");
+			return;
+		}
+		out.println("=== metrics ===");
+		for (Counter c : Counter.values()) {
+			out.printf("%-22s %14d%n", c.name().toLowerCase(), get(c));
+		}
+		for (Section s : Section.values()) {
+			long calls = calls(s);
+			out.printf("%-22s %14d calls %12.1f ms %10.1f ns/call%n", s.name().toLowerCase(),
+				calls, nanos(s) / 1e6, calls == 0 ? 0 : (double) nanos(s) / calls);
+		}
+	}
+
+	/**
+	 * Counts the iterations of one local search run and emits a flight recorder
+	 * event every ITERATION_BATCH iterations. Not thread safe : one per run.
+	 */
+	public static final class IterationBatch {
+		private final String solver;
+		private int count = 0;
+		private IterationBatchEvent event;
+
+		IterationBatch(String solver) {
+			this.solver = solver;
+		}
+
+		public void iteration(int currentMakespan, int bestMakespan) {
+			if (!ENABLED) {
+				return;
+			}
+			counters[Counter.ITERATIONS.ordinal()].increment();
+
+			if (event == null) {
+				event = new IterationBatchEvent();
+				event.begin();
+			}
+			if (++count == ITERATION_BATCH) {
+				if (event.shouldCommit()) {
+					event.solver = solver;
+					event.iterations = count;
+					event.currentMakespan = currentMakespan;
+					event.bestMakespan = bestMakespan;
+					event.commit();
+				}
+				event = null;
+				count = 0;
+			}
+		}
+	}
+}
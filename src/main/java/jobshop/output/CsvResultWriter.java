@@ -0,0 +1,36 @@
+package jobshop.output;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/** Comma separated values, with a header line. */
+public class CsvResultWriter extends ResultWriter {
+
+	static final String HEADER = "instance,size,solver,seed,runtime_ns,makespan,best,gap,cause,"
+		+ "evaluations,last_improvement_ns,last_improvement_evaluations";
+
+	CsvResultWriter(Writer out) throws IOException {
+		super(out);
+		out.write(HEADER);
+		out.write('\n');
+		out.flush();
+	}
+
+	@Override
+	protected String format(ResultRecord r) {
+		return String.join(",",
+			escape(r.instance), r.size, escape(r.solver), Long.toString(r.seed), Long.toString(r.runtimeNs),
+			Integer.toString(r.makespan), Integer.toString(r.bestKnown), String.format(Locale.ROOT, "%.3f", r.gap),
+			r.cause.name(), Long.toString(r.evaluations),
+			Long.toString(r.lastImprovementNs), Long.toString(r.lastImprovementEvaluations));
+	}
+
+	/* Quotes the field when it contains a separator, a quote or a line break (RFC 4180) */
+	private static String escape(String field) {
+		if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+			return field;
+		}
+		return '"' + field.replace("\"", "\"\"") + '"';
+	}
+}
@@ -0,0 +1,25 @@
+package jobshop.output;
+
+import jobshop.bench.Json;
+
+import java.io.Writer;
+import java.util.Locale;
+
+/** One JSON object per line (http://jsonlines.org). */
+public class JsonLinesResultWriter extends ResultWriter {
+
+	JsonLinesResultWriter(Writer out) {
+		super(out);
+	}
+
+	@Override
+	protected String format(ResultRecord r) {
+		return String.format(Locale.ROOT,
+			"{\"instance\": %s, \"size\": %s, \"solver\": %s, \"seed\": %d, \"runtime_ns\": %d, "
+			+ "\"makespan\": %d, \"best\": %d, \"gap\": %.3f, \"cause\": %s, "
+			+ "\"evaluations\": %d, \"last_improvement_ns\": %d, \"last_improvement_evaluations\": %d}",
+			Json.quote(r.instance), Json.quote(r.size), Json.quote(r.solver), r.seed, r.runtimeNs,
+			r.makespan, r.bestKnown, r.gap, Json.quote(r.cause.name()),
+			r.evaluations, r.lastImprovementNs, r.lastImprovementEvaluations);
+	}
+}
@@ -0,0 +1,41 @@
+package jobshop.output;
+
+import jobshop.Result;
+
+/** Outcome of one run of a solver on an instance, as written by a {@link ResultWriter}. */
+public final class ResultRecord {
+
+	public final String instance;
+	/** `{num-jobs}x{num-tasks}` */
+	public final String size;
+	public final String solver;
+	public final long seed;
+	public final long runtimeNs;
+	public final int makespan;
+	public final int bestKnown;
+	/** normalized distance to the best known result : 100 * (makespan - best) / best */
+	public final double gap;
+	public final Result.ExitCause cause;
+	/** number of solutions decoded during the run */
+	public final long evaluations;
+	/** elapsed nanoseconds and evaluations when the final makespan has been found, -1 if unknown */
+	public final long lastImprovementNs;
+	public final long lastImprovementEvaluations;
+
+	public ResultRecord(String instance, String size, String solver, long seed, long runtimeNs,
+			int makespan, int bestKnown, Result.ExitCause cause,
+			long evaluations, long lastImprovementNs, long lastImprovementEvaluations) {
+		this.instance = instance;
+		this.size = size;
+		this.solver = solver;
+		this.seed = seed;
+		this.runtimeNs = runtimeNs;
+		this.makespan = makespan;
+		this.bestKnown = bestKnown;
+		this.gap = 100.0 * (makespan - bestKnown) / bestKnown;
+		this.cause = cause;
+		this.evaluations = evaluations;
+		this.lastImprovementNs = lastImprovementNs;
+		this.lastImprovementEvaluations = lastImprovementEvaluations;
+	}
+}
@@ -0,0 +1,63 @@
+package jobshop.output;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streams run results to a machine-readable file, one record per line.
+ *
+ * Each record is flushed as soon as it is written so that a crashed or
+ * interrupted sweep keeps every result obtained so far. Writers may be shared
+ * by several solving threads.
+ */
+public abstract class ResultWriter implements Closeable {
+
+	/** Formats accepted by {@link #open(String, Path)} */
+	public static final String[] FORMATS = { "csv", "jsonl" };
+
+	protected final Writer out;
+
+	protected ResultWriter(Writer out) {
+		this.out = out;
+	}
+
+	/**
+	 * Creates (or truncates) the given file and returns a writer for the given format.
+	 * @param format	"csv" or "jsonl"
+	 * @param path		File the records are written to
+	 */
+	public static ResultWriter open(String format, Path path) throws IOException {
+		if (path.getParent() != null) {
+			Files.createDirectories(path.getParent());
+		}
+		BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+
+		switch (format) {
+			case "csv":	return new CsvResultWriter(writer);
+			case "jsonl":	return new JsonLinesResultWriter(writer);
+			default:
+				writer.close();
+				throw new IllegalArgumentException("Unknown output format \"" + format + "\"");
+		}
+	}
+
+	/** Writes and flushes one record. */
+	public synchronized void write(ResultRecord record) throws IOException {
+		out.write(format(record));
+		out.write('\n');
+		out.flush();
+	}
+
+	/** Returns the line (without line terminator) representing the record. */
+	protected abstract String format(ResultRecord record);
+
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1,127 @@
+package jobshop.service;
+
+import jobshop.Instance;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parsed instances, keyed by file name or by a digest of the instance text, least
+ * recently used ones being evicted once their estimated footprint exceeds `capacityBytes`.
+ */
+class InstanceCache {
+
+	private final Path instancesDirectory;
+	private final long capacityBytes;
+	private final Map<String, Instance> instances = new LinkedHashMap<>(16, 0.75f, true);
+
+	/* estimated footprint of the cached instances and of their keys */
+	private long bytes = 0;
+	private long hits = 0;
+	private long misses = 0;
+
+	InstanceCache(Path instancesDirectory, long capacityBytes) {
+		if (capacityBytes < 1) {
+			throw new IllegalArgumentException("cache capacity must be positive");
+		}
+		this.instancesDirectory = instancesDirectory;
+		this.capacityBytes = capacityBytes;
+	}
+
+	/** Returns the instance of the given file of the instances directory. */
+	Instance byName(String name) throws IOException {
+		/* only plain file names, requests must not read anything else */
+		if (name.isEmpty() || name.contains("/") || name.contains("\\") || name.startsWith(".")) {
+			throw new IllegalArgumentException("invalid instance name \"" + name + "\"");
+		}
+		String key = "name:" + name;
+		Instance instance = get(key);
+		if (instance != null) {
+			return instance;
+		}
+		/* parsed outside of the lock, two concurrent misses may both parse the file which is harmless */
+		instance = Instance.fromFile(instancesDirectory.resolve(name));
+		put(key, instance);
+		return instance;
+	}
+
+	/** Returns the instance described by the given text. */
+	Instance byText(String text) {
+		/* the text itself may be large, only its digest is kept */
+		String key = "text:" + digest(text);
+		Instance instance = get(key);
+		if (instance != null) {
+			return instance;
+		}
+		instance = Instance.fromString(text);
+		put(key, instance);
+		return instance;
+	}
+
+	private synchronized Instance get(String key) {
+		Instance instance = instances.get(key);
+		if (instance != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return instance;
+	}
+
+	private synchronized void put(String key, Instance instance) {
+		Instance previous = instances.put(key, instance);
+		if (previous != null) {
+			bytes -= footprint(key, previous);
+		}
+		bytes += footprint(key, instance);
+		/* the entry just added is kept even when it alone exceeds the capacity */
+		Iterator<Map.Entry<String, Instance>> eldest = instances.entrySet().iterator();
+		while (bytes > capacityBytes && instances.size() > 1) {
+			Map.Entry<String, Instance> entry = eldest.next();
+			bytes -= footprint(entry.getKey(), entry.getValue());
+			eldest.remove();
+		}
+	}
+
+	/* Estimated size in memory of an entry : the durations and machines tables, the key characters */
+	private static long footprint(String key, Instance instance) {
+		return 2L * instance.numJobs * (16 + 4L * instance.numTasks) + 2L * key.length() + 64;
+	}
+
+	private static String digest(String text) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder(2 * hash.length);
+			for (byte b : hash) {
+				sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			/* every Java platform provides SHA-256 */
+			throw new IllegalStateException(e);
+		}
+	}
+
+	synchronized int size() {
+		return instances.size();
+	}
+
+	/** Estimated footprint of the cached instances, in bytes. */
+	synchronized long bytes() {
+		return bytes;
+	}
+
+	synchronized long hits() {
+		return hits;
+	}
+
+	synchronized long misses() {
+		return misses;
+	}
+}
@@ -0,0 +1,86 @@
+package jobshop.service;
+
+import jobshop.Result;
+import jobshop.bench.Json;
+import jobshop.output.ResultRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/** Runs solvers on a {@link SolveServer} rather than in the current JVM. */
+public final class SolveClient {
+
+	private final URI server;
+
+	/** @param server	Base URL of the server, e.g. http://127.0.0.1:8765/ */
+	public SolveClient(URI server) {
+		this.server = server;
+	}
+
+	/**
+	 * Solves the instance file `instanceName` of the server's instances directory,
+	 * waiting for the end of the stream and ignoring the intermediate incumbents.
+	 */
+	@SuppressWarnings("unchecked")
+	public ResultRecord solve(String solverName, String instanceName, String size, int bestKnown,
+			long timeoutMs, long seed) throws IOException {
+		URI uri = server.resolve("/solve?solver=" + URLEncoder.encode(solverName, StandardCharsets.UTF_8)
+			+ "&instance=" + URLEncoder.encode(instanceName, StandardCharsets.UTF_8)
+			+ "&timeout=" + timeoutMs
+			+ "&seed=" + seed);
+
+		HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.getOutputStream().close();
+
+		if (connection.getResponseCode() != 200) {
+			throw new IOException("server answered " + connection.getResponseCode() + " : " + readAll(connection.getErrorStream()));
+		}
+
+		Map<String, Object> last = null;
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (!line.trim().isEmpty()) {
+					last = (Map<String, Object>) Json.parse(line);
+				}
+			}
+		}
+
+		if (last == null) {
+			throw new IOException("the server closed the stream without any result");
+		}
+		if ("error".equals(last.get("event"))) {
+			throw new IllegalStateException("ERROR: " + last.get("message"));
+		}
+		if (!"result".equals(last.get("event"))) {
+			throw new IOException("the server stopped before the end of the run");
+		}
+
+		return new ResultRecord(instanceName, size, solverName, seed,
+			number(last, "runtime_ns"), (int) number(last, "makespan"), bestKnown,
+			Result.ExitCause.valueOf((String) last.get("cause")),
+			number(last, "evaluations"), number(last, "last_improvement_ns"), number(last, "last_improvement_evaluations"));
+	}
+
+	private static long number(Map<String, Object> event, String key) {
+		return ((Double) event.get(key)).longValue();
+	}
+
+	private static String readAll(InputStream in) throws IOException {
+		if (in == null) {
+			return "";
+		}
+		try (InputStream stream = in) {
+			return new String(stream.readAllBytes(), StandardCharsets.UTF_8).trim();
+		}
+	}
+}
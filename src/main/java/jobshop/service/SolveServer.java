@@ -0,0 +1,305 @@
+package jobshop.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import jobshop.Instance;
+import jobshop.Main;
+import jobshop.Result;
+import jobshop.Schedule;
+import jobshop.SolveContext;
+import jobshop.Solver;
+import jobshop.bench.Json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+/**
+ * Long-running solve service, listening on the loopback interface only.
+ *
+ * Solving from a warm JVM saves the startup, instance parsing and JIT warmup every
+ * `java -jar` invocation pays, which is a large part of a one second budget.
+ *
+ *	POST /solve?solver=SOLVER&instance=NAME[&timeout=MS][&seed=SEED]
+ *		solves the instance file NAME of the instances directory, or the instance
+ *		text sent as request body when there is one (NAME is then only a label).
+ *		The response is a JSON Lines stream : one `incumbent` event per new best
+ *		schedule as soon as the solver finds it, then a final `result` (or `error`) event.
+ *	GET /status
+ *		requests running and queued, cache usage.
+ *
+ * Requests are solved concurrently on a bounded pool, those which would overflow
+ * its queue are answered with 503.
+ */
+public class SolveServer {
+
+	public static final int DEFAULT_PORT = 8765;
+
+	private static final long DEFAULT_TIMEOUT_MS = 1000;
+
+	private final HttpServer server;
+	private final ThreadPoolExecutor solvers;
+	private final ExecutorService handlers;
+	private final InstanceCache instances;
+	private final long maxTimeoutMs;
+
+	/**
+	 * @param port		Loopback port to listen on, 0 for any free one
+	 * @param threads	Maximum number of requests solved at the same time
+	 * @param queue		Maximum number of requests waiting for a thread
+	 * @param cacheBytes	Maximum estimated memory taken by the parsed instances kept
+	 * @param maxTimeoutMs	Upper bound of the solving time requests may ask for
+	 */
+	public SolveServer(int port, int threads, int queue, long cacheBytes, long maxTimeoutMs) throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.solvers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queue));
+		/* handlers only parse requests and hand them over to the solvers pool */
+		this.handlers = Executors.newFixedThreadPool(2);
+		this.instances = new InstanceCache(Paths.get("instances/"), cacheBytes);
+		this.maxTimeoutMs = maxTimeoutMs;
+
+		this.server.setExecutor(this.handlers);
+		this.server.createContext("/solve", exchange -> {
+			try {
+				handleSolve(exchange);
+			} catch (RuntimeException e) {
+				respond(exchange, 500, e.toString());
+			}
+		});
+		this.server.createContext("/status", this::handleStatus);
+	}
+
+	public void start() {
+		this.server.start();
+	}
+
+	/** Port the server listens on. */
+	public int port() {
+		return this.server.getAddress().getPort();
+	}
+
+	/** Stops accepting requests and interrupts the running ones. */
+	public void stop() {
+		this.server.stop(0);
+		this.solvers.shutdownNow();
+		this.handlers.shutdownNow();
+	}
+
+	private void handleSolve(HttpExchange exchange) throws IOException {
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			respond(exchange, 405, "use POST");
+			return;
+		}
+		Map<String, String> params = query(exchange.getRequestURI());
+		String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+
+		String solverName = params.get("solver");
+		if (solverName == null || Main.solver(solverName) == null) {
+			respond(exchange, 400, "unknown solver \"" + solverName + "\"");
+			return;
+		}
+		String instanceName = params.getOrDefault("instance", "-");
+
+		Instance instance;
+		long timeoutMs;
+		long seed;
+		try {
+			instance = body.trim().isEmpty() ? instances.byName(instanceName) : instances.byText(body);
+			timeoutMs = Math.min(Long.parseLong(params.getOrDefault("timeout", Long.toString(DEFAULT_TIMEOUT_MS))), maxTimeoutMs);
+			seed = Long.parseLong(params.getOrDefault("seed", Long.toString(SolveContext.DEFAULT_SEED)));
+		} catch (IOException | RuntimeException e) {
+			respond(exchange, 400, "invalid request : " + e.getMessage());
+			return;
+		}
+
+		try {
+			solvers.execute(() -> solve(exchange, solverName, instanceName, instance, timeoutMs, seed));
+		} catch (RejectedExecutionException e) {
+			respond(exchange, 503, "too many requests, try again later");
+		}
+	}
+
+	/* Runs on the solvers pool, streams the incumbents and the result back */
+	private void solve(HttpExchange exchange, String solverName, String instanceName, Instance instance, long timeoutMs, long seed) {
+		Solver solver = Main.solver(solverName);
+
+		try (Writer out = new OutputStreamWriter(startStream(exchange), StandardCharsets.UTF_8);
+				SolveContext context = SolveContext.open(solverName, seed, Long.MAX_VALUE)) {
+
+			context.setImprovementListener((schedule, elapsedNs) -> {
+				try {
+					out.write("{\"event\": \"incumbent\", \"elapsed_ns\": " + elapsedNs
+						+ ", \"makespan\": " + schedule.makespan() + ", \"times\": " + times(schedule) + "}\n");
+					out.flush();
+				} catch (IOException e) {
+					/* the client went away, there is no point in solving any further */
+					throw new UncheckedIOException(e);
+				}
+			});
+
+			long start = System.nanoTime();
+			Result result = solver.solve(instance, System.currentTimeMillis() + timeoutMs);
+			long runtime = System.nanoTime() - start;
+			context.setImprovementListener(null);
+
+			if (!result.schedule.isValid()) {
+				out.write("{\"event\": \"error\", \"message\": " + Json.quote("solver " + solverName + " returned an invalid schedule") + "}\n");
+			} else {
+				out.write("{\"event\": \"result\", \"solver\": " + Json.quote(solverName)
+					+ ", \"instance\": " + Json.quote(instanceName)
+					+ ", \"seed\": " + seed
+					+ ", \"cause\": " + Json.quote(result.cause.toString())
+					+ ", \"runtime_ns\": " + runtime
+					+ ", \"makespan\": " + result.schedule.makespan()
+					+ ", \"evaluations\": " + context.evaluations()
+					+ ", \"last_improvement_ns\": " + context.lastImprovementNanos()
+					+ ", \"last_improvement_evaluations\": " + context.lastImprovementEvaluations()
+					+ ", \"times\": " + times(result.schedule) + "}\n");
+			}
+		} catch (IOException | UncheckedIOException e) {
+			/* client disconnected */
+		} catch (RuntimeException e) {
+			if (disconnected(e)) {
+				/* same, thrown from a worker thread of the solver and wrapped when its result was read */
+				return;
+			}
+			System.err.println("ERROR: " + solverName + " on " + instanceName + " : " + e);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/* Whether the client going away is the cause of a solver failure */
+	private static boolean disconnected(Throwable e) {
+		for (Throwable cause = e ; cause != null ; cause = cause.getCause()) {
+			if (cause instanceof UncheckedIOException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void handleStatus(HttpExchange exchange) throws IOException {
+		respond(exchange, 200, "{\"running\": " + solvers.getActiveCount()
+			+ ", \"queued\": " + solvers.getQueue().size()
+			+ ", \"threads\": " + solvers.getMaximumPoolSize()
+			+ ", \"cached_instances\": " + instances.size()
+			+ ", \"cache_bytes\": " + instances.bytes()
+			+ ", \"cache_hits\": " + instances.hits()
+			+ ", \"cache_misses\": " + instances.misses() + "}\n");
+	}
+
+	private static OutputStream startStream(HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+		/* 0 means chunked : the length is not known until the solver is done */
+		exchange.sendResponseHeaders(200, 0);
+		return exchange.getResponseBody();
+	}
+
+	private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+		byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	/* Start times as a JSON array of arrays, times[job][task] */
+	private static String times(Schedule schedule) {
+		StringBuilder sb = new StringBuilder("[");
+		for (int job = 0 ; job < schedule.pb.numJobs ; job++) {
+			sb.append(job == 0 ? "[" : ", [");
+			for (int task = 0 ; task < schedule.pb.numTasks ; task++) {
+				if (task > 0) {
+					sb.append(", ");
+				}
+				sb.append(schedule.startTime(job, task));
+			}
+			sb.append(']');
+		}
+		return sb.append(']').toString();
+	}
+
+	private static Map<String, String> query(URI uri) {
+		Map<String, String> params = new HashMap<>();
+		String query = uri.getRawQuery();
+		if (query == null) {
+			return params;
+		}
+		for (String pair : query.split("&")) {
+			int eq = pair.indexOf('=');
+			if (eq > 0) {
+				params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+					URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+			}
+		}
+		return params;
+	}
+
+	public static void main(String[] args) {
+		ArgumentParser parser = ArgumentParsers.newFor("jobshop-server").build()
+			.defaultHelp(true)
+			.description("Solves job-shop instances sent over HTTP, from a warm JVM.");
+		parser.addArgument("--port")
+			.setDefault(DEFAULT_PORT)
+			.type(Integer.class)
+			.help("Loopback port to listen on");
+		parser.addArgument("--threads")
+			.setDefault(Runtime.getRuntime().availableProcessors())
+			.type(Integer.class)
+			.help("Maximum number of requests solved at the same time");
+		parser.addArgument("--queue")
+			.setDefault(64)
+			.type(Integer.class)
+			.help("Maximum number of requests waiting for a thread, the next ones are refused");
+		parser.addArgument("--cache-mb")
+			.setDefault(64L)
+			.type(Long.class)
+			.help("Maximum memory (in MiB) taken by the parsed instances kept");
+		parser.addArgument("--max-timeout")
+			.setDefault(600L)
+			.type(Long.class)
+			.help("Maximum solving time (in seconds) a request may ask for");
+
+		Namespace ns = null;
+		try {
+			ns = parser.parseArgs(args);
+		} catch (ArgumentParserException e) {
+			parser.handleError(e);
+			System.exit(1);
+		}
+
+		try {
+			SolveServer server = new SolveServer(ns.getInt("port"), ns.getInt("threads"), ns.getInt("queue"),
+				ns.getLong("cache_mb") << 20, ns.getLong("max_timeout") * 1000);
+			server.start();
+			System.out.println("Listening on http://127.0.0.1:" + server.port() + "/");
+		} catch (IOException e) {
+			System.err.println("ERROR: cannot start the server : " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.Result;
+import jobshop.SolveContext;
+import jobshop.Solver;
+
+import jobshop.encodings.LeftShift;
+
+/**
+ * Runs a solver, then compacts its schedule into an active one (see LeftShift) : the
+ * operations that fit in an earlier idle gap of their machine move there, the makespan
+ * can only get shorter.
+ */
+public class ActiveScheduleSolver implements Solver {
+
+	private final Solver solver;
+
+	public ActiveScheduleSolver(Solver solver) {
+		this.solver = solver;
+	}
+
+	@Override
+	public Result solve(Instance instance, long deadline) {
+		Result result = this.solver.solve(instance, deadline);
+		LeftShift compacted = LeftShift.compact(result.schedule);
+		SolveContext.current().improved(compacted.schedule);
+		return new Result(instance, compacted.schedule, result.cause);
+	}
+}
@@ -0,0 +1,350 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.Result;
+import jobshop.Schedule;
+import jobshop.SolveContext;
+import jobshop.Solver;
+
+import jobshop.encodings.ResourceOrder;
+import jobshop.encodings.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Max-min ant system (Stützle and Hoos, 2000) building resource orders the way the
+ * greedy solver does : one schedulable operation at a time, appended to the sequence of
+ * its machine.
+ *
+ * An ant draws the next operation with a probability proportional to pheromone x
+ * heuristic^BETA. The pheromone of operation o at position k of its machine says how
+ * good it was to sequence o k-th, the heuristic is the priority of the greedy binary
+ * relation (1 / duration for SPT, the remaining work for LRPT, ...). EST_* relations
+ * additionally restrict the draw to the Giffler and Thompson conflict set, the
+ * operations that could start before the earliest possible completion, on its machine.
+ *
+ * Ants of a generation run in parallel, each worker on its own buffers and each ant on
+ * its own seed : the pheromone is only read while ants build. It is then updated once
+ * per generation by the calling thread : evaporation by RHO, a deposit of
+ * 1 / makespan by the best ant of the generation (by the best solution so far every
+ * GLOBAL_PERIOD generations), and clamping to [tauMin, tauMax], which follow the best
+ * makespan. The best ant of a generation can be polished by a descent first, when no
+ * ant before was as good.
+ */
+public class AntColonySolver implements Solver {
+
+	/* Ants per generation */
+	private static final int ANTS = 16;
+
+	/* Weight of the heuristic against the pheromone, as an exponent */
+	private static final int BETA = 2;
+
+	/* Evaporation rate of the pheromone per generation */
+	private static final float RHO = 0.1f;
+
+	/* The best solution so far deposits instead of the best ant every GLOBAL_PERIOD generations */
+	private static final int GLOBAL_PERIOD = 5;
+
+	/* Probability for a converged colony to build its best solution again, which sets tauMin */
+	private static final double P_BEST = 0.05;
+
+	/* Largest pheromone matrix : beyond it, neighbouring positions on a machine share their pheromone */
+	private static final int MAX_PHEROMONE = 1 << 24;
+
+	private final GreedyBinaryRelation relation;
+	private final boolean polish;
+	private final int threads;
+
+	/**
+	 * @param relation	Heuristic guiding the ants
+	 * @param polish	Whether the best ant of each generation goes through a descent
+	 */
+	public AntColonySolver(GreedyBinaryRelation relation, boolean polish) {
+		this(relation, polish, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param relation	Heuristic guiding the ants
+	 * @param polish	Whether the best ant of each generation goes through a descent
+	 * @param threads	Number of threads building the ants of a generation
+	 */
+	public AntColonySolver(GreedyBinaryRelation relation, boolean polish, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("there must be at least 1 thread");
+		}
+		this.relation = relation;
+		this.polish = polish;
+		this.threads = threads;
+	}
+
+	@Override
+	public Result solve(Instance instance, long deadline) {
+		SolveContext context = SolveContext.current();
+		Random random = context.random();
+		BeamSearchSolver.Problem problem = new BeamSearchSolver.Problem(instance);
+
+		/* pheromone[o * slots + k * slots / numJobs] : operation o at position k of its machine ; set to tauMax by the first update */
+		int slots = Math.max(1, Math.min(problem.numJobs, MAX_PHEROMONE / problem.numOperations));
+		float[] pheromone = new float[problem.numOperations * slots];
+		Arrays.fill(pheromone, 1f);
+
+		int workers = Math.min(this.threads, ANTS);
+		Ant[] ants = new Ant[workers];
+		for (int w = 0 ; w < workers ; w++) {
+			ants[w] = new Ant(problem, this.relation, slots);
+		}
+		ExecutorService pool = workers == 1 ? null : Executors.newFixedThreadPool(workers, runnable -> {
+			Thread thread = new Thread(runnable, "ant-colony");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		int[] bestPosition = null;
+		Schedule bestSchedule = null;
+		int bestMakespan = Integer.MAX_VALUE;
+		int bestAntMakespan = Integer.MAX_VALUE;
+
+		try {
+			for (int generation = 0 ; bestSchedule == null || !context.exhausted(deadline) ; generation++) {
+				long[] seeds = new long[ANTS];
+				for (int a = 0 ; a < ANTS ; a++) {
+					seeds[a] = random.nextLong();
+				}
+				Ant ant = this.generation(ants, pheromone, seeds, pool, context);
+
+				int[] position = ant.bestPosition;
+				int makespan = ant.bestMakespan;
+				Schedule schedule = null;
+				/* a descent costs dozens of generations : only the ants better than all before are worth one */
+				if (this.polish && makespan < bestAntMakespan) {
+					bestAntMakespan = makespan;
+					Schedule polished = DescentSolver.improve(problem.schedule(ant.bestOrder), deadline);
+					if (polished.makespan() < makespan) {
+						schedule = polished;
+						makespan = polished.makespan();
+						position = positions(problem, polished);
+					}
+				}
+				context.iteration(makespan);
+
+				if (makespan < bestMakespan) {
+					bestPosition = position.clone();
+					bestSchedule = schedule != null ? schedule : problem.schedule(ant.bestOrder);
+					bestMakespan = makespan;
+					context.improved(bestSchedule);
+				}
+
+				boolean global = generation % GLOBAL_PERIOD == GLOBAL_PERIOD - 1;
+				update(problem, pheromone, slots, global ? bestPosition : position, global ? bestMakespan : makespan, bestMakespan);
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("an ant could not build its solution", e);
+		} finally {
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+		}
+
+		return new Result(instance, bestSchedule, Result.ExitCause.Timeout);
+	}
+
+	/* Builds the ants of one generation, each worker taking a contiguous share of the seeds ; returns the worker with the best ant */
+	private Ant generation(Ant[] ants, float[] pheromone, long[] seeds, ExecutorService pool, SolveContext context)
+			throws InterruptedException, ExecutionException {
+
+		if (pool == null) {
+			return build(ants[0], pheromone, seeds, 0, seeds.length, context);
+		}
+
+		int share = (seeds.length + ants.length - 1) / ants.length;
+		List<Callable<Ant>> tasks = new ArrayList<>();
+		for (int w = 0 ; w < ants.length ; w++) {
+			Ant ant = ants[w];
+			int first = Math.min(seeds.length, w * share);
+			int last = Math.min(seeds.length, first + share);
+			tasks.add(() -> build(ant, pheromone, seeds, first, last, context));
+		}
+
+		Ant best = null;
+		for (Future<Ant> future : pool.invokeAll(tasks)) {
+			Ant ant = future.get();
+			if (best == null || ant.bestMakespan < best.bestMakespan) {
+				best = ant;
+			}
+		}
+		return best;
+	}
+
+	/* The ants of the seeds first to last (excluded), on the buffers of one worker */
+	private static Ant build(Ant ant, float[] pheromone, long[] seeds, int first, int last, SolveContext context) {
+		ant.bestMakespan = Integer.MAX_VALUE;
+		for (int a = first ; a < last ; a++) {
+			ant.build(pheromone, new SplittableRandom(seeds[a]));
+			context.evaluated();
+		}
+		return ant;
+	}
+
+	/* Position of each operation on its machine */
+	private static int[] positions(BeamSearchSolver.Problem problem, Schedule schedule) {
+		ResourceOrder order = new ResourceOrder(schedule);
+		int[] position = new int[problem.numOperations];
+		for (int m = 0 ; m < problem.numMachines ; m++) {
+			for (int k = 0 ; k < problem.numJobs ; k++) {
+				Task task = order.tasksByMachine[m][k];
+				position[task.job * problem.numTasks + task.task] = k;
+			}
+		}
+		return position;
+	}
+
+	/* Evaporation, deposit of the given solution and clamping to the bounds set by the best makespan */
+	private static void update(BeamSearchSolver.Problem problem, float[] pheromone, int slots, int[] position, int makespan, int bestMakespan) {
+		float tauMax = 1f / (RHO * bestMakespan);
+		/* tauMin such that a colony converged on the best solution builds it again with probability P_BEST */
+		double root = Math.pow(P_BEST, 1.0 / problem.numOperations);
+		double choices = Math.max(2, problem.numJobs / 2.0);
+		float tauMin = (float) (tauMax * (1 - root) / ((choices - 1) * root));
+
+		for (int i = 0 ; i < pheromone.length ; i++) {
+			pheromone[i] *= 1 - RHO;
+		}
+		float deposit = 1f / makespan;
+		for (int o = 0 ; o < problem.numOperations ; o++) {
+			pheromone[o * slots + position[o] * slots / problem.numJobs] += deposit;
+		}
+		for (int i = 0 ; i < pheromone.length ; i++) {
+			pheromone[i] = Math.min(tauMax, Math.max(tauMin, pheromone[i]));
+		}
+	}
+
+	/** Construction buffers of one worker, and the best ant it built in the current generation. */
+	static final class Ant {
+		private final BeamSearchSolver.Problem problem;
+		private final boolean conflictSet;
+		private final int slots;
+		/* heuristic^BETA of each operation */
+		private final double[] desirability;
+
+		private final int[] nextTask;
+		private final int[] jobReady;
+		private final int[] machineReady;
+		private final int[] machineCount;
+		private final int[] candidates;
+		private final double[] weights;
+		private final int[] order;
+		private final int[] position;
+
+		int[] bestOrder;
+		int[] bestPosition;
+		int bestMakespan = Integer.MAX_VALUE;
+
+		Ant(BeamSearchSolver.Problem problem, GreedyBinaryRelation relation, int slots) {
+			this.problem = problem;
+			this.slots = slots;
+			this.conflictSet = relation.name().startsWith("EST_");
+			this.desirability = new double[problem.numOperations];
+			for (int job = 0 ; job < problem.numJobs ; job++) {
+				for (int task = 0 ; task < problem.numTasks ; task++) {
+					int o = job * problem.numTasks + task;
+					double heuristic;
+					switch (relation) {
+						case SPT: case EST_SPT:		heuristic = 1.0 / Math.max(1, problem.duration[o]); break;
+						case LPT: case EST_LPT:		heuristic = Math.max(1, problem.duration[o]); break;
+						case SRPT: case EST_SRPT:	heuristic = 1.0 / Math.max(1, problem.remaining(job, task)); break;
+						default:			heuristic = Math.max(1, problem.remaining(job, task)); break;
+					}
+					this.desirability[o] = Math.pow(heuristic, BETA);
+				}
+			}
+
+			this.nextTask = new int[problem.numJobs];
+			this.jobReady = new int[problem.numJobs];
+			this.machineReady = new int[problem.numMachines];
+			this.machineCount = new int[problem.numMachines];
+			this.candidates = new int[problem.numJobs];
+			this.weights = new double[problem.numJobs];
+			this.order = new int[problem.numOperations];
+			this.position = new int[problem.numOperations];
+			this.bestOrder = new int[problem.numOperations];
+			this.bestPosition = new int[problem.numOperations];
+		}
+
+		/* Builds one solution, kept if it is the best of the generation */
+		void build(float[] pheromone, SplittableRandom random) {
+			int numJobs = problem.numJobs;
+			int numTasks = problem.numTasks;
+			Arrays.fill(nextTask, 0);
+			Arrays.fill(jobReady, 0);
+			Arrays.fill(machineReady, 0);
+			Arrays.fill(machineCount, 0);
+
+			int makespan = 0;
+			for (int step = 0 ; step < problem.numOperations ; step++) {
+				/* with a conflict set, only the operations of machine m starting before the earliest completion */
+				int m = -1;
+				int earliestCompletion = Integer.MAX_VALUE;
+				if (conflictSet) {
+					for (int job = 0 ; job < numJobs ; job++) {
+						if (nextTask[job] < numTasks) {
+							int o = job * numTasks + nextTask[job];
+							int completion = Math.max(jobReady[job], machineReady[problem.machine[o]]) + problem.duration[o];
+							if (completion < earliestCompletion) {
+								earliestCompletion = completion;
+								m = problem.machine[o];
+							}
+						}
+					}
+				}
+
+				int n = 0;
+				double total = 0;
+				for (int job = 0 ; job < numJobs ; job++) {
+					if (nextTask[job] == numTasks) {
+						continue;
+					}
+					int o = job * numTasks + nextTask[job];
+					int machine = problem.machine[o];
+					if (conflictSet && (machine != m || Math.max(jobReady[job], machineReady[m]) >= earliestCompletion)) {
+						continue;
+					}
+					total += pheromone[o * slots + machineCount[machine] * slots / numJobs] * desirability[o];
+					candidates[n] = o;
+					weights[n++] = total;
+				}
+
+				/* roulette wheel on the cumulated weights */
+				double r = random.nextDouble() * total;
+				int chosen = 0;
+				while (chosen < n - 1 && weights[chosen] <= r) {
+					chosen++;
+				}
+
+				int o = candidates[chosen];
+				int job = o / numTasks;
+				int machine = problem.machine[o];
+				int end = Math.max(jobReady[job], machineReady[machine]) + problem.duration[o];
+				jobReady[job] = machineReady[machine] = end;
+				makespan = Math.max(makespan, end);
+				nextTask[job]++;
+				order[step] = o;
+				position[o] = machineCount[machine]++;
+			}
+
+			if (makespan < bestMakespan) {
+				bestMakespan = makespan;
+				System.arraycopy(order, 0, bestOrder, 0, order.length);
+				System.arraycopy(position, 0, bestPosition, 0, position.length);
+			}
+		}
+	}
+}
@@ -2,6 +2,8 @@ package jobshop.solvers;
 
 import jobshop.Instance;
 import jobshop.Result;
+import jobshop.Schedule;
+import jobshop.SolveContext;
 import jobshop.Solver;
 import jobshop.encodings.JobNumbers;
 
@@ -16,6 +18,9 @@ public class BasicSolver implements Solver {
             }
         }
 
-        return new Result(instance, sol.toSchedule(), Result.ExitCause.Blocked);
+        Schedule schedule = sol.toSchedule();
+        SolveContext.current().improved(schedule);
+
+        return new Result(instance, schedule, Result.ExitCause.Blocked);
     }
 }
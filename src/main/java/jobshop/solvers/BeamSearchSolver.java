@@ -0,0 +1,558 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.Result;
+import jobshop.Schedule;
+import jobshop.SolveContext;
+import jobshop.Solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Beam search over partial schedules : where the greedy solver commits to one dispatching
+ * choice per step, the beam keeps the best W partial schedules of each depth.
+ *
+ * A partial schedule is expanded by the operations of its Giffler and Thompson conflict
+ * set (the operations that could start before the earliest completion of a schedulable
+ * operation, on the machine of that operation), so that only active schedules are built.
+ * Only the FILTER children with the most remaining work in their job are kept, each is
+ * then completed by a greedy rollout (the same conflict sets, most remaining work first)
+ * whose makespan ranks it. Ties go to the lower bound of the child : the latest of, for
+ * each job, its end plus its remaining work and, for each machine, its availability
+ * plus its remaining work. The bound and the hash that removes children reaching the
+ * same state by different orders are both computed in constant time from the parent's.
+ *
+ * Every rollout is a complete schedule : the best one is the result, which makes the
+ * search anytime. With no given width the rollout of the empty schedule (a greedy
+ * solution) is followed by searches of width 1, 2, 4, ... as long as the duration of
+ * the last one says the next one ends before the deadline. A search still running at
+ * the deadline stops there, after the current depth.
+ */
+public class BeamSearchSolver implements Solver {
+
+	/* Largest width of the automatic widening */
+	private static final int MAX_WIDTH = 1 << 16;
+
+	/* Children kept per partial schedule, before the rollouts */
+	private static final int FILTER = 3;
+
+	/* Layers with fewer states are expanded by the calling thread */
+	private static final int PARALLEL_THRESHOLD = 8;
+
+	private final int width;
+	private final int threads;
+
+	/** Beam search whose width is tuned to the deadline. */
+	public BeamSearchSolver() {
+		this(0, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param width		Number of partial schedules kept at each depth, 0 to tune it to the deadline
+	 * @param threads	Number of threads expanding a layer
+	 */
+	public BeamSearchSolver(int width, int threads) {
+		if (width < 0 || threads < 1) {
+			throw new IllegalArgumentException("the width must be positive (or 0) and there must be at least 1 thread");
+		}
+		this.width = width;
+		this.threads = threads;
+	}
+
+	@Override
+	public Result solve(Instance instance, long deadline) {
+		SolveContext context = SolveContext.current();
+		Problem problem = new Problem(instance);
+
+		ExecutorService pool = Executors.newFixedThreadPool(this.threads, runnable -> {
+			Thread thread = new Thread(runnable, "beam-search");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		/* the greedy rollout of the empty schedule */
+		Scratch scratch = new Scratch(problem);
+		Layer.root(problem).rollout(problem, 0, -1, scratch);
+		Incumbent best = new Incumbent(problem, scratch.bestOrder, scratch.bestMakespan);
+		context.evaluated();
+		context.improved(best.schedule());
+
+		boolean aborted = false;
+		try {
+			/* the width 1 search always starts, stopping at the deadline with its best rollout so far */
+			int w = this.width > 0 ? this.width : 1;
+			long predictedNanos = 0;
+			while (System.currentTimeMillis() + predictedNanos / 1_000_000 <= deadline || this.width > 0) {
+				long start = System.nanoTime();
+				/* a fixed width search always goes to the end */
+				aborted = !this.search(problem, w, pool, this.width == 0 ? deadline : Long.MAX_VALUE, best, context);
+				context.iteration(best.makespan);
+				if (aborted || this.width > 0 || w >= MAX_WIDTH) {
+					break;
+				}
+				/* twice the width, about twice the rollouts */
+				predictedNanos = 2 * (System.nanoTime() - start);
+				w *= 2;
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("a beam layer could not be expanded", e);
+		} finally {
+			pool.shutdownNow();
+		}
+
+		return new Result(instance, best.schedule(), aborted || context.exhausted(deadline) ? Result.ExitCause.Timeout : Result.ExitCause.Blocked);
+	}
+
+	/* One beam search of the given width, improving the incumbent ; false if the deadline passed before its end */
+	private boolean search(Problem problem, int width, ExecutorService pool, long deadline, Incumbent best, SolveContext context)
+			throws InterruptedException, ExecutionException {
+
+		int[][] parents = new int[problem.numOperations][];
+		int[][] operations = new int[problem.numOperations][];
+
+		Layer layer = Layer.root(problem);
+		for (int depth = 0 ; depth < problem.numOperations ; depth++) {
+			if (System.currentTimeMillis() > deadline) {
+				return false;
+			}
+			Candidates candidates = this.expand(problem, layer, pool);
+			context.evaluated();
+
+			/* the best rollout of the layer : the operations up to its parent, then its own */
+			if (candidates.scratch.bestMakespan < best.makespan) {
+				int[] order = new int[problem.numOperations];
+				for (int d = depth - 1, state = candidates.scratch.bestParent ; d >= 0 ; d--) {
+					order[d] = operations[d][state];
+					state = parents[d][state];
+				}
+				System.arraycopy(candidates.scratch.bestOrder, depth, order, depth, problem.numOperations - depth);
+				best.update(order, candidates.scratch.bestMakespan);
+				context.improved(best.schedule());
+			}
+
+			int[] selected = candidates.select(width);
+			layer = layer.children(problem, candidates, selected);
+			parents[depth] = new int[selected.length];
+			operations[depth] = new int[selected.length];
+			for (int i = 0 ; i < selected.length ; i++) {
+				parents[depth][i] = candidates.parent[selected[i]];
+				operations[depth][i] = candidates.operation[selected[i]];
+			}
+		}
+		return true;
+	}
+
+	/* All children of the states of the layer, in parallel for large layers */
+	private Candidates expand(Problem problem, Layer layer, ExecutorService pool)
+			throws InterruptedException, ExecutionException {
+
+		if (layer.size < PARALLEL_THRESHOLD || this.threads == 1) {
+			Candidates candidates = new Candidates(problem, layer.size * FILTER);
+			for (int s = 0 ; s < layer.size ; s++) {
+				layer.expand(problem, s, candidates);
+			}
+			return candidates;
+		}
+
+		int chunk = (layer.size + this.threads - 1) / this.threads;
+		List<Callable<Candidates>> tasks = new ArrayList<>();
+		for (int from = 0 ; from < layer.size ; from += chunk) {
+			int first = from;
+			int last = Math.min(layer.size, from + chunk);
+			tasks.add(() -> {
+				Candidates candidates = new Candidates(problem, (last - first) * FILTER);
+				for (int s = first ; s < last ; s++) {
+					layer.expand(problem, s, candidates);
+				}
+				return candidates;
+			});
+		}
+		Candidates all = null;
+		for (Future<Candidates> future : pool.invokeAll(tasks)) {
+			if (all == null) {
+				all = future.get();
+			} else {
+				all.addAll(future.get());
+			}
+		}
+		return all;
+	}
+
+	/** Instance data on flat arrays, operation (job, task) being job * numTasks + task. */
+	static final class Problem {
+		final Instance instance;
+		final int numJobs;
+		final int numTasks;
+		final int numMachines;
+		final int numOperations;
+		final int[] duration;
+		final int[] machine;
+		/* remaining[job * (numTasks + 1) + task] is the work of the job from that task on */
+		final int[] remaining;
+
+		Problem(Instance instance) {
+			this.instance = instance;
+			this.numJobs = instance.numJobs;
+			this.numTasks = instance.numTasks;
+			this.numMachines = instance.numMachines;
+			this.numOperations = numJobs * numTasks;
+			this.duration = new int[numOperations];
+			this.machine = new int[numOperations];
+			this.remaining = new int[numJobs * (numTasks + 1)];
+			for (int job = 0 ; job < numJobs ; job++) {
+				for (int task = numTasks - 1 ; task >= 0 ; task--) {
+					duration[job * numTasks + task] = instance.duration(job, task);
+					machine[job * numTasks + task] = instance.machine(job, task);
+					remaining[job * (numTasks + 1) + task] = remaining[job * (numTasks + 1) + task + 1] + instance.duration(job, task);
+				}
+			}
+		}
+
+		int remaining(int job, int task) {
+			return remaining[job * (numTasks + 1) + task];
+		}
+
+		/* Semi-active schedule of the operations taken in that order */
+		Schedule schedule(int[] order) {
+			int[] jobReady = new int[numJobs];
+			int[] machineReady = new int[numMachines];
+			int[][] times = new int[numJobs][numTasks];
+			for (int o : order) {
+				int job = o / numTasks;
+				int m = machine[o];
+				int start = Math.max(jobReady[job], machineReady[m]);
+				times[job][o % numTasks] = start;
+				jobReady[job] = machineReady[m] = start + duration[o];
+			}
+			return new Schedule(instance, times);
+		}
+	}
+
+	/** Best complete schedule found, as an order of the operations. */
+	static final class Incumbent {
+		private final Problem problem;
+		private int[] order;
+		int makespan;
+
+		Incumbent(Problem problem, int[] order, int makespan) {
+			this.problem = problem;
+			this.order = order.clone();
+			this.makespan = makespan;
+		}
+
+		void update(int[] order, int makespan) {
+			this.order = order;
+			this.makespan = makespan;
+		}
+
+		Schedule schedule() {
+			return problem.schedule(order);
+		}
+	}
+
+	/** Working arrays of the rollouts of one thread, and the best rollout they made. */
+	static final class Scratch {
+		final int[] nextTask;
+		final int[] jobReady;
+		final int[] machineReady;
+		final int[] order;
+		int[] bestOrder;
+		int bestMakespan = Integer.MAX_VALUE;
+		int bestParent = -1;
+
+		Scratch(Problem problem) {
+			this.nextTask = new int[problem.numJobs];
+			this.jobReady = new int[problem.numJobs];
+			this.machineReady = new int[problem.numMachines];
+			this.order = new int[problem.numOperations];
+			this.bestOrder = new int[problem.numOperations];
+		}
+	}
+
+	/**
+	 * The states of one depth, each on slices of flat arrays : next task and ready time of
+	 * each job, ready time and remaining work of each machine.
+	 */
+	static final class Layer {
+		final int size;
+		final int depth;
+		final int[] nextTask;
+		final int[] jobReady;
+		final int[] machineReady;
+		final int[] machineRemaining;
+		final int[] bound;
+		final long[] hash;
+
+		private Layer(Problem problem, int size, int depth) {
+			this.size = size;
+			this.depth = depth;
+			this.nextTask = new int[size * problem.numJobs];
+			this.jobReady = new int[size * problem.numJobs];
+			this.machineReady = new int[size * problem.numMachines];
+			this.machineRemaining = new int[size * problem.numMachines];
+			this.bound = new int[size];
+			this.hash = new long[size];
+		}
+
+		/* The empty schedule */
+		static Layer root(Problem problem) {
+			Layer root = new Layer(problem, 1, 0);
+			for (int o = 0 ; o < problem.numOperations ; o++) {
+				root.machineRemaining[problem.machine[o]] += problem.duration[o];
+			}
+			for (int job = 0 ; job < problem.numJobs ; job++) {
+				root.bound[0] = Math.max(root.bound[0], problem.remaining(job, 0));
+				root.hash[0] += jobHash(job, 0, 0);
+			}
+			for (int m = 0 ; m < problem.numMachines ; m++) {
+				root.bound[0] = Math.max(root.bound[0], root.machineRemaining[m]);
+				root.hash[0] += machineHash(m, 0);
+			}
+			return root;
+		}
+
+		/* Adds the children of state s : the first ones of its conflict set, with their rollouts */
+		void expand(Problem problem, int s, Candidates candidates) {
+			int jobs = s * problem.numJobs;
+			int machines = s * problem.numMachines;
+
+			int[] conflict = conflictSet(problem, nextTask, jobReady, machineReady, jobs, machines);
+			int kept = Math.min(FILTER, conflict.length);
+			for (int i = 0 ; i < kept ; i++) {
+				/* partial selection sort : the most remaining work first */
+				for (int k = i + 1 ; k < conflict.length ; k++) {
+					if (priority(problem, conflict[k]) > priority(problem, conflict[i])) {
+						int tmp = conflict[i];
+						conflict[i] = conflict[k];
+						conflict[k] = tmp;
+					}
+				}
+				int o = conflict[i];
+				int job = o / problem.numTasks;
+				int task = o % problem.numTasks;
+				int m = problem.machine[o];
+				int start = Math.max(jobReady[jobs + job], machineReady[machines + m]);
+				int end = start + problem.duration[o];
+				int childBound = Math.max(bound[s], Math.max(start + problem.remaining(job, task), start + machineRemaining[machines + m]));
+				long childHash = hash[s]
+					- jobHash(job, task, jobReady[jobs + job]) + jobHash(job, task + 1, end)
+					- machineHash(m, machineReady[machines + m]) + machineHash(m, end);
+
+				int makespan = this.rollout(problem, s, o, candidates.scratch);
+				candidates.add(s, o, makespan, childBound, childHash);
+			}
+		}
+
+		/*
+		 * Completes state s, starting with operation o (or the dispatching choice if -1),
+		 * with the greedy dispatching of the conflict sets, returns the makespan. The
+		 * operations from this depth on go to scratch.order, and to scratch.bestOrder when
+		 * the rollout is the best one of the scratch.
+		 */
+		int rollout(Problem problem, int s, int o, Scratch scratch) {
+			System.arraycopy(nextTask, s * problem.numJobs, scratch.nextTask, 0, problem.numJobs);
+			System.arraycopy(jobReady, s * problem.numJobs, scratch.jobReady, 0, problem.numJobs);
+			System.arraycopy(machineReady, s * problem.numMachines, scratch.machineReady, 0, problem.numMachines);
+
+			int makespan = 0;
+			for (int d = depth ; d < problem.numOperations ; d++) {
+				if (o < 0) {
+					for (int candidate : conflictSet(problem, scratch.nextTask, scratch.jobReady, scratch.machineReady, 0, 0)) {
+						if (o < 0 || priority(problem, candidate) > priority(problem, o)) {
+							o = candidate;
+						}
+					}
+				}
+				int job = o / problem.numTasks;
+				int m = problem.machine[o];
+				int end = Math.max(scratch.jobReady[job], scratch.machineReady[m]) + problem.duration[o];
+				scratch.jobReady[job] = scratch.machineReady[m] = end;
+				scratch.nextTask[job]++;
+				makespan = Math.max(makespan, end);
+				scratch.order[d] = o;
+				o = -1;
+			}
+			/* machines may be busy until after the last operation of the rollout */
+			for (int m = 0 ; m < problem.numMachines ; m++) {
+				makespan = Math.max(makespan, scratch.machineReady[m]);
+			}
+
+			if (makespan < scratch.bestMakespan) {
+				scratch.bestMakespan = makespan;
+				scratch.bestParent = s;
+				System.arraycopy(scratch.order, depth, scratch.bestOrder, depth, problem.numOperations - depth);
+			}
+			return makespan;
+		}
+
+		/* The selected candidates as the next layer, in the same order */
+		Layer children(Problem problem, Candidates candidates, int[] selected) {
+			Layer next = new Layer(problem, selected.length, depth + 1);
+			for (int i = 0 ; i < selected.length ; i++) {
+				int c = selected[i];
+				int s = candidates.parent[c];
+				int o = candidates.operation[c];
+				System.arraycopy(nextTask, s * problem.numJobs, next.nextTask, i * problem.numJobs, problem.numJobs);
+				System.arraycopy(jobReady, s * problem.numJobs, next.jobReady, i * problem.numJobs, problem.numJobs);
+				System.arraycopy(machineReady, s * problem.numMachines, next.machineReady, i * problem.numMachines, problem.numMachines);
+				System.arraycopy(machineRemaining, s * problem.numMachines, next.machineRemaining, i * problem.numMachines, problem.numMachines);
+
+				int job = o / problem.numTasks;
+				int m = problem.machine[o];
+				int end = Math.max(jobReady[s * problem.numJobs + job], machineReady[s * problem.numMachines + m]) + problem.duration[o];
+				next.nextTask[i * problem.numJobs + job]++;
+				next.jobReady[i * problem.numJobs + job] = end;
+				next.machineReady[i * problem.numMachines + m] = end;
+				next.machineRemaining[i * problem.numMachines + m] -= problem.duration[o];
+				next.bound[i] = candidates.bound[c];
+				next.hash[i] = candidates.hash[c];
+			}
+			return next;
+		}
+
+		/* Giffler and Thompson : the operations that can start before the earliest completion, on its machine */
+		private static int[] conflictSet(Problem problem, int[] nextTask, int[] jobReady, int[] machineReady, int jobs, int machines) {
+			int earliestCompletion = Integer.MAX_VALUE;
+			int conflictMachine = -1;
+			for (int job = 0 ; job < problem.numJobs ; job++) {
+				int task = nextTask[jobs + job];
+				if (task == problem.numTasks) {
+					continue;
+				}
+				int o = job * problem.numTasks + task;
+				int m = problem.machine[o];
+				int completion = Math.max(jobReady[jobs + job], machineReady[machines + m]) + problem.duration[o];
+				if (completion < earliestCompletion) {
+					earliestCompletion = completion;
+					conflictMachine = m;
+				}
+			}
+
+			int[] conflict = new int[problem.numJobs];
+			int size = 0;
+			for (int job = 0 ; job < problem.numJobs ; job++) {
+				int task = nextTask[jobs + job];
+				if (task == problem.numTasks) {
+					continue;
+				}
+				int o = job * problem.numTasks + task;
+				int m = problem.machine[o];
+				if (m == conflictMachine && Math.max(jobReady[jobs + job], machineReady[machines + m]) < earliestCompletion) {
+					conflict[size++] = o;
+				}
+			}
+			return Arrays.copyOf(conflict, size);
+		}
+
+		/* Dispatching priority : most remaining work in the job */
+		private static int priority(Problem problem, int o) {
+			return problem.remaining(o / problem.numTasks, o % problem.numTasks);
+		}
+
+		/* State hash = sum of one hash per job and per machine, to be updated in constant time */
+		private static long jobHash(int job, int task, int ready) {
+			return mix(((long) job << 40) ^ ((long) task << 24) ^ ready);
+		}
+
+		private static long machineHash(int m, int ready) {
+			return mix(~(((long) m << 32) ^ ready));
+		}
+
+		/* SplitMix64 finalizer */
+		private static long mix(long z) {
+			z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+			z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+			return z ^ (z >>> 31);
+		}
+	}
+
+	/** Children of a layer, before selection : parent state, operation and ranking. */
+	static final class Candidates {
+		int size = 0;
+		int[] parent;
+		int[] operation;
+		int[] makespan;
+		int[] bound;
+		long[] hash;
+		final Scratch scratch;
+
+		Candidates(Problem problem, int capacity) {
+			capacity = Math.max(capacity, 4);
+			this.parent = new int[capacity];
+			this.operation = new int[capacity];
+			this.makespan = new int[capacity];
+			this.bound = new int[capacity];
+			this.hash = new long[capacity];
+			this.scratch = new Scratch(problem);
+		}
+
+		void add(int s, int o, int childMakespan, int childBound, long childHash) {
+			if (size == parent.length) {
+				this.grow(2 * size);
+			}
+			parent[size] = s;
+			operation[size] = o;
+			makespan[size] = childMakespan;
+			bound[size] = childBound;
+			hash[size] = childHash;
+			size++;
+		}
+
+		/* Appends the candidates of a later part of the layer, keeping the best rollout of both */
+		void addAll(Candidates other) {
+			if (size + other.size > parent.length) {
+				this.grow(size + other.size);
+			}
+			System.arraycopy(other.parent, 0, parent, size, other.size);
+			System.arraycopy(other.operation, 0, operation, size, other.size);
+			System.arraycopy(other.makespan, 0, makespan, size, other.size);
+			System.arraycopy(other.bound, 0, bound, size, other.size);
+			System.arraycopy(other.hash, 0, hash, size, other.size);
+			size += other.size;
+
+			if (other.scratch.bestMakespan < scratch.bestMakespan) {
+				scratch.bestMakespan = other.scratch.bestMakespan;
+				scratch.bestParent = other.scratch.bestParent;
+				scratch.bestOrder = other.scratch.bestOrder;
+			}
+		}
+
+		private void grow(int capacity) {
+			parent = Arrays.copyOf(parent, capacity);
+			operation = Arrays.copyOf(operation, capacity);
+			makespan = Arrays.copyOf(makespan, capacity);
+			bound = Arrays.copyOf(bound, capacity);
+			hash = Arrays.copyOf(hash, capacity);
+		}
+
+		/* Indices of the best distinct candidates, best first : shortest rollout, then lowest bound */
+		int[] select(int width) {
+			Integer[] order = new Integer[size];
+			for (int c = 0 ; c < size ; c++) {
+				order[c] = c;
+			}
+			Arrays.sort(order, (x, y) -> makespan[x] != makespan[y] ? Integer.compare(makespan[x], makespan[y])
+				: bound[x] != bound[y] ? Integer.compare(bound[x], bound[y])
+				: Integer.compare(x, y));
+
+			int[] selected = new int[Math.min(width, size)];
+			int count = 0;
+			Set<Long> seen = new HashSet<>();
+			for (int i = 0 ; i < size && count < selected.length ; i++) {
+				if (seen.add(hash[order[i]])) {
+					selected[count++] = order[i];
+				}
+			}
+			return Arrays.copyOf(selected, count);
+		}
+	}
+}
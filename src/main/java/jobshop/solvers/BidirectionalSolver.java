@@ -0,0 +1,111 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.Result;
+import jobshop.Schedule;
+import jobshop.SolveContext;
+import jobshop.Solver;
+
+import jobshop.encodings.ResourceOrder;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a solver on the instance and another one on the reversed instance (see
+ * Instance.reversed()), then keeps the better schedule. The reversed problem is the
+ * same problem, but greedy rules and local searches do not find the same solutions
+ * there : this is diversity for free.
+ *
+ * The schedule found on the reversed instance is mapped back, then left-justified
+ * through its resource order. Every incumbent reported on the reversed instance is
+ * mapped back as well before reaching the improvement listener of the run.
+ *
+ * When cores are available both directions run in parallel until the deadline,
+ * otherwise each one gets half of the budget. In parallel, the reversed run draws from
+ * a generator of its own, seeded from the run's generator before it starts, so that
+ * the draws of both directions do not depend on how the threads interleave.
+ */
+public class BidirectionalSolver implements Solver {
+
+	private final Solver forward;
+	private final Solver backward;
+	private final boolean parallel;
+
+	/**
+	 * @param forward	Solver run on the instance
+	 * @param backward	Solver run on the reversed instance, not the same object as forward
+	 */
+	public BidirectionalSolver(Solver forward, Solver backward) {
+		this(forward, backward, Runtime.getRuntime().availableProcessors() > 1);
+	}
+
+	/**
+	 * @param forward	Solver run on the instance
+	 * @param backward	Solver run on the reversed instance, not the same object as forward
+	 * @param parallel	Whether both directions run at the same time, each one on its own thread
+	 */
+	public BidirectionalSolver(Solver forward, Solver backward, boolean parallel) {
+		if (forward == backward) {
+			throw new IllegalArgumentException("each direction needs its own solver");
+		}
+		this.forward = forward;
+		this.backward = backward;
+		this.parallel = parallel;
+	}
+
+	@Override
+	public Result solve(Instance instance, long deadline) {
+		SolveContext context = SolveContext.current();
+
+		/* the listener only sees schedules of the instance */
+		SolveContext.ImprovementListener previous = context.improvementListener();
+		if (previous != null) {
+			context.setImprovementListener((schedule, elapsedNs) ->
+				previous.improved(schedule.pb == instance ? schedule : schedule.reversed(), elapsedNs));
+		}
+		try {
+			Result forwardResult;
+			Result backwardResult;
+			if (this.parallel) {
+				ExecutorService pool = Executors.newSingleThreadExecutor(runnable -> {
+					Thread thread = new Thread(runnable, "bidirectional");
+					thread.setDaemon(true);
+					return thread;
+				});
+				try {
+					long seed = context.random().nextLong();
+					Future<Result> backwardRun = pool.submit(() -> {
+						context.attach(seed);
+						try {
+							return this.backward.solve(instance.reversed(), deadline);
+						} finally {
+							context.close();
+						}
+					});
+					forwardResult = this.forward.solve(instance, deadline);
+					backwardResult = backwardRun.get();
+				} catch (InterruptedException | ExecutionException e) {
+					throw new IllegalStateException("the reversed run failed", e);
+				} finally {
+					pool.shutdownNow();
+				}
+			} else {
+				long now = System.currentTimeMillis();
+				forwardResult = this.forward.solve(instance, now + Math.max(0, deadline - now) / 2);
+				backwardResult = this.backward.solve(instance.reversed(), deadline);
+			}
+
+			Schedule schedule = new ResourceOrder(backwardResult.schedule.reversed()).toSchedule();
+			context.improved(schedule);
+			if (schedule.makespan() < forwardResult.schedule.makespan()) {
+				return new Result(instance, schedule, backwardResult.cause);
+			}
+			return forwardResult;
+		} finally {
+			context.setImprovementListener(previous);
+		}
+	}
+}
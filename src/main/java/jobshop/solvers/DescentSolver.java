@@ -4,38 +4,130 @@ import jobshop.Instance;
 import jobshop.Result;
 import jobshop.Solver;
 import jobshop.Schedule;
+import jobshop.SolveContext;
+import jobshop.metrics.Metrics;
 
+import jobshop.encodings.DisjunctiveGraph;
 import jobshop.encodings.ResourceOrder;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
+/**
+ * Steepest descent on the swaps of the Nowicki and Smutnicki neighbourhood, stopping
+ * at the first local optimum. Given neighbourhoods, the descent runs on the disjunctive
+ * graph instead, on the union of their moves (see Neighborhood).
+ *
+ * In iterated mode the search goes on until the deadline : each local optimum is
+ * perturbed by a kick of `strength` random moves (a swap of two adjacent operations
+ * of a critical block, or a critical operation moved anywhere on its machine), then
+ * the descent starts again from there. The new local optimum replaces the current one
+ * when it is not worse, or when it is worse by d with probability exp(-d / T), T
+ * being TEMPERATURE times the best makespan. The strength grows by one with every
+ * kick that brings nothing better than the current optimum, up to MAX_KICK, and goes
+ * back to MIN_KICK with every new best. This mode works on the disjunctive graph,
+ * each move being evaluated incrementally, its descents use N5 unless other
+ * neighbourhoods are given.
+ */
 public class DescentSolver extends NeighborExplorationSolver implements Solver {
 
+	/* Bounds of the number of random moves of a kick */
+	private static final int MIN_KICK = 2;
+	private static final int MAX_KICK = 12;
+
+	/* Worse local optima are accepted with probability exp(-delta / (TEMPERATURE * best makespan)) */
+	private static final double TEMPERATURE = 0.005;
+
+	private final boolean iterated;
+	/* null for the swaps of the resource order */
+	private final Neighborhood[] neighborhoods;
+	private final boolean allCriticalPaths;
+
 	public DescentSolver() {
 		super();
+		this.iterated = false;
+		this.neighborhoods = null;
+		this.allCriticalPaths = false;
 	}
 
 	/* The solver used to get the initial solution we will base our neighbour search on */
 	public DescentSolver(Solver initialSolver) {
+		this(initialSolver, false);
+	}
+
+	/**
+	 * @param initialSolver	The solver used to get the initial solution
+	 * @param iterated	Whether to kick each local optimum and descend again until the deadline
+	 */
+	public DescentSolver(Solver initialSolver, boolean iterated) {
+		super(initialSolver);
+		this.iterated = iterated;
+		this.neighborhoods = iterated ? new Neighborhood[] { Neighborhood.N5 } : null;
+		this.allCriticalPaths = false;
+	}
+
+	/**
+	 * @param initialSolver	The solver used to get the initial solution
+	 * @param iterated	Whether to kick each local optimum and descend again until the deadline
+	 * @param neighborhoods	Neighbourhoods whose moves the descents choose from
+	 */
+	public DescentSolver(Solver initialSolver, boolean iterated, Neighborhood... neighborhoods) {
+		this(initialSolver, iterated, false, neighborhoods);
+	}
+
+	/**
+	 * @param initialSolver	The solver used to get the initial solution
+	 * @param iterated	Whether to kick each local optimum and descend again until the deadline
+	 * @param allCriticalPaths	Whether the neighbourhoods cover the blocks of every critical path, or of one
+	 * @param neighborhoods	Neighbourhoods whose moves the descents choose from
+	 */
+	public DescentSolver(Solver initialSolver, boolean iterated, boolean allCriticalPaths, Neighborhood... neighborhoods) {
 		super(initialSolver);
+		if (neighborhoods.length == 0) {
+			throw new IllegalArgumentException("at least one neighbourhood is needed");
+		}
+		this.iterated = iterated;
+		this.neighborhoods = neighborhoods.clone();
+		this.allCriticalPaths = allCriticalPaths;
+	}
+
+	/** Descent from the given schedule, returns the local optimum reached (or where the deadline stopped it). */
+	public static Schedule improve(Schedule schedule, long deadline) {
+		Solver start = (instance, d) -> new Result(instance, schedule, Result.ExitCause.Blocked);
+		return new DescentSolver(start).solve(schedule.pb, deadline).schedule;
 	}
 
 	@Override
 	public Result solve(Instance instance, long deadline) {
+		if (this.iterated) {
+			return this.solveIterated(instance, deadline);
+		}
+		if (this.neighborhoods != null) {
+			return this.solveGraph(instance, deadline);
+		}
 
 		List<Block> blocks;
 
+		SolveContext context = SolveContext.current();
+
 		ResourceOrder bestSolution = new ResourceOrder(this.initialSolver.solve(instance, deadline).schedule);
-		int bestSolutionMakespan = bestSolution.toSchedule().makespan();
+		Schedule bestSchedule = bestSolution.toSchedule();
+		int bestSolutionMakespan = bestSchedule.makespan();
+		context.improved(bestSchedule);
 
 
 		/* stuck means we have not found any better neighbour */
 		boolean stuck = false;
 
-		while (!stuck && System.currentTimeMillis() < deadline) {
+		while (!stuck && !context.exhausted(deadline)) {
+
+			context.iteration(bestSolutionMakespan);
 
+			/* only a neighbour better than the current solution is a move */
 			ResourceOrder bestTmpSolution	= null;
-			int bestTmpSolutionMakespan	= -1;
+			Schedule bestTmpSchedule	= null;
+			int bestTmpSolutionMakespan	= bestSolutionMakespan;
 
 			stuck = true;
 
@@ -49,17 +141,17 @@ public class DescentSolver extends NeighborExplorationSolver implements Solver {
 					
 					Schedule testSchedule = test.toSchedule();	
 
-					if (testSchedule != null) {
+					if (testSchedule == null) {
+						Metrics.count(Metrics.Counter.INFEASIBLE_NEIGHBORS);
+					} else {
+						Metrics.count(Metrics.Counter.FEASIBLE_NEIGHBORS);
 						testMakespan = testSchedule.makespan();
 
-						if (bestTmpSolution == null) {
-							bestTmpSolution = test.copy();
-							bestTmpSolutionMakespan = testMakespan;
-						}
 						/* 'test' happens to be better than the current bestSolution
 						 * -> we update bestSolution and keep going */
 						if (testMakespan < bestTmpSolutionMakespan) {
 							bestTmpSolution = test.copy();
+							bestTmpSchedule = testSchedule;
 							bestTmpSolutionMakespan = testMakespan; 
 							stuck = false;
 						}
@@ -69,11 +161,108 @@ public class DescentSolver extends NeighborExplorationSolver implements Solver {
 
 			if (!stuck) {
 				bestSolution = bestTmpSolution.copy();
+				bestSchedule = bestTmpSchedule;
 				bestSolutionMakespan = bestTmpSolutionMakespan;
+				context.improved(bestSchedule);
 			}
 		}
 
-		return new Result(instance, bestSolution.toSchedule(), Result.ExitCause.Blocked);
+		return new Result(instance, bestSchedule, Result.ExitCause.Blocked);
+	}
+
+	/* Descent on the disjunctive graph */
+	private Result solveGraph(Instance instance, long deadline) {
+		SolveContext context = SolveContext.current();
+
+		DisjunctiveGraph graph = new DisjunctiveGraph(this.initialSolver.solve(instance, deadline).schedule);
+		graph.evaluate();
+		context.improved(graph.toSchedule());
+		descend(graph, this.neighborhoods, this.allCriticalPaths, new Neighborhood.Moves(), context, deadline);
+		Schedule schedule = graph.toSchedule();
+		context.improved(schedule);
+
+		return new Result(instance, schedule, Result.ExitCause.Blocked);
 	}
-}
 
+	/* Iterated local search, on the disjunctive graph */
+	private Result solveIterated(Instance instance, long deadline) {
+		SolveContext context = SolveContext.current();
+		Random random = context.random();
+		Neighborhood.Moves moves = new Neighborhood.Moves();
+
+		DisjunctiveGraph current = new DisjunctiveGraph(this.initialSolver.solve(instance, deadline).schedule);
+		current.evaluate();
+		descend(current, this.neighborhoods, this.allCriticalPaths, moves, context, deadline);
+		Schedule bestSchedule = current.toSchedule();
+		int bestMakespan = current.makespan();
+		context.improved(bestSchedule);
+
+		int strength = MIN_KICK;
+		while (!context.exhausted(deadline)) {
+			DisjunctiveGraph candidate = current.copy();
+			kick(candidate, strength, random);
+			descend(candidate, this.neighborhoods, this.allCriticalPaths, moves, context, deadline);
+
+			int delta = candidate.makespan() - current.makespan();
+			if (candidate.makespan() < bestMakespan) {
+				bestMakespan = candidate.makespan();
+				bestSchedule = candidate.toSchedule();
+				context.improved(bestSchedule);
+				strength = MIN_KICK;
+			} else if (delta >= 0) {
+				strength = Math.min(MAX_KICK, strength + 1);
+			}
+			if (delta <= 0 || random.nextDouble() < Math.exp(-delta / (TEMPERATURE * bestMakespan))) {
+				current = candidate;
+			}
+		}
+
+		return new Result(instance, bestSchedule, Result.ExitCause.Timeout);
+	}
+
+	/* Steepest descent on the moves of the neighbourhoods, the graph being evaluated */
+	private static void descend(DisjunctiveGraph graph, Neighborhood[] neighborhoods, boolean allCriticalPaths, Neighborhood.Moves moves, SolveContext context, long deadline) {
+		while (!context.exhausted(deadline)) {
+			context.iteration(graph.makespan());
+			Neighborhood.collect(graph, neighborhoods, allCriticalPaths, moves);
+
+			int best = -1;
+			int bestMakespan = graph.makespan();
+			for (int i = 0 ; i < moves.size() ; i++) {
+				int makespan = Neighborhood.evaluate(graph, moves, i);
+				if (makespan >= 0 && makespan < bestMakespan) {
+					best = i;
+					bestMakespan = makespan;
+				}
+			}
+
+			if (best < 0) {
+				return;
+			}
+			Neighborhood.apply(graph, moves, best);
+		}
+	}
+
+	/* Random moves : adjacent swaps in critical blocks or critical operations moved anywhere on their machine */
+	private static void kick(DisjunctiveGraph graph, int strength, Random random) {
+		for (int i = 0 ; i < strength ; i++) {
+			List<int[]> blocks = graph.criticalBlocks();
+			if (!blocks.isEmpty() && random.nextBoolean()) {
+				int[] block = blocks.get(random.nextInt(blocks.size()));
+				int k = block[1] + random.nextInt(block[2] - block[1]);
+				graph.move(graph.sequence[block[0]][k], k + 1);
+				continue;
+			}
+
+			int o;
+			do {
+				o = random.nextInt(graph.numOperations);
+			} while (!graph.isCritical(o));
+			int m = graph.machine(o);
+			int from = graph.position(o);
+			if (!graph.move(o, random.nextInt(graph.sequenceLength(m)))) {
+				graph.restore(o, from);
+			}
+		}
+	}
+}
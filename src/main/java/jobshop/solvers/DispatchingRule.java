@@ -0,0 +1,453 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Dispatching rule of the greedy solver, parsed from text such as "est, -rpt".
+ *
+ * A rule is a list of keys separated by commas, compared lexicographically : a pending
+ * task is preferred when its first key is lower, or equal and its second key is lower,
+ * and so on. Each key is an arithmetic expression over features of the task in the
+ * partial schedule : numbers, + - * /, unary minus, min(a, b), max(a, b) and parentheses,
+ * a division by 0 giving 0. The highest value of a feature is preferred by negating it :
+ * "est, -rpt" is EST_LRPT, "est + 2 * dur, -slack" a weighted and composite rule.
+ *
+ *  -	dur : duration of the task
+ *  -	rpt : remaining work of its job, its own duration included
+ *  -	est : earliest start of the task, its machine being taken as free once the work
+ *	dispatched on it is done
+ *  -	load : work not dispatched yet on its machine, its own duration included
+ *  -	slack : lower bound of the makespan (most loaded job or machine) minus est and rpt
+ *  -	nextload : load of the machine of the next task of its job, 0 for the last task
+ *
+ * A rule is parsed and compiled once into postfix code per key, which a single loop over
+ * a primitive stack evaluates : scoring a task allocates nothing and makes no virtual
+ * call. The keys are evaluated one at a time (see key()), a key being only needed to
+ * break the ties of the previous ones. Rules are equal when their canonical text
+ * (toString()) is.
+ */
+public final class DispatchingRule {
+
+	/** Features a rule can use, named in rules by their lower case name. */
+	public enum Feature {
+		DUR, RPT, EST, LOAD, SLACK, NEXTLOAD;
+
+		/** Name of the feature in a rule. */
+		public String label() {
+			return this.name().toLowerCase(Locale.ROOT);
+		}
+	}
+
+	/* Opcodes of the postfix code, after the features (whose opcode is their ordinal) */
+	private static final int CONSTANT = 16;
+	private static final int ADD = 17;
+	private static final int SUBTRACT = 18;
+	private static final int MULTIPLY = 19;
+	private static final int DIVIDE = 20;
+	private static final int NEGATE = 21;
+	private static final int MIN = 22;
+	private static final int MAX = 23;
+
+	private final String text;
+	/* postfix code of each key, a CONSTANT being followed by the index of its value */
+	private final int[][] code;
+	private final double[] constants;
+	/* size of the stack the code needs */
+	private final int depth;
+
+	private DispatchingRule(Node[] keys) {
+		StringBuilder text = new StringBuilder();
+		Compiler compiler = new Compiler();
+		this.code = new int[keys.length][];
+		for (int k = 0 ; k < keys.length ; k++) {
+			text.append(k == 0 ? "" : ", ").append(keys[k]);
+			this.code[k] = compiler.compile(keys[k]);
+		}
+		this.text = text.toString();
+		this.constants = compiler.constants();
+		this.depth = compiler.depth;
+	}
+
+	/**
+	 * Parses a rule.
+	 * @throws IllegalArgumentException	if the text is not a valid rule, with the position of the error
+	 */
+	public static DispatchingRule parse(String text) {
+		return new DispatchingRule(new Parser(text).rule());
+	}
+
+	/** The rule of a binary relation, see GreedyBinaryRelation.rule. */
+	public static DispatchingRule of(GreedyBinaryRelation relation) {
+		return parse(relation.rule);
+	}
+
+	/** Number of keys of the rule. */
+	public int keys() {
+		return this.code.length;
+	}
+
+	/** Value of the k-th key of the rule for the task. */
+	public double key(State state, int k, int job, int task) {
+		if (state.stack.length < this.depth) {
+			state.stack = new double[this.depth];
+		}
+		double[] stack = state.stack;
+		int[] code = this.code[k];
+		int sp = 0;
+		for (int pc = 0 ; pc < code.length ; pc++) {
+			switch (code[pc]) {
+				case CONSTANT:	stack[sp++] = this.constants[code[++pc]]; break;
+				case ADD:	sp--; stack[sp - 1] += stack[sp]; break;
+				case SUBTRACT:	sp--; stack[sp - 1] -= stack[sp]; break;
+				case MULTIPLY:	sp--; stack[sp - 1] *= stack[sp]; break;
+				case DIVIDE:	sp--; stack[sp - 1] = stack[sp] == 0 ? 0 : stack[sp - 1] / stack[sp]; break;
+				case NEGATE:	stack[sp - 1] = -stack[sp - 1]; break;
+				case MIN:	sp--; stack[sp - 1] = Math.min(stack[sp - 1], stack[sp]); break;
+				case MAX:	sp--; stack[sp - 1] = Math.max(stack[sp - 1], stack[sp]); break;
+				default:	stack[sp++] = state.feature(code[pc], job, task); break;
+			}
+		}
+		return stack[0];
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof DispatchingRule && ((DispatchingRule) o).text.equals(this.text);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.text.hashCode();
+	}
+
+	/** Canonical text of the rule, parsing it gives back an equal rule. */
+	@Override
+	public String toString() {
+		return this.text;
+	}
+
+	/**
+	 * Features of the tasks of one instance along one greedy construction : dispatched()
+	 * must be called with every task the greedy solver takes, in order.
+	 */
+	public static final class State {
+		private final Instance instance;
+		/* remaining work of each job from each task, at job * numTasks + task */
+		private final int[] remaining;
+		/* end of the last dispatched task of each job */
+		private final int[] jobReady;
+		/* work dispatched on each machine, and work left to dispatch on it */
+		private final int[] machineDispatched;
+		private final int[] machineLeft;
+		/* lower bound of the makespan : most loaded job or machine */
+		private final int lowerBound;
+		/* evaluation stack of the rules */
+		private double[] stack = new double[8];
+
+		public State(Instance instance) {
+			this.instance = instance;
+			this.remaining = new int[instance.numJobs * instance.numTasks];
+			this.jobReady = new int[instance.numJobs];
+			this.machineDispatched = new int[instance.numMachines];
+			this.machineLeft = new int[instance.numMachines];
+
+			int lowerBound = 0;
+			for (int job = 0 ; job < instance.numJobs ; job++) {
+				int work = 0;
+				for (int task = instance.numTasks - 1 ; task >= 0 ; task--) {
+					work += instance.duration(job, task);
+					this.remaining[job * instance.numTasks + task] = work;
+					this.machineLeft[instance.machine(job, task)] += instance.duration(job, task);
+				}
+				lowerBound = Math.max(lowerBound, work);
+			}
+			for (int m = 0 ; m < instance.numMachines ; m++) {
+				lowerBound = Math.max(lowerBound, this.machineLeft[m]);
+			}
+			this.lowerBound = lowerBound;
+		}
+
+		/** Earliest start of the task, its machine being taken as free once the work dispatched on it is done. */
+		public int earliestStart(int job, int task) {
+			return Math.max(this.jobReady[job], this.machineDispatched[this.instance.machine(job, task)]);
+		}
+
+		/** Records that the task, the next one of its job, has been dispatched. */
+		public void dispatched(int job, int task) {
+			int machine = this.instance.machine(job, task);
+			int duration = this.instance.duration(job, task);
+			this.jobReady[job] = this.earliestStart(job, task) + duration;
+			this.machineDispatched[machine] += duration;
+			this.machineLeft[machine] -= duration;
+		}
+
+		/** Value of the feature for the task. */
+		public double feature(Feature feature, int job, int task) {
+			return this.feature(feature.ordinal(), job, task);
+		}
+
+		private double feature(int feature, int job, int task) {
+			switch (feature) {
+				/* dur */	case 0:	return this.instance.duration(job, task);
+				/* rpt */	case 1:	return this.remaining[job * this.instance.numTasks + task];
+				/* est */	case 2:	return this.earliestStart(job, task);
+				/* load */	case 3:	return this.machineLeft[this.instance.machine(job, task)];
+				/* slack */	case 4:	return this.lowerBound - this.earliestStart(job, task) - this.remaining[job * this.instance.numTasks + task];
+				/* nextload */	case 5:	return task + 1 < this.instance.numTasks ? this.machineLeft[this.instance.machine(job, task + 1)] : 0;
+			}
+			throw new IllegalArgumentException("unknown feature " + feature);
+		}
+	}
+
+	/* Node of the syntax tree of a key : a constant, a feature (op < CONSTANT) or an operator */
+	private static final class Node {
+		final int op;
+		final double value;
+		final Node left;
+		final Node right;
+
+		Node(int op, double value, Node left, Node right) {
+			this.op = op;
+			this.value = value;
+			this.left = left;
+			this.right = right;
+		}
+
+		static Node constant(double value) {
+			return new Node(CONSTANT, value, null, null);
+		}
+
+		/* The operator applied, folded into a constant when its operands are */
+		static Node of(int op, Node left, Node right) {
+			if (left.op == CONSTANT && (right == null || right.op == CONSTANT)) {
+				double a = left.value;
+				double b = right == null ? 0 : right.value;
+				double folded = Double.NaN;
+				switch (op) {
+					case ADD:	folded = a + b; break;
+					case SUBTRACT:	folded = a - b; break;
+					case MULTIPLY:	folded = a * b; break;
+					case DIVIDE:	folded = b == 0 ? 0 : a / b; break;
+					case NEGATE:	folded = -a; break;
+					case MIN:	folded = Math.min(a, b); break;
+					case MAX:	folded = Math.max(a, b); break;
+				}
+				/* an overflow stays an operation, to print back as a rule */
+				if (Double.isFinite(folded)) {
+					return constant(folded);
+				}
+			}
+			return new Node(op, 0, left, right);
+		}
+
+		/* 0 for + and -, 1 for * and /, 2 for the rest */
+		private int precedence() {
+			switch (this.op) {
+				case ADD: case SUBTRACT:	return 0;
+				case MULTIPLY: case DIVIDE:	return 1;
+				case CONSTANT:	return this.value < 0 ? 1 : 2;
+			}
+			return 2;
+		}
+
+		@Override
+		public String toString() {
+			switch (this.op) {
+				case CONSTANT:
+					return BigDecimal.valueOf(this.value).stripTrailingZeros().toPlainString();
+				case ADD:	return this.left + " + " + this.operand(this.right, 1);
+				case SUBTRACT:	return this.left + " - " + this.operand(this.right, 1);
+				case MULTIPLY:	return this.operand(this.left, 1) + " * " + this.operand(this.right, 2);
+				case DIVIDE:	return this.operand(this.left, 1) + " / " + this.operand(this.right, 2);
+				case NEGATE:	return "-" + this.operand(this.left, 2);
+				case MIN:	return "min(" + this.left + ", " + this.right + ")";
+				case MAX:	return "max(" + this.left + ", " + this.right + ")";
+			}
+			return Feature.values()[this.op].label();
+		}
+
+		private String operand(Node node, int precedence) {
+			return node.precedence() < precedence ? "(" + node + ")" : node.toString();
+		}
+	}
+
+	/* Postfix code of the keys of a rule, sharing one table of constants */
+	private static final class Compiler {
+		private double[] constants = new double[4];
+		private int count;
+		int depth;
+
+		int[] compile(Node key) {
+			int[] code = new int[this.length(key)];
+			this.depth = Math.max(this.depth, this.emit(key, code, 0, 0)[1]);
+			return code;
+		}
+
+		double[] constants() {
+			return Arrays.copyOf(this.constants, this.count);
+		}
+
+		private int length(Node node) {
+			if (node.op == CONSTANT) {
+				return 2;
+			}
+			return 1 + (node.left == null ? 0 : this.length(node.left)) + (node.right == null ? 0 : this.length(node.right));
+		}
+
+		/* Writes the code of the node from pc with sp values on the stack, returns { next pc, stack size reached } */
+		private int[] emit(Node node, int[] code, int pc, int sp) {
+			if (node.op == CONSTANT) {
+				if (this.count == this.constants.length) {
+					this.constants = Arrays.copyOf(this.constants, 2 * this.count);
+				}
+				this.constants[this.count] = node.value;
+				code[pc] = CONSTANT;
+				code[pc + 1] = this.count++;
+				return new int[] { pc + 2, sp + 1 };
+			}
+			int reached = sp + 1;
+			if (node.left != null) {
+				int[] left = this.emit(node.left, code, pc, sp);
+				pc = left[0];
+				reached = Math.max(reached, left[1]);
+			}
+			if (node.right != null) {
+				int[] right = this.emit(node.right, code, pc, sp + 1);
+				pc = right[0];
+				reached = Math.max(reached, right[1]);
+			}
+			code[pc] = node.op;
+			return new int[] { pc + 1, reached };
+		}
+	}
+
+	/*
+	 * Recursive descent parser :
+	 *	rule	:= sum (',' sum)*
+	 *	sum	:= product (('+' | '-') product)*
+	 *	product	:= unary (('*' | '/') unary)*
+	 *	unary	:= '-' unary | number | feature | ('min' | 'max') '(' sum ',' sum ')' | '(' sum ')'
+	 */
+	private static final class Parser {
+		private final String text;
+		private int position;
+
+		Parser(String text) {
+			this.text = text;
+		}
+
+		Node[] rule() {
+			List<Node> keys = new ArrayList<>();
+			keys.add(this.sum());
+			while (this.accept(',')) {
+				keys.add(this.sum());
+			}
+			this.skipSpaces();
+			if (this.position < this.text.length()) {
+				throw this.error("expected ',' or an operator");
+			}
+			return keys.toArray(new Node[0]);
+		}
+
+		private Node sum() {
+			Node node = this.product();
+			while (true) {
+				if (this.accept('+')) {
+					node = Node.of(ADD, node, this.product());
+				} else if (this.accept('-')) {
+					node = Node.of(SUBTRACT, node, this.product());
+				} else {
+					return node;
+				}
+			}
+		}
+
+		private Node product() {
+			Node node = this.unary();
+			while (true) {
+				if (this.accept('*')) {
+					node = Node.of(MULTIPLY, node, this.unary());
+				} else if (this.accept('/')) {
+					node = Node.of(DIVIDE, node, this.unary());
+				} else {
+					return node;
+				}
+			}
+		}
+
+		private Node unary() {
+			if (this.accept('-')) {
+				return Node.of(NEGATE, this.unary(), null);
+			}
+			if (this.accept('(')) {
+				Node node = this.sum();
+				this.expect(')');
+				return node;
+			}
+			this.skipSpaces();
+			int start = this.position;
+			if (start < this.text.length() && (Character.isDigit(this.text.charAt(start)) || this.text.charAt(start) == '.')) {
+				while (this.position < this.text.length()
+						&& (Character.isDigit(this.text.charAt(this.position)) || this.text.charAt(this.position) == '.')) {
+					this.position++;
+				}
+				try {
+					return Node.constant(Double.parseDouble(this.text.substring(start, this.position)));
+				} catch (NumberFormatException e) {
+					this.position = start;
+					throw this.error("invalid number");
+				}
+			}
+			while (this.position < this.text.length() && Character.isLetter(this.text.charAt(this.position))) {
+				this.position++;
+			}
+			String word = this.text.substring(start, this.position).toLowerCase(Locale.ROOT);
+			if (word.equals("min") || word.equals("max")) {
+				this.expect('(');
+				Node left = this.sum();
+				this.expect(',');
+				Node right = this.sum();
+				this.expect(')');
+				return Node.of(word.equals("min") ? MIN : MAX, left, right);
+			}
+			for (Feature feature : Feature.values()) {
+				if (feature.label().equals(word)) {
+					return new Node(feature.ordinal(), 0, null, null);
+				}
+			}
+			this.position = start;
+			throw this.error(word.isEmpty() ? "expected a number, a feature or '('" : "unknown feature \"" + word + "\"");
+		}
+
+		private void skipSpaces() {
+			while (this.position < this.text.length() && Character.isWhitespace(this.text.charAt(this.position))) {
+				this.position++;
+			}
+		}
+
+		private boolean accept(char c) {
+			this.skipSpaces();
+			if (this.position < this.text.length() && this.text.charAt(this.position) == c) {
+				this.position++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect(char c) {
+			if (!this.accept(c)) {
+				throw this.error("expected '" + c + "'");
+			}
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException("invalid rule \"" + this.text + "\" at position " + this.position + " : " + message);
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.Schedule;
+
+import jobshop.encodings.ResourceOrder;
+import jobshop.encodings.Task;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The best solutions met by a search, kept diverse : a solution closer than
+ * minDistance to an elite (in operations sequenced at a different position on their
+ * machine) only replaces it when better, otherwise it replaces the worst elite.
+ * Safe to share between threads.
+ */
+public class ElitePool {
+
+	/** A solution of the pool. */
+	public static final class Elite {
+		public final Schedule schedule;
+		public final ResourceOrder order;
+		public final int makespan;
+		/* position[job * numTasks + task] : position of the operation on its machine */
+		final int[] position;
+
+		Elite(Schedule schedule) {
+			Instance instance = schedule.pb;
+			this.schedule = schedule;
+			this.order = new ResourceOrder(schedule);
+			this.makespan = schedule.makespan();
+			this.position = new int[instance.numJobs * instance.numTasks];
+			for (int m = 0 ; m < instance.numMachines ; m++) {
+				for (int k = 0 ; k < instance.numJobs ; k++) {
+					Task task = this.order.tasksByMachine[m][k];
+					this.position[task.job * instance.numTasks + task.task] = k;
+				}
+			}
+		}
+
+		/** Number of operations at a different position on their machine in the two solutions. */
+		public int distance(Elite other) {
+			int distance = 0;
+			for (int o = 0 ; o < this.position.length ; o++) {
+				if (this.position[o] != other.position[o]) {
+					distance++;
+				}
+			}
+			return distance;
+		}
+	}
+
+	private final int capacity;
+	private final int minDistance;
+	private final List<Elite> elites = new ArrayList<>();
+
+	/**
+	 * @param capacity	Maximum number of elites
+	 * @param minDistance	Distance under which two solutions are considered the same
+	 */
+	public ElitePool(int capacity, int minDistance) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("an elite pool holds at least 1 solution");
+		}
+		this.capacity = capacity;
+		this.minDistance = minDistance;
+	}
+
+	/** Offers a solution to the pool, returns true if it got in. */
+	public boolean offer(Schedule schedule) {
+		synchronized (this) {
+			if (this.elites.size() == this.capacity && schedule.makespan() >= this.worst().makespan) {
+				return false;
+			}
+		}
+		/* out of the lock : this decodes the schedule into a resource order */
+		Elite candidate = new Elite(schedule);
+
+		synchronized (this) {
+			Elite closest = null;
+			int closestDistance = Integer.MAX_VALUE;
+			for (Elite elite : this.elites) {
+				int distance = candidate.distance(elite);
+				if (distance < closestDistance) {
+					closest = elite;
+					closestDistance = distance;
+				}
+			}
+
+			if (closest != null && closestDistance < this.minDistance) {
+				if (candidate.makespan >= closest.makespan) {
+					return false;
+				}
+				this.elites.remove(closest);
+			} else if (this.elites.size() == this.capacity) {
+				if (candidate.makespan >= this.worst().makespan) {
+					return false;
+				}
+				this.elites.remove(this.worst());
+			}
+			this.elites.add(candidate);
+			return true;
+		}
+	}
+
+	/** The elites, best first. */
+	public synchronized List<Elite> elites() {
+		List<Elite> sorted = new ArrayList<>(this.elites);
+		sorted.sort(Comparator.comparingInt(e -> e.makespan));
+		return sorted;
+	}
+
+	/** The best elite, null if the pool is empty. */
+	public synchronized Elite best() {
+		Elite best = null;
+		for (Elite elite : this.elites) {
+			if (best == null || elite.makespan < best.makespan) {
+				best = elite;
+			}
+		}
+		return best;
+	}
+
+	public synchronized int size() {
+		return this.elites.size();
+	}
+
+	private Elite worst() {
+		Elite worst = null;
+		for (Elite elite : this.elites) {
+			if (worst == null || elite.makespan > worst.makespan) {
+				worst = elite;
+			}
+		}
+		return worst;
+	}
+}
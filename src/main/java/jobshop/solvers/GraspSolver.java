@@ -0,0 +1,211 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.Result;
+import jobshop.Schedule;
+import jobshop.SolveContext;
+import jobshop.Solver;
+import jobshop.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Greedy randomized adaptive search procedure : randomized greedy starts, each one
+ * improved by a descent, until the deadline.
+ *
+ * A start is built like the greedy solver builds its solution, except that the next
+ * operation is drawn uniformly from a restricted candidate list : the schedulable
+ * operations whose priority is within alpha of the best one, on the range between the
+ * best and the worst (alpha = 0 is the greedy solver, alpha = 1 a random one). For
+ * EST_* relations the priority is the earliest start time, ties broken by the second
+ * criterion.
+ *
+ * Workers build and improve starts in parallel, each from its own seed. The improved
+ * starts are offered to an elite pool that keeps them diverse, see elites().
+ */
+public class GraspSolver implements Solver {
+
+	/** Default width of the restricted candidate list */
+	public static final double DEFAULT_ALPHA = 0.1;
+
+	/* Size of the elite pool */
+	private static final int ELITES = 10;
+
+	/* Solutions differing by fewer than that fraction of operations are the same for the elite pool */
+	private static final double MIN_DIVERSITY = 0.05;
+
+	private final GreedyBinaryRelation relation;
+	private final double alpha;
+	private final int threads;
+
+	/* elites of the last solve() */
+	private volatile ElitePool elites;
+
+	public GraspSolver(GreedyBinaryRelation relation) {
+		this(relation, DEFAULT_ALPHA, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param relation	Priority of the greedy starts
+	 * @param alpha		Width of the restricted candidate list, in [0, 1]
+	 * @param threads	Number of starts built and improved in parallel
+	 */
+	public GraspSolver(GreedyBinaryRelation relation, double alpha, int threads) {
+		if (alpha < 0 || alpha > 1 || threads < 1) {
+			throw new IllegalArgumentException("alpha must be in [0, 1] and there must be at least 1 thread");
+		}
+		this.relation = relation;
+		this.alpha = alpha;
+		this.threads = threads;
+	}
+
+	/** The elite pool of the last solve(), null before the first one. */
+	public ElitePool elites() {
+		return this.elites;
+	}
+
+	@Override
+	public Result solve(Instance instance, long deadline) {
+		SolveContext context = SolveContext.current();
+		Random random = context.random();
+		BeamSearchSolver.Problem problem = new BeamSearchSolver.Problem(instance);
+		ElitePool elites = new ElitePool(ELITES, (int) Math.ceil(MIN_DIVERSITY * problem.numOperations));
+		this.elites = elites;
+
+		ExecutorService pool = Executors.newFixedThreadPool(this.threads, runnable -> {
+			Thread thread = new Thread(runnable, "grasp");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		List<Callable<Void>> workers = new ArrayList<>();
+		for (int w = 0 ; w < this.threads ; w++) {
+			Start start = new Start(problem, this.relation, this.alpha, new SplittableRandom(random.nextLong()));
+			workers.add(() -> {
+				context.attach();
+				try {
+					/* at least one start, whatever the deadline */
+					do {
+						Metrics.count(Metrics.Counter.RESTARTS);
+						Schedule schedule = DescentSolver.improve(start.build(), deadline);
+						context.improved(schedule);
+						elites.offer(schedule);
+					} while (!context.exhausted(deadline));
+					return null;
+				} finally {
+					context.close();
+				}
+			});
+		}
+
+		try {
+			for (Future<Void> future : pool.invokeAll(workers)) {
+				future.get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("a GRASP worker failed", e);
+		} finally {
+			pool.shutdownNow();
+		}
+
+		return new Result(instance, elites.best().schedule, Result.ExitCause.Timeout);
+	}
+
+	/** Construction buffers and random generator of one worker. */
+	static final class Start {
+		private final BeamSearchSolver.Problem problem;
+		private final GreedyBinaryRelation relation;
+		private final double alpha;
+		private final SplittableRandom random;
+		/* EST_* priorities are start * scale + second criterion */
+		private final long scale;
+
+		private final int[] nextTask;
+		private final int[] jobReady;
+		private final int[] machineReady;
+		private final long[] priority;
+		private final int[] candidates;
+		private final int[] order;
+
+		Start(BeamSearchSolver.Problem problem, GreedyBinaryRelation relation, double alpha, SplittableRandom random) {
+			this.problem = problem;
+			this.relation = relation;
+			this.alpha = alpha;
+			this.random = random;
+			this.scale = Arrays.stream(problem.remaining).max().getAsInt() + 1L;
+			this.nextTask = new int[problem.numJobs];
+			this.jobReady = new int[problem.numJobs];
+			this.machineReady = new int[problem.numMachines];
+			this.priority = new long[problem.numJobs];
+			this.candidates = new int[problem.numJobs];
+			this.order = new int[problem.numOperations];
+		}
+
+		/* One randomized greedy schedule */
+		Schedule build() {
+			int numJobs = problem.numJobs;
+			int numTasks = problem.numTasks;
+			Arrays.fill(nextTask, 0);
+			Arrays.fill(jobReady, 0);
+			Arrays.fill(machineReady, 0);
+
+			for (int step = 0 ; step < problem.numOperations ; step++) {
+				long best = Long.MAX_VALUE;
+				long worst = Long.MIN_VALUE;
+				for (int job = 0 ; job < numJobs ; job++) {
+					if (nextTask[job] < numTasks) {
+						priority[job] = this.priority(job, nextTask[job]);
+						best = Math.min(best, priority[job]);
+						worst = Math.max(worst, priority[job]);
+					}
+				}
+
+				/* restricted candidate list : uniform draw among the priorities up to best + alpha (worst - best) */
+				long threshold = best + (long) Math.floor(alpha * (worst - best));
+				int n = 0;
+				for (int job = 0 ; job < numJobs ; job++) {
+					if (nextTask[job] < numTasks && priority[job] <= threshold) {
+						candidates[n++] = job;
+					}
+				}
+				int job = candidates[random.nextInt(n)];
+
+				int o = job * numTasks + nextTask[job];
+				int machine = problem.machine[o];
+				jobReady[job] = machineReady[machine] = Math.max(jobReady[job], machineReady[machine]) + problem.duration[o];
+				nextTask[job]++;
+				order[step] = o;
+			}
+
+			SolveContext.current().evaluated();
+			return problem.schedule(order);
+		}
+
+		/* Priority of the task in the relation, the lower the better */
+		private long priority(int job, int task) {
+			int o = job * problem.numTasks + task;
+			long criterion;
+			switch (relation) {
+				case SPT: case EST_SPT:		criterion = problem.duration[o]; break;
+				case LPT: case EST_LPT:		criterion = scale - 1 - problem.duration[o]; break;
+				case SRPT: case EST_SRPT:	criterion = problem.remaining(job, task); break;
+				default:			criterion = scale - 1 - problem.remaining(job, task); break;
+			}
+			switch (relation) {
+				case EST_SPT: case EST_LPT: case EST_SRPT: case EST_LRPT:
+					return Math.max(jobReady[job], machineReady[problem.machine[o]]) * scale + criterion;
+				default:
+					return criterion;
+			}
+		}
+	}
+}
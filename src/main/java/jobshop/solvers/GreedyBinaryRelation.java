@@ -1,16 +1,23 @@
 package jobshop.solvers;
 
+/** The predefined priorities of the greedy solver, each one a dispatching rule (see DispatchingRule). */
 public enum GreedyBinaryRelation {
-	SPT,
-	LPT,
+	SPT("dur"),
+	LPT("-dur"),
 
-	SRPT,
-	LRPT,
+	SRPT("rpt"),
+	LRPT("-rpt"),
 
-	EST_SPT,
-	EST_LPT,
+	EST_SPT("est, dur"),
+	EST_LPT("est, -dur"),
 
-	EST_SRPT,
-	EST_LRPT
-}
+	EST_SRPT("est, rpt"),
+	EST_LRPT("est, -rpt");
+
+	/** Text of the dispatching rule of the relation. */
+	public final String rule;
 
+	GreedyBinaryRelation(String rule) {
+		this.rule = rule;
+	}
+}
@@ -2,22 +2,21 @@ package jobshop.solvers;
 
 import jobshop.Instance;
 import jobshop.Result;
+import jobshop.Schedule;
 import jobshop.Solver;
+import jobshop.SolveContext;
 
 import jobshop.encodings.ResourceOrder;
 import jobshop.encodings.Task;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.function.BiFunction;
 import java.util.Random;
 
-import java.lang.Integer;
-import java.lang.Boolean;
-
 /** 
- * Greedy solver implementing SPT, LPT, SRPT and LRPT and EST_* prioritizing methods,
- * a randomness implementation for each of these binary relations can be enabled too.
+ * Greedy solver dispatching, among the tasks whose job predecessor is dispatched, the
+ * first one in the order of a dispatching rule : one of the SPT, LPT, SRPT, LRPT and
+ * EST_* binary relations, or any rule written in the language of DispatchingRule.
+ * A randomness implementation for each of these rules can be enabled too.
  */
 public class GreedySolver implements Solver {
 
@@ -25,24 +24,15 @@ public class GreedySolver implements Solver {
 	/* General parameters */
 
 	private Instance instance;
-	/* The date at which each machine (resource) is available */
-	private int[] machineAvailabilityDate;
-	/* The date at which each task is going to start */
-	private int[][] taskStartingDate;
-	/* Needed for XRPT binary relations */
-	private int[][] remainingProcessingTimes;
 	/* All the currently pending operations (tasks), updated at each loop of the greedy algorithm */
 	private ArrayList<Task> pendingOperations;
-	/* The binary relation which defines how the operations (tasks)
-	 * will be sorted and prioritized */
-	private GreedyBinaryRelation gbr;	
-	/* The function which translates the chosen binary relation.
-	 * Used when sorting pending tasks in order to find the optimal one.
-	 * This function actually contains the binary relation and should tell us
-	 * whether the the first argument (currently analyzed task) is better than
-	 * the second argument (the current optimal task).
-	 * Therefore it takes two tasks, and return a boolean */
-	private BiFunction<Task, Task, Boolean> compareTwoTasks;
+	/* The rule which defines how the operations (tasks) will be sorted and prioritized :
+	 * a task is better than the current optimal one when its keys come strictly before */
+	private final DispatchingRule rule;
+	/* Features of the tasks in the partial solution, read by the rule */
+	private DispatchingRule.State state;
+	/* Keys of the current optimal task, only the first ones being known (see getOptimalTask()) */
+	private double[] optimumKeys;
 
 
 	/* Randomness-enabled-only parameters */
@@ -61,7 +51,7 @@ public class GreedySolver implements Solver {
 	 * @return	A new instance of GreedySolver
 	 * @see		jobshop.solvers.GreedyBinaryRelation
 	 */
-	public GreedySolver(GreedyBinaryRelation gbr) { this.gbr = gbr; }
+	public GreedySolver(GreedyBinaryRelation gbr) { this(DispatchingRule.of(gbr)); }
 
 	/**
 	 * Instantiate a Greedy Solver.
@@ -74,119 +64,49 @@ public class GreedySolver implements Solver {
 	 * @see				jobshop.solvers.GreedyBinaryRelation
 	 */
 	public GreedySolver(GreedyBinaryRelation gbr, int randomnessLevel) {
-		this.gbr = gbr;
+		this(DispatchingRule.of(gbr), randomnessLevel);
+	}
+
+	/**
+	 * Instantiate a Greedy Solver.
+	 * @param rule	The dispatching rule which defines how the operations (tasks)
+	 *		will be sorted and prioritized
+	 * @see		jobshop.solvers.DispatchingRule
+	 */
+	public GreedySolver(DispatchingRule rule) { this.rule = rule; }
+
+	/**
+	 * Instantiate a Greedy Solver.
+	 * @param rule			The dispatching rule which defines how the operations (tasks)
+	 *				will be sorted and prioritized
+	 * @param randomnessLevel	Same as for GreedySolver(GreedyBinaryRelation, int)
+	 * @see				jobshop.solvers.DispatchingRule
+	 */
+	public GreedySolver(DispatchingRule rule, int randomnessLevel) {
+		this.rule = rule;
 		this.randomnessLevel	= randomnessLevel;
 		this.randomness 	= (this.randomnessLevel > 0 ? true : false);
 	}
 
+	/** The dispatching rule of this solver. */
+	public DispatchingRule rule() {
+		return this.rule;
+	}
+
 	/*
 	 * Initialize the basic elements arrays, should be called inside this.solve(Instance) function,
 	 * since it is the starting point at which we know the instance which we will work on
 	 */
 	private void init(Instance instance) {
 		this.instance = instance;
-
-		if (this.gbr == GreedyBinaryRelation.EST_SPT
-			|| this.gbr == GreedyBinaryRelation.EST_LPT
-			|| this.gbr == GreedyBinaryRelation.EST_SRPT
-			|| this.gbr == GreedyBinaryRelation.EST_LRPT) {
-
-			this.machineAvailabilityDate = new int[this.instance.numMachines];
-			Arrays.fill(this.machineAvailabilityDate, 0);
-
-			this.taskStartingDate = new int[this.instance.numJobs][this.instance.numTasks];
-		}
-
-		/* XRPT binary relations look for the remaining processing time of each task */
-		if (this.gbr == GreedyBinaryRelation.SRPT
-			|| this.gbr == GreedyBinaryRelation.LRPT
-			|| this.gbr == GreedyBinaryRelation.EST_SRPT
-			|| this.gbr == GreedyBinaryRelation.EST_LRPT) {
-
-			this.remainingProcessingTimes = new int[this.instance.numJobs][this.instance.numTasks];
-			/* The remaining processing time of one task is basically the sum of the duration of 
-			 * the remaining tasks of the same job */
-			for (int job = 0; job < this.instance.numJobs; job++) {
-				this.remainingProcessingTimes[job][this.instance.numTasks - 1] = this.instance.duration(job, this.instance.numTasks - 1);
-				//this.remainingProcessingTimes[job][this.instance.numTasks - 1] = 0;
-				for (int task = this.instance.numTasks - 2; task >= 0; task--) {
-					this.remainingProcessingTimes[job][task] = this.remainingProcessingTimes[job][task + 1] + this.instance.duration(job, task);
-					//this.remainingProcessingTimes[job][task] = this.remainingProcessingTimes[job][task + 1] + this.instance.duration(job, task + 1);
-				}
-			}
-		}
+		this.state = new DispatchingRule.State(instance);
+		this.optimumKeys = new double[this.rule.keys()];
 
 		this.pendingOperations = new ArrayList<Task>();
 		/* Initially only the first task of each job can be started */
 		for (int job = 0; job < this.instance.numJobs; job++) {
 			this.pendingOperations.add(new Task(job, 0));	
 		}
-
-		/* Setting the binary relation comparison function used when sorting the pending tasks */
-		switch (this.gbr) {
-			case SPT: 
-				this.compareTwoTasks = (Task current, Task optimum)
-					-> new Boolean(this.instance.duration(current) < this.instance.duration(optimum));
-				break;
-			case LPT: 
-				this.compareTwoTasks = (Task current, Task optimum)
-					-> new Boolean(this.instance.duration(current) > this.instance.duration(optimum));
-				break;
-			case SRPT: 
-				this.compareTwoTasks = (Task current, Task optimum)
-					-> new Boolean(this.remainingProcessingTimes[current.job][current.task] < this.remainingProcessingTimes[optimum.job][optimum.task]);
-				break;
-			case LRPT: 
-				this.compareTwoTasks = (Task current, Task optimum)
-					-> new Boolean(this.remainingProcessingTimes[current.job][current.task] > this.remainingProcessingTimes[optimum.job][optimum.task]);
-				break;
-
-			case EST_SPT: 
-				this.compareTwoTasks = (Task current, Task optimum)
-					->
-					{ 
-						int cest = this.getEarliestStartingTime(current);
-						int oest = this.getEarliestStartingTime(optimum);
-
-						return new Boolean((cest < oest) || (cest == oest && this.instance.duration(current) < this.instance.duration(optimum)));
-					};
-				break;
-			case EST_LPT: 
-				this.compareTwoTasks = (Task current, Task optimum)
-					->
-					{ 
-						int cest = this.getEarliestStartingTime(current);
-						int oest = this.getEarliestStartingTime(optimum);
-
-						return new Boolean((cest < oest) || (cest == oest && this.instance.duration(current) > this.instance.duration(optimum)));
-					};
-				break;
-			case EST_SRPT:
-				this.compareTwoTasks = (Task current, Task optimum)
-					-> 
-					{ 
-						int cest = this.getEarliestStartingTime(current);
-						int oest = this.getEarliestStartingTime(optimum);
-
-						return new Boolean((cest < oest) || (cest == oest && this.remainingProcessingTimes[current.job][current.task] < this.remainingProcessingTimes[optimum.job][optimum.task]));
-					};
-				break;
-			case EST_LRPT:
-				this.compareTwoTasks = (Task current, Task optimum)
-					-> 
-					{ 
-						int cest = this.getEarliestStartingTime(current);
-						int oest = this.getEarliestStartingTime(optimum);
-
-						return new Boolean((cest < oest) || (cest == oest && this.remainingProcessingTimes[current.job][current.task] > this.remainingProcessingTimes[optimum.job][optimum.task]));
-					};
-				break;
-			/* Should never happen */
-			default:
-				System.err.println("ERROR: Binary relation '" + this.gbr + "' not recognized");
-				System.exit(1);
-				break;
-		}
 	}
 
 	/**
@@ -211,21 +131,16 @@ public class GreedySolver implements Solver {
 			/* feed our resource ordered solution with the newly found optimal task */
 			sol.tasksByMachine[op_machine][sol.nextFreeSlot[op_machine]++] = op;
 
-			/* Any EST_* binary relations related processing need to keep track of 
-			 * the starting date of each task and the date at which each machine is available */
-			if (this.gbr == GreedyBinaryRelation.EST_SPT
-				|| this.gbr == GreedyBinaryRelation.EST_LPT
-				|| this.gbr == GreedyBinaryRelation.EST_SRPT
-				|| this.gbr == GreedyBinaryRelation.EST_LRPT) {
-
-				this.taskStartingDate[op.job][op.task] = this.getEarliestStartingTime(op);
-				this.machineAvailabilityDate[op_machine] += this.instance.duration(op);
-			}
+			/* The features of the rule follow the partial solution : start dates, machine loads, ... */
+			this.state.dispatched(op.job, op.task);
 			/* Update the pending operations table by removing the chosen task */
 			this.updatePendingOperations(op);
 		}
 
-		return new Result(instance, sol.toSchedule(), Result.ExitCause.Blocked);
+		Schedule schedule = sol.toSchedule();
+		SolveContext.current().improved(schedule);
+
+		return new Result(instance, schedule, Result.ExitCause.Blocked);
 	}
 
 	/*
@@ -243,9 +158,9 @@ public class GreedySolver implements Solver {
 	}
 
 	/*
-	 * Sorting depends on the chosen Greedy Binary Relation.
+	 * Sorting depends on the chosen dispatching rule.
 	 * @param arr	Task array to be sorted
-	 * @return	The best task sorted according to the comparisonFunction binary relation
+	 * @return	The best task sorted according to the rule, the first one among equals
 	 */
 	private Task getOptimalTask(ArrayList<Task> arr) {
 		ArrayList<Task> arg;
@@ -255,40 +170,45 @@ public class GreedySolver implements Solver {
 		 *	from the array 'arr'. 
 		 * -	Otherwise we do not apply any random operations */
 		if (this.randomness) {
+			/* Draw from the run's seed so that randomized runs can be replayed */
+			Random random = SolveContext.current().random();
+
 			if (this.randomnessLevel == 1) {
-				return arr.get(new Random().nextInt(arr.size()));
+				return arr.get(random.nextInt(arr.size()));
 			} 
 
 			/* Make a shallow copy of arr to be able to modify it */
 			arg = new ArrayList<Task>(arr);
 			for (int i = 0; i < (arr.size() / this.randomnessLevel); i++) {
-				arg.remove(new Random().nextInt(arg.size()));
+				arg.remove(random.nextInt(arg.size()));
 			}
 
 		} else { arg = arr; }
 
 		Task optimum = arg.get(0);
+		/* the keys of a task are only evaluated as far as needed to break ties */
+		int known = 0;
 
 		for (int j = 1; j < arg.size(); j++) {
 			Task currentTask = arg.get(j);
 
-			if (this.compareTwoTasks.apply(currentTask, optimum).booleanValue()) {
-				optimum = arg.get(j);
-			}	
+			for (int k = 0; k < this.optimumKeys.length; k++) {
+				if (k == known) {
+					this.optimumKeys[known++] = this.rule.key(this.state, k, optimum.job, optimum.task);
+				}
+				double key = this.rule.key(this.state, k, currentTask.job, currentTask.task);
+				if (key != this.optimumKeys[k]) {
+					if (key < this.optimumKeys[k]) {
+						/* the keys before k are the same */
+						optimum = currentTask;
+						this.optimumKeys[k] = key;
+						known = k + 1;
+					}
+					break;
+				}
+			}
 		}
 
 		return optimum;
 	}
-
-	/*
-	 * Only for EST_* binary relations
-	 * @param t	The task we want to get the earliest starting time of
-	 */
-	private int getEarliestStartingTime(Task t) {
-		int est;
-		est = t.task == 0 ? 0 : this.taskStartingDate[t.job][t.task - 1] + this.instance.duration(t.job, t.task - 1);
-		est = Math.max(est, this.machineAvailabilityDate[this.instance.machine(t)]);
-		return est;
-	}
 }
-
@@ -0,0 +1,249 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.Result;
+import jobshop.Schedule;
+import jobshop.SolveContext;
+import jobshop.Solver;
+import jobshop.encodings.DisjunctiveGraph;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Adaptive large neighborhood search : each iteration frees a part of the current
+ * solution (the destroy step) and inserts the freed operations back (the repair step).
+ *
+ * Freed operations are taken out of their machine sequence but keep their job
+ * precedences. They are then inserted back one at a time, in the order of their
+ * previous start times, at the position of their machine that minimizes the length of
+ * the longest path through them (estimated from the heads and tails of the partial
+ * graph). The graph updates heads and tails incrementally after each insertion, so a
+ * repair only costs what the inserted operations can reach.
+ *
+ * Candidates are accepted record-to-record : when within DEVIATION of the best known
+ * makespan. Destroy operators are drawn with probabilities proportional to weights
+ * that follow their recent success (Ropke and Pisinger's adaptive scheme).
+ */
+public class LargeNeighborhoodSolver implements Solver {
+
+	/** What a destroy step frees */
+	enum Destroy {
+		/** all the operations of random jobs */
+		RANDOM_JOBS,
+		/** all the operations of jobs having operations on a critical path */
+		CRITICAL_JOBS,
+		/** all the operations of the jobs sequenced around a critical operation on its machine */
+		MACHINE_NEIGHBOURS,
+		/** the operations starting in a random time window */
+		TIME_WINDOW
+	}
+
+	/* Number of jobs freed by a destroy step, drawn in [MIN_DEGREE, min(MAX_DEGREE, numJobs / 2)] */
+	private static final int MIN_DEGREE = 2;
+	private static final int MAX_DEGREE = 10;
+
+	/* Candidates up to that fraction above the best makespan are accepted */
+	private static final double DEVIATION = 0.01;
+
+	/* Weight of the last outcome in the weight of a destroy operator */
+	private static final double REACTION = 0.2;
+	private static final double MIN_WEIGHT = 0.05;
+
+	/* Scores of the outcomes of an iteration */
+	private static final double NEW_BEST = 3;
+	private static final double BETTER = 2;
+	private static final double ACCEPTED = 1;
+
+	private final Solver initialSolver;
+
+	public LargeNeighborhoodSolver(Solver initialSolver) {
+		this.initialSolver = initialSolver;
+	}
+
+	@Override
+	public Result solve(Instance instance, long deadline) {
+		SolveContext context = SolveContext.current();
+		Random random = context.random();
+
+		DisjunctiveGraph current = new DisjunctiveGraph(this.initialSolver.solve(instance, deadline).schedule);
+		current.evaluate();
+		Schedule bestSchedule = current.toSchedule();
+		int bestMakespan = bestSchedule.makespan();
+		context.improved(bestSchedule);
+
+		Destroy[] operators = Destroy.values();
+		double[] weights = new double[operators.length];
+		Arrays.fill(weights, 1);
+		int maxDegree = Math.min(instance.numJobs, Math.max(MIN_DEGREE, Math.min(MAX_DEGREE, instance.numJobs / 2)));
+		int minDegree = Math.min(MIN_DEGREE, maxDegree);
+
+		while (!context.exhausted(deadline)) {
+			context.iteration(current.makespan());
+
+			int op = pick(weights, random);
+			int degree = minDegree + random.nextInt(maxDegree - minDegree + 1);
+			int[] freed = select(operators[op], current, degree, random);
+
+			DisjunctiveGraph candidate = current.copy();
+			repair(candidate, freed, random);
+
+			double score = 0;
+			if (candidate.makespan() < bestMakespan) {
+				score = NEW_BEST;
+				bestMakespan = candidate.makespan();
+				bestSchedule = candidate.toSchedule();
+				context.improved(bestSchedule);
+			} else if (candidate.makespan() < current.makespan()) {
+				score = BETTER;
+			} else if (candidate.makespan() <= bestMakespan * (1 + DEVIATION)) {
+				score = ACCEPTED;
+			}
+			if (score > 0) {
+				current = candidate;
+			}
+			weights[op] = Math.max(MIN_WEIGHT, (1 - REACTION) * weights[op] + REACTION * score);
+		}
+
+		return new Result(instance, bestSchedule, Result.ExitCause.Timeout);
+	}
+
+	/* Roulette wheel selection */
+	private static int pick(double[] weights, Random random) {
+		double total = 0;
+		for (double w : weights) {
+			total += w;
+		}
+		double r = random.nextDouble() * total;
+		for (int i = 0 ; i < weights.length - 1 ; i++) {
+			r -= weights[i];
+			if (r < 0) {
+				return i;
+			}
+		}
+		return weights.length - 1;
+	}
+
+	/** Operations freed by the destroy operator, the graph being evaluated. */
+	static int[] select(Destroy destroy, DisjunctiveGraph graph, int degree, Random random) {
+		Instance instance = graph.instance;
+		boolean[] jobs = new boolean[instance.numJobs];
+
+		switch (destroy) {
+			case RANDOM_JOBS:
+				for (int chosen = 0 ; chosen < degree ; ) {
+					int job = random.nextInt(instance.numJobs);
+					if (!jobs[job]) {
+						jobs[job] = true;
+						chosen++;
+					}
+				}
+				break;
+
+			case CRITICAL_JOBS: {
+				int[] critical = IntStream.range(0, graph.numOperations).filter(graph::isCritical).toArray();
+				int chosen = 0;
+				for (int tries = 0 ; chosen < degree && tries < 4 * degree ; tries++) {
+					int job = graph.job(critical[random.nextInt(critical.length)]);
+					if (!jobs[job]) {
+						jobs[job] = true;
+						chosen++;
+					}
+				}
+				break;
+			}
+
+			case MACHINE_NEIGHBOURS: {
+				int[] critical = IntStream.range(0, graph.numOperations).filter(graph::isCritical).toArray();
+				int o = critical[random.nextInt(critical.length)];
+				int m = graph.machine(o);
+				int length = graph.sequenceLength(m);
+				int from = Math.max(0, Math.min(graph.position(o) - degree / 2, length - degree));
+				for (int k = from ; k < Math.min(length, from + degree) ; k++) {
+					jobs[graph.job(graph.sequence[m][k])] = true;
+				}
+				break;
+			}
+
+			case TIME_WINDOW: {
+				/* about degree jobs worth of operations : numOperations / makespan operations per time unit */
+				long width = Math.max(1, (long) degree * instance.numTasks * graph.makespan() / graph.numOperations);
+				int from = random.nextInt(graph.makespan());
+				return IntStream.range(0, graph.numOperations)
+					.filter(o -> graph.heads[o] >= from && graph.heads[o] < from + width)
+					.toArray();
+			}
+		}
+
+		return IntStream.range(0, graph.numOperations).filter(o -> jobs[graph.job(o)]).toArray();
+	}
+
+	/** Takes the operations out of their machine sequences then inserts them back, leaving the graph evaluated. */
+	static void repair(DisjunctiveGraph graph, int[] freed, Random random) {
+		/* in the order of their start times, which keeps the jobs in order */
+		Integer[] order = new Integer[freed.length];
+		for (int i = 0 ; i < freed.length ; i++) {
+			order[i] = freed[i];
+		}
+		Arrays.sort(order, Comparator.comparingInt((Integer o) -> graph.heads[o]).thenComparingInt(o -> o));
+
+		for (int o : freed) {
+			graph.remove(o);
+		}
+		graph.evaluate();
+
+		for (int o : order) {
+			insert(graph, o, random);
+		}
+	}
+
+	/* Inserts the operation at its best acyclic position, heads and tails being up to date */
+	private static void insert(DisjunctiveGraph graph, int o, Random random) {
+		int m = graph.machine(o);
+		int length = graph.sequenceLength(m);
+		int[] onMachine = graph.sequence[m];
+
+		int jp = graph.jobPredecessor(o);
+		int js = graph.jobSuccessor(o);
+		int release = jp < 0 ? 0 : graph.heads[jp] + graph.duration(jp);
+		int tail = js < 0 ? 0 : graph.duration(js) + graph.tails[js];
+
+		boolean[] cyclic = new boolean[length + 1];
+		while (true) {
+			int best = -1;
+			int bestLength = Integer.MAX_VALUE;
+			int ties = 0;
+			for (int k = 0 ; k <= length ; k++) {
+				if (cyclic[k]) {
+					continue;
+				}
+				int head = release;
+				if (k > 0) {
+					head = Math.max(head, graph.heads[onMachine[k - 1]] + graph.duration(onMachine[k - 1]));
+				}
+				int after = tail;
+				if (k < length) {
+					after = Math.max(after, graph.duration(onMachine[k]) + graph.tails[onMachine[k]]);
+				}
+				int pathLength = head + graph.duration(o) + after;
+				if (pathLength < bestLength) {
+					best = k;
+					bestLength = pathLength;
+					ties = 1;
+				} else if (pathLength == bestLength && random.nextInt(++ties) == 0) {
+					best = k;
+				}
+			}
+
+			graph.insert(o, best);
+			if (graph.update(o)) {
+				return;
+			}
+			/* an acyclic position always exists : the one of the operation in a topological order of the partial graph */
+			graph.remove(o);
+			cyclic[best] = true;
+		}
+	}
+}
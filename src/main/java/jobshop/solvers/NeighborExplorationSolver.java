@@ -1,6 +1,7 @@
 package jobshop.solvers;
 
 import jobshop.Solver;
+import jobshop.metrics.Metrics;
 
 import jobshop.encodings.Task;
 import jobshop.encodings.ResourceOrder;
@@ -108,6 +109,7 @@ public class NeighborExplorationSolver {
 	/** Returns a list of all blocks of the critical path. */
 	protected List<Block> blocksOfCriticalPath(ResourceOrder order) {
 
+		long t0 = Metrics.start();
 		ArrayList<Block> blocks = new ArrayList<Block>();
 
 		int currentMachine = -1;
@@ -137,6 +139,7 @@ public class NeighborExplorationSolver {
 			}
 		}
 
+		Metrics.stop(Metrics.Section.CRITICAL_PATH, t0);
 		return blocks;
 	}
 
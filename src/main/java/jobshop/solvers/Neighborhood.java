@@ -0,0 +1,303 @@
+package jobshop.solvers;
+
+import jobshop.metrics.Metrics;
+
+import jobshop.encodings.DisjunctiveGraph;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Neighbourhoods of a solution on the disjunctive graph, all built on the blocks of a
+ * critical path : maximal runs of critical operations on one machine (see
+ * DisjunctiveGraph.criticalBlocks()). A move takes one operation of a block to another
+ * position on its machine.
+ *
+ *  -	N1 (van Laarhoven et al.) : every swap of two adjacent operations of a block.
+ *  -	N5 (Nowicki and Smutnicki) : the swaps of the first two and of the last two
+ *	operations of each block, except the first two of a block starting the critical
+ *	path and the last two of a block ending it, which cannot shorten it.
+ *  -	N6 (Balas and Vazacopoulos) : an operation of a block moved right after the last
+ *	one or right before the first one, when a sufficient condition on heads and tails
+ *	guarantees the move does not close a cycle.
+ *  -	N7 (Zhang et al.) : N6, plus the first operation of a block moved right after an
+ *	inner one and the last one moved right before an inner one, under the same conditions.
+ *  -	INSERTION : every operation of a block moved to every other position of its machine.
+ *
+ * N1, N5, N6 and N7 never close a cycle (for positive durations), INSERTION may.
+ *
+ * The blocks are those of one critical path, or of all of them : the moves on the other
+ * critical paths may be needed as well to shorten the schedule.
+ *
+ * The cost of each neighbourhood is recorded, whatever the solver using it : number of
+ * neighbourhoods generated, number and time of moves generated, number and time of moves evaluated (see costs()). The
+ * counters are global to the JVM and striped, parallel searches add up.
+ */
+public enum Neighborhood {
+
+	N1 {
+		@Override
+		void generate(DisjunctiveGraph graph, List<int[]> blocks, Moves moves) {
+			for (int[] block : blocks) {
+				int[] sequence = graph.sequence[block[0]];
+				for (int k = block[1] ; k < block[2] ; k++) {
+					moves.add(sequence[k], k + 1, this);
+				}
+			}
+		}
+	},
+
+	N5 {
+		@Override
+		void generate(DisjunctiveGraph graph, List<int[]> blocks, Moves moves) {
+			for (int[] block : blocks) {
+				int[] sequence = graph.sequence[block[0]];
+				int first = block[1];
+				int last = block[2];
+				if (graph.heads[sequence[first]] > 0) {
+					moves.add(sequence[first], first + 1, this);
+				}
+				if (graph.tails[sequence[last]] > 0 && (last - first > 1 || graph.heads[sequence[first]] == 0)) {
+					moves.add(sequence[last - 1], last, this);
+				}
+			}
+		}
+	},
+
+	N6 {
+		@Override
+		void generate(DisjunctiveGraph graph, List<int[]> blocks, Moves moves) {
+			this.toBlockEnds(graph, blocks, moves);
+		}
+	},
+
+	N7 {
+		@Override
+		void generate(DisjunctiveGraph graph, List<int[]> blocks, Moves moves) {
+			this.toBlockEnds(graph, blocks, moves);
+			for (int[] block : blocks) {
+				int[] sequence = graph.sequence[block[0]];
+				int first = block[1];
+				int last = block[2];
+				for (int k = first + 1 ; k < last ; k++) {
+					if (after(graph, sequence[first], sequence[k])) {
+						moves.add(sequence[first], k, this);
+					}
+				}
+				for (int k = first + 1 ; k < last ; k++) {
+					if (before(graph, sequence[last], sequence[k])) {
+						moves.add(sequence[last], k, this);
+					}
+				}
+			}
+		}
+	},
+
+	INSERTION {
+		@Override
+		void generate(DisjunctiveGraph graph, List<int[]> blocks, Moves moves) {
+			for (int[] block : blocks) {
+				int m = block[0];
+				int[] sequence = graph.sequence[m];
+				for (int k = block[1] ; k <= block[2] ; k++) {
+					for (int to = 0 ; to < graph.sequenceLength(m) ; to++) {
+						/* moving an operation one step left is moving the previous one one step right */
+						if (to != k && !(to == k - 1 && k > block[1])) {
+							moves.add(sequence[k], to, this);
+						}
+					}
+				}
+			}
+		}
+	};
+
+	/** Growable list of moves : an operation and the position it moves to on its machine. */
+	public static final class Moves {
+		private int[] operations = new int[64];
+		private int[] positions = new int[64];
+		private Neighborhood[] sources = new Neighborhood[64];
+		private int size;
+
+		void add(int operation, int position, Neighborhood source) {
+			if (size == operations.length) {
+				operations = Arrays.copyOf(operations, 2 * size);
+				positions = Arrays.copyOf(positions, 2 * size);
+				sources = Arrays.copyOf(sources, 2 * size);
+			}
+			operations[size] = operation;
+			positions[size] = position;
+			sources[size] = source;
+			size++;
+		}
+
+		public void clear() {
+			size = 0;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public int operation(int i) {
+			return operations[i];
+		}
+
+		public int position(int i) {
+			return positions[i];
+		}
+
+		/** The neighbourhood that generated the move, the first one if several did. */
+		public Neighborhood source(int i) {
+			return sources[i];
+		}
+
+		/* Keeps the first of identical moves, in order */
+		private void removeDuplicates(int numJobs) {
+			long[] keys = new long[size];
+			for (int i = 0 ; i < size ; i++) {
+				keys[i] = ((long) operations[i] * numJobs + positions[i]) << 32 | i;
+			}
+			Arrays.sort(keys);
+			int[] kept = new int[size];
+			int count = 0;
+			for (int i = 0 ; i < size ; i++) {
+				if (i == 0 || keys[i] >>> 32 != keys[i - 1] >>> 32) {
+					kept[count++] = (int) keys[i];
+				}
+			}
+			Arrays.sort(kept, 0, count);
+			for (int i = 0 ; i < count ; i++) {
+				operations[i] = operations[kept[i]];
+				positions[i] = positions[kept[i]];
+				sources[i] = sources[kept[i]];
+			}
+			size = count;
+		}
+	}
+
+	/* Costs : neighbourhoods generated, their moves and the time spent generating them, moves evaluated and the time spent evaluating them */
+	private final LongAdder generations = new LongAdder();
+	private final LongAdder generated = new LongAdder();
+	private final LongAdder generationNanos = new LongAdder();
+	private final LongAdder evaluated = new LongAdder();
+	private final LongAdder evaluationNanos = new LongAdder();
+
+	/** Appends the moves of this neighbourhood on the given critical blocks of the evaluated graph. */
+	abstract void generate(DisjunctiveGraph graph, List<int[]> blocks, Moves moves);
+
+	/**
+	 * Replaces the content of `moves` by the union of the given neighbourhoods of the
+	 * evaluated graph, on the blocks of one of its critical paths.
+	 */
+	public static void collect(DisjunctiveGraph graph, Neighborhood[] neighborhoods, Moves moves) {
+		collect(graph, neighborhoods, false, moves);
+	}
+
+	/**
+	 * Same as collect(graph, neighborhoods, moves), on the blocks of every critical path
+	 * (see DisjunctiveGraph.criticalSubgraphBlocks()) if allCriticalPaths is set.
+	 */
+	public static void collect(DisjunctiveGraph graph, Neighborhood[] neighborhoods, boolean allCriticalPaths, Moves moves) {
+		long t = Metrics.start();
+		List<int[]> blocks = allCriticalPaths ? graph.criticalSubgraphBlocks() : graph.criticalBlocks();
+		Metrics.stop(Metrics.Section.CRITICAL_PATH, t);
+
+		moves.clear();
+		for (Neighborhood neighborhood : neighborhoods) {
+			long start = System.nanoTime();
+			int before = moves.size();
+			neighborhood.generate(graph, blocks, moves);
+			neighborhood.generations.increment();
+			neighborhood.generated.add(moves.size() - before);
+			neighborhood.generationNanos.add(System.nanoTime() - start);
+		}
+		if (neighborhoods.length > 1) {
+			moves.removeDuplicates(graph.sequence[0].length);
+		}
+	}
+
+	/**
+	 * Makespan of the graph after the i-th move, the graph being left as it was.
+	 * @return	-1 if the move closes a cycle
+	 */
+	public static int evaluate(DisjunctiveGraph graph, Moves moves, int i) {
+		long start = System.nanoTime();
+		int o = moves.operation(i);
+		int from = graph.position(o);
+		int makespan;
+		if (graph.move(o, moves.position(i))) {
+			Metrics.count(Metrics.Counter.FEASIBLE_NEIGHBORS);
+			makespan = graph.makespan();
+			graph.move(o, from);
+		} else {
+			Metrics.count(Metrics.Counter.INFEASIBLE_NEIGHBORS);
+			graph.restore(o, from);
+			makespan = -1;
+		}
+		Neighborhood source = moves.source(i);
+		source.evaluated.increment();
+		source.evaluationNanos.add(System.nanoTime() - start);
+		return makespan;
+	}
+
+	/** Applies the i-th move, returns false if it closed a cycle (the graph must then be evaluated again). */
+	public static boolean apply(DisjunctiveGraph graph, Moves moves, int i) {
+		return graph.move(moves.operation(i), moves.position(i));
+	}
+
+	/** The neighbourhood of that name, case insensitive, null if there is none. */
+	public static Neighborhood of(String name) {
+		for (Neighborhood neighborhood : values()) {
+			if (neighborhood.name().equalsIgnoreCase(name)) {
+				return neighborhood;
+			}
+		}
+		return null;
+	}
+
+	/** Costs recorded so far : { neighbourhoods generated, moves generated, generation ns, moves evaluated, evaluation ns }. */
+	public long[] costs() {
+		return new long[] { generations.sum(), generated.sum(), generationNanos.sum(), evaluated.sum(), evaluationNanos.sum() };
+	}
+
+	public void resetCosts() {
+		generations.reset();
+		generated.reset();
+		generationNanos.reset();
+		evaluated.reset();
+		evaluationNanos.reset();
+	}
+
+	/* The moves of N6 : operations moved right after the last one of their block or right before the first one */
+	void toBlockEnds(DisjunctiveGraph graph, List<int[]> blocks, Moves moves) {
+		for (int[] block : blocks) {
+			int[] sequence = graph.sequence[block[0]];
+			int first = block[1];
+			int last = block[2];
+			for (int k = first ; k < last ; k++) {
+				if (after(graph, sequence[k], sequence[last])) {
+					moves.add(sequence[k], last, this);
+				}
+			}
+			/* moving the last of two operations before the first one is the same as the opposite */
+			for (int k = last - first == 1 ? last + 1 : first + 1 ; k <= last ; k++) {
+				if (before(graph, sequence[k], sequence[first])) {
+					moves.add(sequence[k], first, this);
+				}
+			}
+		}
+	}
+
+	/* Moving u right after v (u before v in their block) closes no cycle if no path leads from u's job successor to v */
+	private static boolean after(DisjunctiveGraph graph, int u, int v) {
+		int js = graph.jobSuccessor(u);
+		return js < 0 || graph.duration(v) + graph.tails[v] >= graph.duration(js) + graph.tails[js];
+	}
+
+	/* Moving v right before u (u before v in their block) closes no cycle if no path leads from u to v's job predecessor */
+	private static boolean before(DisjunctiveGraph graph, int v, int u) {
+		int jp = graph.jobPredecessor(v);
+		return jp < 0 || graph.heads[u] + graph.duration(u) >= graph.heads[jp] + graph.duration(jp);
+	}
+}
@@ -0,0 +1,142 @@
+package jobshop.solvers;
+
+import java.util.PriorityQueue;
+
+/**
+ * Sequencing of n jobs on one machine with release dates r and delivery times q, the
+ * objective being max(completion + q). This is the sub-problem the shifting
+ * bottleneck solves for each machine : r are the heads and q the tails of its
+ * operations in the partial disjunctive graph.
+ *
+ * Schrage's rule (at each decision, the released job with the largest delivery time)
+ * gives a sequence in O(n log n) ; Carlier's branch and bound improves on it until it
+ * is proved optimal or the node budget runs out.
+ */
+final class OneMachineProblem {
+
+	private final int n;
+	private final int[] duration;
+
+	/* best sequence found and its value */
+	private int[] best;
+	private int bestValue = Integer.MAX_VALUE;
+
+	private long nodesLeft;
+
+	/* scratch of schrage() */
+	private final int[] order;
+	private final int[] completion;
+
+	OneMachineProblem(int[] duration) {
+		this.n = duration.length;
+		this.duration = duration;
+		this.order = new int[n];
+		this.completion = new int[n];
+	}
+
+	/**
+	 * Returns the best sequence found, as indices of the jobs.
+	 * @param nodeLimit	Maximum number of branch and bound nodes, 1 is Schrage's sequence alone
+	 */
+	int[] solve(int[] release, int[] tail, long nodeLimit) {
+		this.best = null;
+		this.bestValue = Integer.MAX_VALUE;
+		this.nodesLeft = nodeLimit;
+		this.branch(release.clone(), tail.clone(), 0);
+		return best;
+	}
+
+	/** Value of the best sequence found by the last solve(). */
+	int value() {
+		return bestValue;
+	}
+
+	/* One node of Carlier's branch and bound : Schrage's sequence, then branching on the critical job c */
+	private void branch(int[] release, int[] tail, int lowerBound) {
+		if (nodesLeft-- <= 0) {
+			return;
+		}
+		int value = this.schrage(release, tail);
+		if (value < bestValue) {
+			bestValue = value;
+			best = order.clone();
+		}
+
+		/* critical path : p is the last job reaching the value, a the first one of its block */
+		int p = n - 1;
+		while (completion[order[p]] + tail[order[p]] != value) {
+			p--;
+		}
+		int a = p;
+		while (a > 0 && completion[order[a - 1]] >= release[order[a]]) {
+			a--;
+		}
+		/* c is the last job of the block with a smaller tail than p : none means this sequence is optimal */
+		int c = p - 1;
+		while (c >= a && tail[order[c]] >= tail[order[p]]) {
+			c--;
+		}
+		if (c < a) {
+			return;
+		}
+
+		/* J = jobs after c in the block, one of them must precede c or c must precede all of them */
+		int minRelease = Integer.MAX_VALUE;
+		int minTail = Integer.MAX_VALUE;
+		int sumDuration = 0;
+		for (int k = c + 1 ; k <= p ; k++) {
+			int j = order[k];
+			minRelease = Math.min(minRelease, release[j]);
+			minTail = Math.min(minTail, tail[j]);
+			sumDuration += duration[j];
+		}
+		int job = order[c];
+		int boundJ = minRelease + sumDuration + minTail;
+		int boundJc = Math.min(minRelease, release[job]) + sumDuration + duration[job] + Math.min(minTail, tail[job]);
+		int bound = Math.max(lowerBound, Math.max(boundJ, boundJc));
+
+		/* c after J */
+		int oldRelease = release[job];
+		release[job] = Math.max(oldRelease, minRelease + sumDuration);
+		int boundAfter = Math.max(bound, release[job] + duration[job] + tail[job]);
+		if (boundAfter < bestValue) {
+			this.branch(release.clone(), tail.clone(), boundAfter);
+		}
+		release[job] = oldRelease;
+
+		/* c before J */
+		int oldTail = tail[job];
+		tail[job] = Math.max(oldTail, minTail + sumDuration);
+		int boundBefore = Math.max(bound, release[job] + duration[job] + tail[job]);
+		if (boundBefore < bestValue) {
+			this.branch(release, tail, boundBefore);
+		}
+		tail[job] = oldTail;
+	}
+
+	/* Fills order and completion with Schrage's sequence, returns its value */
+	private int schrage(int[] release, int[] tail) {
+		PriorityQueue<Integer> byRelease = new PriorityQueue<>(Math.max(1, n), (x, y) -> Integer.compare(release[x], release[y]));
+		PriorityQueue<Integer> ready = new PriorityQueue<>(Math.max(1, n), (x, y) -> Integer.compare(tail[y], tail[x]));
+		for (int j = 0 ; j < n ; j++) {
+			byRelease.add(j);
+		}
+
+		int time = 0;
+		int value = 0;
+		for (int k = 0 ; k < n ; k++) {
+			if (ready.isEmpty()) {
+				time = Math.max(time, release[byRelease.peek()]);
+			}
+			while (!byRelease.isEmpty() && release[byRelease.peek()] <= time) {
+				ready.add(byRelease.poll());
+			}
+			int j = ready.poll();
+			time += duration[j];
+			order[k] = j;
+			completion[j] = time;
+			value = Math.max(value, time + tail[j]);
+		}
+		return value;
+	}
+}
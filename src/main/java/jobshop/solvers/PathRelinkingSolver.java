@@ -0,0 +1,234 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.Result;
+import jobshop.Schedule;
+import jobshop.SolveContext;
+import jobshop.Solver;
+
+import jobshop.encodings.DisjunctiveGraph;
+import jobshop.encodings.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Path relinking between elite solutions, as a final phase of any solver.
+ *
+ * The solver runs for the first part of the budget, its elite solutions are collected :
+ * GRASP's elite pool, or for any other solver every new incumbent it reports. Then for
+ * each pair of elites (both ways) a walk leads from the initiating solution to the
+ * guiding one : at each step, on one machine whose sequence still differs, the
+ * operation the guiding solution has at the first differing position is moved there.
+ * The step takes the best of up to CANDIDATES such moves, each evaluated incrementally
+ * (only the heads and tails the move may change are computed again). The best
+ * solution met strictly inside the path is improved by a descent and offered to the
+ * elite pool, whose new pairs are relinked in turn.
+ *
+ * Pairs are relinked in parallel, until the deadline or until no pair is left.
+ */
+public class PathRelinkingSolver implements Solver {
+
+	/** Default share of the budget left to path relinking */
+	public static final double DEFAULT_SHARE = 0.2;
+
+	/* Moves evaluated at each step of a walk */
+	private static final int CANDIDATES = 8;
+
+	/* Elite pool of the solvers that have none */
+	private static final int ELITES = 10;
+	private static final double MIN_DIVERSITY = 0.05;
+
+	private final Solver solver;
+	private final double share;
+	private final int threads;
+
+	public PathRelinkingSolver(Solver solver) {
+		this(solver, DEFAULT_SHARE, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param solver	Solver whose elite solutions are relinked
+	 * @param share		Share of the budget left to path relinking, in [0, 1]
+	 * @param threads	Number of pairs relinked in parallel
+	 */
+	public PathRelinkingSolver(Solver solver, double share, int threads) {
+		if (share < 0 || share > 1 || threads < 1) {
+			throw new IllegalArgumentException("the share must be in [0, 1] and there must be at least 1 thread");
+		}
+		this.solver = solver;
+		this.share = share;
+		this.threads = threads;
+	}
+
+	@Override
+	public Result solve(Instance instance, long deadline) {
+		SolveContext context = SolveContext.current();
+		long now = System.currentTimeMillis();
+		long relinkStart = deadline - (long) (this.share * Math.max(0, deadline - now));
+
+		ElitePool elites = this.collect(instance, relinkStart, context);
+		boolean exhausted = relink(elites, this.threads, deadline);
+
+		return new Result(instance, elites.best().schedule, exhausted ? Result.ExitCause.Timeout : Result.ExitCause.Blocked);
+	}
+
+	/* Runs the solver, gathering its elites : every incumbent it reports unless it keeps an elite pool */
+	private ElitePool collect(Instance instance, long deadline, SolveContext context) {
+		List<Schedule> incumbents = new ArrayList<>();
+		SolveContext.ImprovementListener previous = context.improvementListener();
+		context.setImprovementListener((schedule, elapsedNs) -> {
+			incumbents.add(schedule);
+			if (previous != null) {
+				previous.improved(schedule, elapsedNs);
+			}
+		});
+		Result result;
+		try {
+			result = this.solver.solve(instance, deadline);
+		} finally {
+			context.setImprovementListener(previous);
+		}
+
+		if (this.solver instanceof GraspSolver) {
+			return ((GraspSolver) this.solver).elites();
+		}
+		int numOperations = instance.numJobs * instance.numTasks;
+		ElitePool elites = new ElitePool(ELITES, (int) Math.ceil(MIN_DIVERSITY * numOperations));
+		/* the listener runs under the context's lock : incumbents are decoded for the pool once the solver is done */
+		for (Schedule schedule : incumbents) {
+			elites.offer(schedule);
+		}
+		elites.offer(result.schedule);
+		return elites;
+	}
+
+	/**
+	 * Relinks every pair of elites of the pool in parallel, then the pairs involving the
+	 * solutions that got in, until the deadline or until no pair is left.
+	 * @return	true if the deadline stopped it
+	 */
+	public static boolean relink(ElitePool elites, int threads, long deadline) {
+		SolveContext context = SolveContext.current();
+		Random random = context.random();
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "path-relinking");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		Set<List<ElitePool.Elite>> relinked = new HashSet<>();
+		try {
+			while (!context.exhausted(deadline)) {
+				List<Callable<Void>> walks = new ArrayList<>();
+				for (ElitePool.Elite from : elites.elites()) {
+					for (ElitePool.Elite to : elites.elites()) {
+						if (from != to && relinked.add(List.of(from, to))) {
+							long seed = random.nextLong();
+							walks.add(() -> {
+								context.attach();
+								try {
+									Schedule schedule = walk(from, to, new Random(seed), deadline);
+									if (schedule != null) {
+										schedule = DescentSolver.improve(schedule, deadline);
+										context.improved(schedule);
+										elites.offer(schedule);
+									}
+									return null;
+								} finally {
+									context.close();
+								}
+							});
+						}
+					}
+				}
+				if (walks.isEmpty()) {
+					return false;
+				}
+				for (Future<Void> future : pool.invokeAll(walks)) {
+					future.get();
+				}
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("a relinking walk failed", e);
+		} finally {
+			pool.shutdownNow();
+		}
+		return true;
+	}
+
+	/** Best solution strictly between the two elites on the path from one to the other, null if there is none. */
+	static Schedule walk(ElitePool.Elite from, ElitePool.Elite to, Random random, long deadline) {
+		Instance instance = from.schedule.pb;
+		SolveContext context = SolveContext.current();
+		DisjunctiveGraph graph = new DisjunctiveGraph(from.order);
+		graph.evaluate();
+
+		int[][] target = new int[instance.numMachines][instance.numJobs];
+		for (int m = 0 ; m < instance.numMachines ; m++) {
+			for (int k = 0 ; k < instance.numJobs ; k++) {
+				Task task = to.order.tasksByMachine[m][k];
+				target[m][k] = graph.operation(task.job, task.task);
+			}
+		}
+		/* agree[m] : length of the common prefix of the sequences of machine m, it only grows along the path */
+		int[] agree = new int[instance.numMachines];
+		List<Integer> differing = new ArrayList<>();
+
+		Schedule best = null;
+		int bestMakespan = Integer.MAX_VALUE;
+		for (int step = 0 ; !context.exhausted(deadline) ; step++) {
+			differing.clear();
+			for (int m = 0 ; m < instance.numMachines ; m++) {
+				while (agree[m] < instance.numJobs && graph.sequence[m][agree[m]] == target[m][agree[m]]) {
+					agree[m]++;
+				}
+				if (agree[m] < instance.numJobs) {
+					differing.add(m);
+				}
+			}
+			/* neither the initiating solution nor the guiding one are intermediates */
+			if (differing.isEmpty()) {
+				break;
+			}
+			if (step > 0 && graph.makespan() < bestMakespan) {
+				bestMakespan = graph.makespan();
+				best = graph.toSchedule();
+			}
+			Collections.shuffle(differing, random);
+
+			/* the best acyclic move among the first CANDIDATES machines, or further ones if they are all cyclic */
+			int bestMachine = -1;
+			int bestMoveMakespan = Integer.MAX_VALUE;
+			for (int i = 0 ; i < differing.size() && (i < CANDIDATES || bestMachine < 0) ; i++) {
+				int m = differing.get(i);
+				int o = target[m][agree[m]];
+				int k = graph.position(o);
+				if (graph.move(o, agree[m])) {
+					if (graph.makespan() < bestMoveMakespan || (graph.makespan() == bestMoveMakespan && random.nextBoolean())) {
+						bestMachine = m;
+						bestMoveMakespan = graph.makespan();
+					}
+					graph.move(o, k);
+				} else {
+					graph.restore(o, k);
+				}
+			}
+			if (bestMachine < 0) {
+				break;
+			}
+			graph.move(target[bestMachine][agree[bestMachine]], agree[bestMachine]);
+		}
+		return best;
+	}
+}
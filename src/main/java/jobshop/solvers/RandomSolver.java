@@ -2,6 +2,7 @@ package jobshop.solvers;
 
 import jobshop.*;
 import jobshop.encodings.JobNumbers;
+import jobshop.encodings.JobNumbersBatch;
 
 import java.util.Optional;
 import java.util.Random;
@@ -10,7 +11,8 @@ public class RandomSolver implements Solver {
 
     @Override
     public Result solve(Instance instance, long deadline) {
-        Random generator = new Random(0);
+        SolveContext context = SolveContext.current();
+        Random generator = new Random(context.seed);
 
         JobNumbers sol = new JobNumbers(instance);
 
@@ -20,11 +22,23 @@ public class RandomSolver implements Solver {
             }
         }
         Schedule best = sol.toSchedule();
-        while(deadline - System.currentTimeMillis() > 1) {
-            shuffleArray(sol.jobs, generator);
-            Schedule s = sol.toSchedule();
-            if(s.makespan() < best.makespan()) {
-                best = s;
+        context.improved(best);
+        /* the shuffles are decoded by batches, in lockstep, never beyond the evaluation budget */
+        JobNumbersBatch batch = new JobNumbersBatch(instance);
+        while(deadline - System.currentTimeMillis() > 1 && !context.outOfEvaluations()) {
+            batch.clear();
+            long left = context.maxEvaluations - context.evaluations();
+            while(!batch.isFull() && batch.size() < left) {
+                shuffleArray(sol.jobs, generator);
+                batch.add(sol);
+            }
+            batch.evaluate();
+            for(int lane = 0 ; lane < batch.size() ; lane++) {
+                context.iteration(batch.makespan(lane));
+                if(batch.makespan(lane) < best.makespan()) {
+                    best = batch.schedule(lane);
+                    context.improved(best);
+                }
             }
         }
 
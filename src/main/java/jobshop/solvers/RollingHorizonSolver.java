@@ -0,0 +1,481 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.Result;
+import jobshop.Schedule;
+import jobshop.SolveContext;
+import jobshop.Solver;
+import jobshop.encodings.DisjunctiveGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Rolling-horizon decomposition, meant for instances too large for a full-instance local search.
+ *
+ * Starting from the schedule of the initial solver, the time line is cut into windows
+ * overlapping by half. The operations starting within a window are re-optimized while
+ * everything else keeps its order : the operations before the window become release
+ * dates of the jobs and availability dates of the machines, the operations after it
+ * become tails (the longest path from an operation to the end of the schedule). Since
+ * no path can leave a window and come back into it, the makespan of the window
+ * sub-problem (max of end + tail) is exactly the makespan of the paths going through it.
+ *
+ * Each window is re-optimized by a taboo search on the Nowicki and Smutnicki swaps of
+ * its own critical path, with an evaluation in time linear in the size of the window.
+ * Every other window is independent of its neighbours, so half of the windows are
+ * solved in parallel, then the other half. When a whole sweep brings no improvement the
+ * windows are made larger, up to MAX_WINDOW_SCALE times their initial size.
+ */
+public class RollingHorizonSolver implements Solver {
+
+	/** Default number of operations in a window */
+	public static final int DEFAULT_WINDOW_OPERATIONS = 150;
+
+	/* When a sweep brings nothing, windows are doubled up to that many times their initial size */
+	private static final int MAX_WINDOW_SCALE = 8;
+
+	/* Taboo search iterations spent on a window per sweep */
+	private static final int WINDOW_ITERATIONS = 200;
+
+	/* Number of iterations a reverted swap stays taboo */
+	private static final int TABOO_TENURE = 8;
+
+	private final Solver initialSolver;
+	private final int windowOperations;
+	private final int threads;
+
+	public RollingHorizonSolver(Solver initialSolver) {
+		this(initialSolver, DEFAULT_WINDOW_OPERATIONS, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param initialSolver		Solver giving the schedule to improve
+	 * @param windowOperations	Approximate number of operations in a window
+	 * @param threads		Number of windows solved in parallel
+	 */
+	public RollingHorizonSolver(Solver initialSolver, int windowOperations, int threads) {
+		if (windowOperations < 2 || threads < 1) {
+			throw new IllegalArgumentException("a window needs at least 2 operations and 1 thread");
+		}
+		this.initialSolver = initialSolver;
+		this.windowOperations = windowOperations;
+		this.threads = threads;
+	}
+
+	@Override
+	public Result solve(Instance instance, long deadline) {
+		SolveContext context = SolveContext.current();
+
+		DisjunctiveGraph graph = new DisjunctiveGraph(this.initialSolver.solve(instance, deadline).schedule);
+		graph.evaluate();
+		Schedule bestSchedule = graph.toSchedule();
+		context.improved(bestSchedule);
+
+		ExecutorService pool = Executors.newFixedThreadPool(this.threads, runnable -> {
+			Thread thread = new Thread(runnable, "rolling-horizon");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			int scale = 1;
+			while (scale <= MAX_WINDOW_SCALE && !context.exhausted(deadline)) {
+				boolean improved = false;
+
+				/* ops per time unit is about numOperations / makespan */
+				int length = (int) Math.max(2, (long) scale * this.windowOperations * graph.makespan() / graph.numOperations);
+
+				/* windows [k * length / 2, k * length / 2 + length), the even ones first then the odd ones */
+				for (int parity = 0 ; parity < 2 && !context.exhausted(deadline) ; parity++) {
+					int before = graph.makespan();
+					graph = this.sweep(graph, length, parity, pool, context, deadline);
+					if (graph.makespan() < before) {
+						improved = true;
+						bestSchedule = graph.toSchedule();
+						context.improved(bestSchedule);
+					}
+				}
+
+				/* stuck with these windows : larger ones see longer parts of the critical path */
+				if (!improved) {
+					scale *= 2;
+				}
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("a window could not be solved", e);
+		} finally {
+			pool.shutdownNow();
+		}
+
+		return new Result(instance, bestSchedule, context.exhausted(deadline) ? Result.ExitCause.Timeout : Result.ExitCause.Blocked);
+	}
+
+	/* Re-optimizes every other window in parallel, returns the graph with the improvements that survived */
+	private DisjunctiveGraph sweep(DisjunctiveGraph graph, int length, int parity, ExecutorService pool,
+			SolveContext context, long deadline) throws InterruptedException, ExecutionException {
+
+		int half = Math.max(1, length / 2);
+		int[] localIndex = new int[graph.numOperations];
+
+		List<Future<Window>> futures = new ArrayList<>();
+		for (int start = parity * half ; start < graph.makespan() ; start += 2 * half) {
+			Window window = new Window(graph, start, start + length, localIndex);
+			if (window.size() < 2) {
+				continue;
+			}
+			futures.add(pool.submit(() -> {
+				context.attach();
+				try {
+					window.search(context, deadline);
+					return window;
+				} finally {
+					context.close();
+				}
+			}));
+		}
+
+		List<Window> improvedWindows = new ArrayList<>();
+		for (Future<Window> future : futures) {
+			Window window = future.get();
+			if (window.improved()) {
+				improvedWindows.add(window);
+			}
+		}
+		if (improvedWindows.isEmpty()) {
+			return graph;
+		}
+
+		/* windows are independent as far as their operations go, but a path may cross
+		 * several of them : check the combination, window by window if it got worse */
+		DisjunctiveGraph merged = graph.copy();
+		for (Window window : improvedWindows) {
+			window.applyOn(merged);
+		}
+		if (merged.evaluate() && merged.makespan() <= graph.makespan()) {
+			return merged;
+		}
+
+		DisjunctiveGraph current = graph;
+		for (Window window : improvedWindows) {
+			DisjunctiveGraph candidate = current.copy();
+			window.applyOn(candidate);
+			if (candidate.evaluate() && candidate.makespan() <= current.makespan()) {
+				current = candidate;
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Sub-problem made of the operations starting within [from, to), on local arrays
+	 * so that windows can be searched concurrently.
+	 */
+	static class Window {
+
+		/* global number of the local operations */
+		private final int[] operations;
+		private final int[] duration;
+		private final int[] jobPredecessor;
+		private final int[] jobSuccessor;
+		/* end of the job predecessor outside of the window, 0 if none */
+		private final int[] release;
+		/* duration + tail of the job successor outside of the window, 0 if none */
+		private final int[] jobTail;
+		private final int[] machineOf;
+
+		/* per local machine : global machine, first position in the global sequence, availability and tail of what follows */
+		private final int[] machines;
+		private final int[] firstPosition;
+		private final int[] availability;
+		private final int[] machineTail;
+
+		/* local machine sequences, the current and the best ones */
+		private final int[][] sequence;
+		private final int[][] bestSequence;
+		private final int[] position;
+
+		private final int initialMakespan;
+		private int bestMakespan;
+
+		/* scratch arrays of evaluate() */
+		private final int[] heads;
+		private final int[] order;
+		private final int[] indegree;
+
+		Window(DisjunctiveGraph graph, int from, int to, int[] localIndex) {
+			/* operations of a machine starting within the window are contiguous in its sequence */
+			List<Integer> machineList = new ArrayList<>();
+			List<int[]> ranges = new ArrayList<>();
+			int n = 0;
+			for (int m = 0 ; m < graph.sequence.length ; m++) {
+				int[] onMachine = graph.sequence[m];
+				int length = graph.sequenceLength(m);
+				int first = 0;
+				while (first < length && graph.heads[onMachine[first]] < from) {
+					first++;
+				}
+				int last = first;
+				while (last < length && graph.heads[onMachine[last]] < to) {
+					last++;
+				}
+				if (last > first) {
+					machineList.add(m);
+					ranges.add(new int[] { first, last });
+					n += last - first;
+				}
+			}
+
+			int numMachines = machineList.size();
+			this.operations = new int[n];
+			this.duration = new int[n];
+			this.jobPredecessor = new int[n];
+			this.jobSuccessor = new int[n];
+			this.release = new int[n];
+			this.jobTail = new int[n];
+			this.machineOf = new int[n];
+			this.machines = new int[numMachines];
+			this.firstPosition = new int[numMachines];
+			this.availability = new int[numMachines];
+			this.machineTail = new int[numMachines];
+			this.sequence = new int[numMachines][];
+			this.bestSequence = new int[numMachines][];
+			this.position = new int[n];
+			this.heads = new int[n];
+			this.order = new int[n];
+			this.indegree = new int[n];
+
+			int i = 0;
+			for (int lm = 0 ; lm < numMachines ; lm++) {
+				int m = machineList.get(lm);
+				int first = ranges.get(lm)[0];
+				int last = ranges.get(lm)[1];
+				int[] onMachine = graph.sequence[m];
+
+				machines[lm] = m;
+				firstPosition[lm] = first;
+				if (first > 0) {
+					int before = onMachine[first - 1];
+					availability[lm] = graph.heads[before] + graph.duration(before);
+				}
+				if (last < graph.sequenceLength(m)) {
+					int after = onMachine[last];
+					machineTail[lm] = graph.duration(after) + graph.tails[after];
+				}
+
+				sequence[lm] = new int[last - first];
+				for (int k = first ; k < last ; k++) {
+					int o = onMachine[k];
+					operations[i] = o;
+					duration[i] = graph.duration(o);
+					machineOf[i] = lm;
+					position[i] = k - first;
+					sequence[lm][k - first] = i;
+					localIndex[o] = i;
+					i++;
+				}
+				bestSequence[lm] = sequence[lm].clone();
+			}
+
+			for (i = 0 ; i < n ; i++) {
+				int o = operations[i];
+				int jp = graph.jobPredecessor(o);
+				if (jp >= 0 && inWindow(graph, jp, from, to)) {
+					jobPredecessor[i] = localIndex[jp];
+				} else {
+					jobPredecessor[i] = -1;
+					release[i] = jp >= 0 ? graph.heads[jp] + graph.duration(jp) : 0;
+				}
+				int js = graph.jobSuccessor(o);
+				if (js >= 0 && inWindow(graph, js, from, to)) {
+					jobSuccessor[i] = localIndex[js];
+				} else {
+					jobSuccessor[i] = -1;
+					jobTail[i] = js >= 0 ? graph.duration(js) + graph.tails[js] : 0;
+				}
+			}
+
+			this.initialMakespan = n == 0 ? 0 : this.evaluate();
+			this.bestMakespan = this.initialMakespan;
+		}
+
+		private static boolean inWindow(DisjunctiveGraph graph, int operation, int from, int to) {
+			return graph.heads[operation] >= from && graph.heads[operation] < to;
+		}
+
+		int size() {
+			return operations.length;
+		}
+
+		boolean improved() {
+			return bestMakespan < initialMakespan;
+		}
+
+		/* Writes the best sequences found into the global graph */
+		void applyOn(DisjunctiveGraph graph) {
+			for (int lm = 0 ; lm < machines.length ; lm++) {
+				int[] global = new int[bestSequence[lm].length];
+				for (int k = 0 ; k < global.length ; k++) {
+					global[k] = operations[bestSequence[lm][k]];
+				}
+				graph.setSequence(machines[lm], firstPosition[lm], global);
+			}
+		}
+
+		/* Makespan of the paths going through the window, -1 if the local sequences contain a cycle */
+		private int evaluate() {
+			SolveContext.current().evaluated();
+			int n = operations.length;
+			int size = 0;
+			for (int i = 0 ; i < n ; i++) {
+				indegree[i] = (jobPredecessor[i] >= 0 ? 1 : 0) + (position[i] > 0 ? 1 : 0);
+				if (indegree[i] == 0) {
+					order[size++] = i;
+				}
+			}
+			for (int k = 0 ; k < size ; k++) {
+				int i = order[k];
+				int js = jobSuccessor[i];
+				if (js >= 0 && --indegree[js] == 0) {
+					order[size++] = js;
+				}
+				int ms = machineSuccessor(i);
+				if (ms >= 0 && --indegree[ms] == 0) {
+					order[size++] = ms;
+				}
+			}
+			if (size < n) {
+				return -1;
+			}
+
+			int makespan = 0;
+			for (int k = 0 ; k < n ; k++) {
+				int i = order[k];
+				heads[i] = this.earliestStart(i);
+				int end = heads[i] + duration[i];
+				makespan = Math.max(makespan, end + jobTail[i]);
+				if (machineSuccessor(i) < 0) {
+					makespan = Math.max(makespan, end + machineTail[machineOf[i]]);
+				}
+			}
+			return makespan;
+		}
+
+		private int earliestStart(int i) {
+			int jp = jobPredecessor[i];
+			int head = jp >= 0 ? heads[jp] + duration[jp] : release[i];
+			int mp = machinePredecessor(i);
+			return Math.max(head, mp >= 0 ? heads[mp] + duration[mp] : availability[machineOf[i]]);
+		}
+
+		private int machinePredecessor(int i) {
+			return position[i] == 0 ? -1 : sequence[machineOf[i]][position[i] - 1];
+		}
+
+		private int machineSuccessor(int i) {
+			int[] onMachine = sequence[machineOf[i]];
+			return position[i] == onMachine.length - 1 ? -1 : onMachine[position[i] + 1];
+		}
+
+		private void swap(int lm, int k1, int k2) {
+			int i1 = sequence[lm][k1];
+			int i2 = sequence[lm][k2];
+			sequence[lm][k1] = i2;
+			sequence[lm][k2] = i1;
+			position[i2] = k1;
+			position[i1] = k2;
+		}
+
+		/* Blocks of the critical path as {local machine, first position, last position}, from the end of the path */
+		private List<int[]> criticalBlocks(int makespan) {
+			int n = operations.length;
+			int last = -1;
+			for (int i = 0 ; i < n && last < 0 ; i++) {
+				int end = heads[i] + duration[i];
+				if (end + jobTail[i] == makespan || (machineSuccessor(i) < 0 && end + machineTail[machineOf[i]] == makespan)) {
+					last = i;
+				}
+			}
+
+			List<int[]> blocks = new ArrayList<>();
+			int i = last;
+			int blockEnd = position[i];
+			while (i >= 0) {
+				int jp = jobPredecessor[i];
+				int mp = machinePredecessor(i);
+				int next;
+				if (mp >= 0 && heads[mp] + duration[mp] == heads[i]) {
+					next = mp;
+				} else {
+					if (position[i] < blockEnd) {
+						blocks.add(new int[] { machineOf[i], position[i], blockEnd });
+					}
+					next = jp >= 0 && heads[jp] + duration[jp] == heads[i] ? jp : -1;
+					if (next >= 0) {
+						blockEnd = position[next];
+					}
+				}
+				i = next;
+			}
+			return blocks;
+		}
+
+		/* Taboo search on the swaps of the first and last two operations of the critical blocks */
+		void search(SolveContext context, long deadline) {
+			int n = operations.length;
+			int current = this.initialMakespan;
+			/* taboo[a * n + b] : iteration until which putting a right before b again is forbidden */
+			int[] taboo = new int[n * n];
+
+			for (int iteration = 1 ; iteration <= WINDOW_ITERATIONS && !context.exhausted(deadline) ; iteration++) {
+				context.iteration(current);
+
+				int bestMove = -1, bestMoveMachine = -1, bestMoveMakespan = Integer.MAX_VALUE;
+				for (int[] block : this.criticalBlocks(current)) {
+					int lm = block[0];
+					int[] candidates = block[2] - block[1] == 1
+						? new int[] { block[1] }
+						: new int[] { block[1], block[2] - 1 };
+					for (int k : candidates) {
+						int a = sequence[lm][k];
+						int b = sequence[lm][k + 1];
+						this.swap(lm, k, k + 1);
+						int makespan = this.evaluate();
+						this.swap(lm, k, k + 1);
+
+						if (makespan < 0) {
+							continue;
+						}
+						/* aspiration : a taboo move is allowed when it beats the best window */
+						boolean allowed = taboo[b * n + a] < iteration || makespan < this.bestMakespan;
+						if (allowed && makespan < bestMoveMakespan) {
+							bestMove = k;
+							bestMoveMachine = lm;
+							bestMoveMakespan = makespan;
+						}
+					}
+				}
+				if (bestMove < 0) {
+					break;
+				}
+
+				int a = sequence[bestMoveMachine][bestMove];
+				int b = sequence[bestMoveMachine][bestMove + 1];
+				this.swap(bestMoveMachine, bestMove, bestMove + 1);
+				taboo[a * n + b] = iteration + TABOO_TENURE;
+				current = this.evaluate();
+
+				if (current < this.bestMakespan) {
+					this.bestMakespan = current;
+					for (int lm = 0 ; lm < sequence.length ; lm++) {
+						System.arraycopy(sequence[lm], 0, bestSequence[lm], 0, sequence[lm].length);
+					}
+				}
+			}
+		}
+	}
+}
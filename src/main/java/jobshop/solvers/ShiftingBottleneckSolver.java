@@ -0,0 +1,140 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.Result;
+import jobshop.SolveContext;
+import jobshop.Solver;
+import jobshop.encodings.DisjunctiveGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shifting bottleneck heuristic (Adams, Balas and Zawack, 1988).
+ *
+ * Machines are sequenced one at a time in the disjunctive graph, starting with only the
+ * job precedences. At each step every machine not yet sequenced is solved as a
+ * one-machine problem, its operations' heads as release dates and their tails as
+ * delivery times. The machine whose problem has the largest value is the bottleneck :
+ * its sequence is fixed, then the machines fixed before it are re-optimized one by one
+ * against the new heads and tails.
+ *
+ * The graph keeps its heads and tails up to date incrementally as operations are
+ * inserted, only a re-optimized machine taken out of the graph needs a full evaluation.
+ */
+public class ShiftingBottleneckSolver implements Solver {
+
+	/* Budget of a one-machine branch and bound, in jobs scheduled : nodes x jobs */
+	private static final long NODE_BUDGET = 100_000;
+
+	/* Re-optimization passes over the fixed machines after each bottleneck */
+	private static final int REOPTIMIZATION_PASSES = 1;
+
+	@Override
+	public Result solve(Instance instance, long deadline) {
+		SolveContext context = SolveContext.current();
+
+		DisjunctiveGraph graph = DisjunctiveGraph.unsequenced(instance);
+		graph.evaluate();
+
+		OneMachineProblem[] problems = new OneMachineProblem[instance.numMachines];
+		int[][] operations = new int[instance.numMachines][instance.numJobs];
+		for (int m = 0 ; m < instance.numMachines ; m++) {
+			int[] duration = new int[instance.numJobs];
+			for (int job = 0 ; job < instance.numJobs ; job++) {
+				int task = instance.task_with_machine(job, m);
+				operations[m][job] = graph.operation(job, task);
+				duration[job] = instance.duration(job, task);
+			}
+			problems[m] = new OneMachineProblem(duration);
+		}
+		long nodeLimit = Math.max(1, NODE_BUDGET / Math.max(1, instance.numJobs));
+
+		List<Integer> fixed = new ArrayList<>();
+		boolean[] sequenced = new boolean[instance.numMachines];
+		while (fixed.size() < instance.numMachines) {
+			/* past the deadline, the remaining machines are taken in order with Schrage's sequences */
+			boolean hurry = context.exhausted(deadline);
+			long limit = hurry ? 1 : nodeLimit;
+
+			int bottleneck = -1;
+			int[] bottleneckSequence = null;
+			int bottleneckValue = -1;
+			for (int m = 0 ; m < instance.numMachines && !(hurry && bottleneck >= 0) ; m++) {
+				if (sequenced[m]) {
+					continue;
+				}
+				int[] sequence = this.sequence(graph, problems[m], operations[m], limit);
+				if (problems[m].value() > bottleneckValue) {
+					bottleneck = m;
+					bottleneckSequence = sequence;
+					bottleneckValue = problems[m].value();
+				}
+			}
+			this.fix(graph, bottleneckSequence);
+			sequenced[bottleneck] = true;
+			fixed.add(bottleneck);
+
+			for (int pass = 0 ; pass < REOPTIMIZATION_PASSES && !hurry && fixed.size() > 1 ; pass++) {
+				for (int m : fixed) {
+					if (context.exhausted(deadline)) {
+						break;
+					}
+					this.reoptimize(graph, problems[m], operations[m], nodeLimit);
+				}
+			}
+		}
+
+		return new Result(instance, graph.toSchedule(), context.exhausted(deadline) ? Result.ExitCause.Timeout : Result.ExitCause.Blocked);
+	}
+
+	/* Solves the one-machine problem of the operations with the current heads and tails, returns the operations in sequence */
+	private int[] sequence(DisjunctiveGraph graph, OneMachineProblem problem, int[] operations, long nodeLimit) {
+		int[] release = new int[operations.length];
+		int[] tail = new int[operations.length];
+		for (int i = 0 ; i < operations.length ; i++) {
+			release[i] = graph.heads[operations[i]];
+			tail[i] = graph.tails[operations[i]];
+		}
+		int[] order = problem.solve(release, tail, nodeLimit);
+		int[] sequence = new int[order.length];
+		for (int k = 0 ; k < order.length ; k++) {
+			sequence[k] = operations[order[k]];
+		}
+		return sequence;
+	}
+
+	/* Sets the sequence of an empty machine, updating heads and tails */
+	private void fix(DisjunctiveGraph graph, int[] sequence) {
+		for (int k = 0 ; k < sequence.length ; k++) {
+			graph.insert(sequence[k], k);
+		}
+		if (graph.update(sequence)) {
+			return;
+		}
+
+		/* the one-machine problem ignores the paths between its operations, which may make its
+		 * sequence cyclic : operations are then inserted one by one, at the last acyclic position */
+		for (int o : sequence) {
+			graph.remove(o);
+		}
+		graph.evaluate();
+		for (int o : sequence) {
+			int k = graph.sequenceLength(graph.machine(o));
+			graph.insert(o, k);
+			while (!graph.update(o)) {
+				graph.remove(o);
+				graph.insert(o, --k);
+			}
+		}
+	}
+
+	/* Takes the machine out of the graph and sequences it again */
+	private void reoptimize(DisjunctiveGraph graph, OneMachineProblem problem, int[] operations, long nodeLimit) {
+		for (int o : operations) {
+			graph.remove(o);
+		}
+		graph.evaluate();
+		this.fix(graph, this.sequence(graph, problem, operations, nodeLimit));
+	}
+}
@@ -4,35 +4,209 @@ import jobshop.Instance;
 import jobshop.Result;
 import jobshop.Solver;
 import jobshop.Schedule;
+import jobshop.SolveContext;
+import jobshop.metrics.Metrics;
 
+import jobshop.encodings.DisjunctiveGraph;
 import jobshop.encodings.ResourceOrder;
 import jobshop.encodings.JobNumbers;
+import jobshop.encodings.JobNumbersEvaluator;
 
 import java.util.Arrays;
 import java.util.List;
-
+import java.util.Random;
+
+/**
+ * Taboo search on the swaps of the critical blocks of the resource order, or of the job
+ * numbers sequence.
+ *
+ * Given neighbourhoods, it runs on the disjunctive graph instead, on the union of their
+ * moves (see Neighborhood) : the best move that is not taboo is made at each iteration,
+ * even if it is worse. An operation moved over others keeps, for the next
+ * 10 + jobs / machines moves, the order it got with the one it jumped over last : a move
+ * reversing it is taboo, unless it leads to a new best solution.
+ */
 public class TabooSolver extends NeighborExplorationSolver implements Solver {
 
 	private int iterationMax = 100000;
 	private int swapLivingTime = 2;
 
+	/* Base taboo tenure of the graph mode */
+	private static final int TENURE = 10;
+
+	/* null for the swaps of the resource order */
+	private final Neighborhood[] neighborhoods;
+	private final boolean allCriticalPaths;
+	/* whether the swaps are those of the job numbers sequence rather than of the resource order */
+	private final boolean jobNumbers;
+
 	public TabooSolver() {
 		super();
+		this.neighborhoods = null;
+		this.allCriticalPaths = false;
+		this.jobNumbers = false;
 	}
 
 	/* The solver used to get the initial solution we will base our neighbour search on */
 	public TabooSolver(Solver initialSolver) {
+		this(initialSolver, false);
+	}
+
+	/**
+	 * @param initialSolver	The solver used to get the initial solution
+	 * @param jobNumbers	Whether to search the swaps of the job numbers sequence instead of the resource order
+	 */
+	public TabooSolver(Solver initialSolver, boolean jobNumbers) {
+		super(initialSolver);
+		this.neighborhoods = null;
+		this.allCriticalPaths = false;
+		this.jobNumbers = jobNumbers;
+	}
+
+	/**
+	 * @param initialSolver	The solver used to get the initial solution
+	 * @param neighborhoods	Neighbourhoods whose moves the search chooses from
+	 */
+	public TabooSolver(Solver initialSolver, Neighborhood... neighborhoods) {
+		this(initialSolver, false, neighborhoods);
+	}
+
+	/**
+	 * @param initialSolver	The solver used to get the initial solution
+	 * @param allCriticalPaths	Whether the neighbourhoods cover the blocks of every critical path, or of one
+	 * @param neighborhoods	Neighbourhoods whose moves the search chooses from
+	 */
+	public TabooSolver(Solver initialSolver, boolean allCriticalPaths, Neighborhood... neighborhoods) {
 		super(initialSolver);
+		if (neighborhoods.length == 0) {
+			throw new IllegalArgumentException("at least one neighbourhood is needed");
+		}
+		this.neighborhoods = neighborhoods.clone();
+		this.allCriticalPaths = allCriticalPaths;
+		this.jobNumbers = false;
 	}
 
 	@Override
 	public Result solve(Instance instance, long deadline) {
+		if (this.neighborhoods != null) {
+			return this.solveGraph(instance, deadline);
+		}
+		if (this.jobNumbers) {
+			return this.solveJobNumbers(instance, deadline);
+		}
 		return this.solveResourceOrder(instance, deadline);
-		//return this.solveJobNumbers(instance, deadline);
+	}
+
+	private Result solveGraph(Instance instance, long deadline) {
+
+		SolveContext context = SolveContext.current();
+		Random random = context.random();
+
+		DisjunctiveGraph graph = new DisjunctiveGraph(this.initialSolver.solve(instance, deadline).schedule);
+		graph.evaluate();
+		Schedule bestSchedule = graph.toSchedule();
+		int bestMakespan = graph.makespan();
+		context.improved(bestSchedule);
+
+		/* ring buffer of the recent orders : tabooBefore[i] is to stay before tabooAfter[i] */
+		int tenure = TENURE + instance.numJobs / instance.numMachines;
+		int[] tabooBefore = new int[tenure];
+		int[] tabooAfter = new int[tenure];
+		Arrays.fill(tabooBefore, -1);
+		int oldest = 0;
+
+		Neighborhood.Moves moves = new Neighborhood.Moves();
+
+		while (!context.exhausted(deadline)) {
+
+			context.iteration(graph.makespan());
+			Neighborhood.collect(graph, this.neighborhoods, this.allCriticalPaths, moves);
+
+			int best = -1;
+			int bestMoveMakespan = Integer.MAX_VALUE;
+			boolean feasible = false;
+
+			for (int i = 0 ; i < moves.size() ; i++) {
+				int makespan = Neighborhood.evaluate(graph, moves, i);
+				if (makespan < 0) {
+					continue;
+				}
+				feasible = true;
+
+				long t = Metrics.start();
+				boolean taboo = isTaboo(graph, moves.operation(i), moves.position(i), tabooBefore, tabooAfter);
+				Metrics.stop(Metrics.Section.TABOO_BOOKKEEPING, t);
+
+				/* aspiration : a taboo move is allowed when it leads to a new best */
+				if (taboo && makespan >= bestMakespan) {
+					continue;
+				}
+				if (makespan < bestMoveMakespan || (makespan == bestMoveMakespan && random.nextBoolean())) {
+					best = i;
+					bestMoveMakespan = makespan;
+				}
+			}
+
+			if (!feasible) {
+				/* no critical block (the makespan is the length of a job) or nothing but cycles */
+				return new Result(instance, bestSchedule, Result.ExitCause.Blocked);
+			}
+			if (best < 0) {
+				/* every move is taboo */
+				Arrays.fill(tabooBefore, -1);
+				continue;
+			}
+
+			long t = Metrics.start();
+			int o = moves.operation(best);
+			int from = graph.position(o);
+			int to = moves.position(best);
+			/* the operation now at `to` is the last one jumped over */
+			int jumped = graph.sequence[graph.machine(o)][to];
+			tabooBefore[oldest] = from < to ? jumped : o;
+			tabooAfter[oldest] = from < to ? o : jumped;
+			oldest = (oldest + 1) % tenure;
+			Metrics.stop(Metrics.Section.TABOO_BOOKKEEPING, t);
+
+			Neighborhood.apply(graph, moves, best);
+
+			if (graph.makespan() < bestMakespan) {
+				bestMakespan = graph.makespan();
+				bestSchedule = graph.toSchedule();
+				context.improved(bestSchedule);
+			}
+		}
+
+		return new Result(instance, bestSchedule, Result.ExitCause.Timeout);
+	}
+
+	/* Whether moving the operation to position `to` reverses one of the taboo orders */
+	private static boolean isTaboo(DisjunctiveGraph graph, int operation, int to, int[] tabooBefore, int[] tabooAfter) {
+		int from = graph.position(operation);
+		for (int i = 0 ; i < tabooBefore.length ; i++) {
+			if (tabooBefore[i] < 0) {
+				continue;
+			}
+			/* moving left over positions to .. from - 1, or right over from + 1 .. to */
+			if (to < from && operation == tabooAfter[i]) {
+				int k = graph.position(tabooBefore[i]);
+				if (k >= to && k < from) {
+					return true;
+				}
+			} else if (to > from && operation == tabooBefore[i]) {
+				int k = graph.position(tabooAfter[i]);
+				if (k > from && k <= to) {
+					return true;
+				}
+			}
+		}
+		return false;
 	}
 
 	private Result solveResourceOrder(Instance instance, long deadline) {
 
+		SolveContext context = SolveContext.current();
+
 		int iterationCounter = 0;
 
 		int[][] solutionTaboos = new int[instance.numTasks * instance.numMachines][instance.numTasks * instance.numMachines];
@@ -42,20 +216,24 @@ public class TabooSolver extends NeighborExplorationSolver implements Solver {
 		}
 
 		ResourceOrder bestSolution = new ResourceOrder(this.initialSolver.solve(instance, deadline).schedule);
-		int bestSolutionMakespan = bestSolution.toSchedule().makespan();
+		Schedule bestSchedule = bestSolution.toSchedule();
+		int bestSolutionMakespan = bestSchedule.makespan();
+		context.improved(bestSchedule);
 
 		ResourceOrder bestCurrentSolution 	= bestSolution;
 		int bestCurrentSolutionMakespan		= bestSolutionMakespan;
 
 		boolean stuck = false;
 
-		while (iterationCounter < this.iterationMax && System.currentTimeMillis() < deadline) {
+		while (iterationCounter < this.iterationMax && !context.exhausted(deadline)) {
 
 			stuck = true;
 
 			iterationCounter++;
+			context.iteration(bestCurrentSolutionMakespan);
 
 			ResourceOrder bestTmpSolution 		= null;
+			Schedule bestTmpSchedule		= null;
 			int bestTmpSolutionMakespan 		= -1;
 
 			int bestTmpSolutionMachine		= -1;
@@ -66,11 +244,14 @@ public class TabooSolver extends NeighborExplorationSolver implements Solver {
 
 				for (Swap s : this.neighbors(block)) {
 
+					long t = Metrics.start();
 					int taskIndexT1 = bestSolution.tasksByMachine[s.machine][s.t1].task;
 					int taskIndexT2 = bestSolution.tasksByMachine[s.machine][s.t2].task;
+					boolean taboo = iterationCounter < solutionTaboos[s.machine * instance.numTasks + taskIndexT2][s.machine * instance.numTasks + taskIndexT1];
+					Metrics.stop(Metrics.Section.TABOO_BOOKKEEPING, t);
 
 					/* Still living swaps are taboos, and we do not consider them */
-					if (iterationCounter >= solutionTaboos[s.machine * instance.numTasks + taskIndexT2][s.machine * instance.numTasks + taskIndexT1]) {
+					if (!taboo) {
 
 						ResourceOrder test = bestCurrentSolution.copy();
 						int testMakespan;
@@ -78,14 +259,18 @@ public class TabooSolver extends NeighborExplorationSolver implements Solver {
 
 						Schedule testSchedule = test.toSchedule();
 
-						if (testSchedule != null) {
-							testMakespan = test.toSchedule().makespan();
+						if (testSchedule == null) {
+							Metrics.count(Metrics.Counter.INFEASIBLE_NEIGHBORS);
+						} else {
+							Metrics.count(Metrics.Counter.FEASIBLE_NEIGHBORS);
+							testMakespan = testSchedule.makespan();
 
 							/* 'test' happens to be better than the current bestSolution
 							 * -> we update bestSolution and keep going */
 							if (bestTmpSolution == null || testMakespan < bestTmpSolutionMakespan) {
 
 								bestTmpSolution 		= test.copy();
+								bestTmpSchedule			= testSchedule;
 								bestTmpSolutionMakespan 	= testMakespan;
 
 								bestTmpSolutionMachine		= s.machine;
@@ -103,24 +288,30 @@ public class TabooSolver extends NeighborExplorationSolver implements Solver {
 
 			if (bestTmpSolution != null) {
 
+				long t = Metrics.start();
 				solutionTaboos[bestTmpSolutionMachine * instance.numTasks + bestTmpSolutionTaskIndexT2][bestTmpSolutionMachine * instance.numTasks + bestTmpSolutionTaskIndexT1] = iterationCounter + this.swapLivingTime;
+				Metrics.stop(Metrics.Section.TABOO_BOOKKEEPING, t);
 
 				bestCurrentSolution = bestTmpSolution.copy();
 				bestCurrentSolutionMakespan = bestTmpSolutionMakespan;
 
 				if (bestTmpSolutionMakespan < bestSolutionMakespan) {
 					bestSolution = bestTmpSolution.copy();
+					bestSchedule = bestTmpSchedule;
 					bestSolutionMakespan = bestTmpSolutionMakespan;
+					context.improved(bestSchedule);
 				}
 			} 
 
 		}
 
-		return new Result(instance, bestSolution.toSchedule(), Result.ExitCause.Blocked);
+		return new Result(instance, bestSchedule, Result.ExitCause.Blocked);
 	}
 
 	private Result solveJobNumbers(Instance instance, long deadline) {
 
+		SolveContext context = SolveContext.current();
+
 		int iterationCounter = 0;
 
 		int[][] solutionTaboos = new int[instance.numTasks * instance.numMachines][instance.numTasks * instance.numMachines];
@@ -130,27 +321,28 @@ public class TabooSolver extends NeighborExplorationSolver implements Solver {
 		}
 
 		JobNumbers bestSolution = new JobNumbers(this.initialSolver.solve(instance, deadline).schedule);
-		int bestSolutionMakespan = bestSolution.toSchedule().makespan();
+		Schedule bestSchedule = bestSolution.toSchedule();
+		int bestSolutionMakespan = bestSchedule.makespan();
+		context.improved(bestSchedule);
 
-		JobNumbers bestCurrentSolution 		= bestSolution;
-		int bestCurrentSolutionMakespan		= bestSolutionMakespan;
+		/* the swaps of the current solution are evaluated incrementally, only decoding again from the first swapped position */
+		JobNumbers currentSolution = bestSolution.copy();
+		JobNumbersEvaluator evaluator = new JobNumbersEvaluator(currentSolution);
+		int currentSolutionMakespan = bestSolutionMakespan;
 
-		boolean stuck = false;
-
-		while (iterationCounter < this.iterationMax && System.currentTimeMillis() < deadline) {
-
-			stuck = true;
+		while (iterationCounter < this.iterationMax && !context.exhausted(deadline)) {
 
 			iterationCounter++;
+			context.iteration(currentSolutionMakespan);
 
-			JobNumbers bestTmpSolution 		= null;
+			SwapJobNumbers bestTmpSwap 		= null;
 			int bestTmpSolutionMakespan 		= -1;
 
 			int bestTmpSolutionMachine		= -1;
 			int bestTmpSolutionTaskIndexT1		= -1;
 			int bestTmpSolutionTaskIndexT2		= -1;
 
-			for (BlockJobNumbers block : this.blocksOfCriticalPath(bestSolution)) {
+			for (BlockJobNumbers block : this.blocksOfCriticalPath(currentSolution)) {
 
 				for (SwapJobNumbers s : this.neighbors(block)) {
 
@@ -159,10 +351,10 @@ public class TabooSolver extends NeighborExplorationSolver implements Solver {
 
 					int jobCounter1 = 0;
 					int jobCounter2 = 0;
-					for (int i = 0; i < bestSolution.jobs.length; i++) {
+					for (int i = 0; i < currentSolution.jobs.length; i++) {
 
-						if(bestSolution.jobs[s.j1] == bestSolution.jobs[i]) { jobCounter1++; }
-						if(bestSolution.jobs[s.j2] == bestSolution.jobs[i]) { jobCounter2++; }
+						if(currentSolution.jobs[s.j1] == currentSolution.jobs[i]) { jobCounter1++; }
+						if(currentSolution.jobs[s.j2] == currentSolution.jobs[i]) { jobCounter2++; }
 
 						if (i == s.j1) { taskIndexT1 = (jobCounter1 - 1); }
 						if (i == s.j2) { taskIndexT2 = (jobCounter2 - 1); }
@@ -173,48 +365,39 @@ public class TabooSolver extends NeighborExplorationSolver implements Solver {
 					/* Still living swaps are taboos, and we do not consider them */
 					if (iterationCounter >= solutionTaboos[s.machine * instance.numTasks + taskIndexT2][s.machine * instance.numTasks + taskIndexT1]) {
 
-						JobNumbers test = bestCurrentSolution.copy();
-						int testMakespan;
-						s.applyOn(test);
+						/* JobNumbers sequences always decode into a schedule */
+						int testMakespan = evaluator.evaluateSwap(s.j1, s.j2);
 
-						Schedule testSchedule = test.toSchedule();
+						if (bestTmpSwap == null || testMakespan < bestTmpSolutionMakespan) {
+							bestTmpSwap 			= s;
+							bestTmpSolutionMakespan 	= testMakespan;
 
-						if (testSchedule != null) {
-							testMakespan = test.toSchedule().makespan();
-
-							/* 'test' happens to be better than the current bestSolution
-							 * -> we update bestSolution and keep going */
-							if (bestTmpSolution == null || testMakespan < bestTmpSolutionMakespan) {
-								bestTmpSolution 		= test.copy();
-								bestTmpSolutionMakespan 	= testMakespan; 
-
-								bestTmpSolutionMachine		= s.machine;
-								bestTmpSolutionTaskIndexT1 	= taskIndexT1;
-								bestTmpSolutionTaskIndexT2 	= taskIndexT2;
-
-								stuck = false;
-							}
+							bestTmpSolutionMachine		= s.machine;
+							bestTmpSolutionTaskIndexT1 	= taskIndexT1;
+							bestTmpSolutionTaskIndexT2 	= taskIndexT2;
 						}
 					} 
 				}
 			}
 
-			if (bestTmpSolution != null) {
+			if (bestTmpSwap != null) {
 
 				solutionTaboos[bestTmpSolutionMachine * instance.numTasks + bestTmpSolutionTaskIndexT2][bestTmpSolutionMachine * instance.numTasks + bestTmpSolutionTaskIndexT1] = iterationCounter + this.swapLivingTime;
 
-				bestCurrentSolution = bestTmpSolution.copy();
-				bestCurrentSolutionMakespan = bestTmpSolutionMakespan;
+				bestTmpSwap.applyOn(currentSolution);
+				evaluator.update(bestTmpSwap.j1, bestTmpSwap.j2);
+				currentSolutionMakespan = bestTmpSolutionMakespan;
 
 				if (bestTmpSolutionMakespan < bestSolutionMakespan) {
-					bestSolution = bestTmpSolution.copy();
+					bestSolution = currentSolution.copy();
+					bestSchedule = bestSolution.toSchedule();
 					bestSolutionMakespan = bestTmpSolutionMakespan;
+					context.improved(bestSchedule);
 				}
 			} 
 
 		}
 
-		return new Result(instance, bestSolution.toSchedule(), Result.ExitCause.Blocked);
+		return new Result(instance, bestSchedule, Result.ExitCause.Blocked);
 	}
 }
-
@@ -9,6 +9,9 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 public class EncodingTests {
 
@@ -87,4 +90,281 @@ public class EncodingTests {
 		Schedule sched = enc.toSchedule();
 	}
 
+	@Test
+	public void testConversions() throws IOException {
+		Instance instance = Instance.fromFile(Paths.get("instances/ft06"));
+		Random random = new Random(0);
+
+		for (int i = 0 ; i < 100 ; i++) {
+			// a random sequence : every job once per task, shuffled
+			JobNumbers enc = new JobNumbers(instance);
+			for (int job = 0 ; job < instance.numJobs ; job++) {
+				for (int task = 0 ; task < instance.numTasks ; task++) {
+					enc.jobs[enc.nextToSet++] = job;
+				}
+			}
+			for (int k = enc.jobs.length - 1 ; k > 0 ; k--) {
+				int other = random.nextInt(k + 1);
+				int job = enc.jobs[k];
+				enc.jobs[k] = enc.jobs[other];
+				enc.jobs[other] = job;
+			}
+			Schedule sched = enc.toSchedule();
+
+			// both ways without a schedule, the decoded schedules are the same
+			ResourceOrder order = enc.toResourceOrder();
+			assert sameSchedule(order.toSchedule(), sched);
+			assert sameSchedule(new ResourceOrder(sched).toSchedule(), sched);
+
+			JobNumbers back = order.toJobNumbers();
+			assert back.nextToSet == enc.jobs.length;
+			assert sameSchedule(back.toSchedule(), sched);
+			assert sameSchedule(new JobNumbers(sched).toSchedule(), sched);
+		}
+
+		// a cycle : machines taking the jobs in alternately increasing and decreasing orders
+		ResourceOrder cyclic = new ResourceOrder(instance);
+		for (int m = 0 ; m < instance.numMachines ; m++) {
+			for (int k = 0 ; k < instance.numJobs ; k++) {
+				int job = m % 2 == 0 ? k : instance.numJobs - 1 - k;
+				cyclic.tasksByMachine[m][k] = new Task(job, instance.task_with_machine(job, m));
+			}
+			cyclic.nextFreeSlot[m] = instance.numJobs;
+		}
+		assert cyclic.toSchedule() == null;
+		assert cyclic.toJobNumbers() == null;
+	}
+
+	@Test
+	public void testBatch() throws IOException {
+		Instance instance = Instance.fromFile(Paths.get("instances/ft10"));
+		Random random = new Random(0);
+		JobNumbersBatch batch = new JobNumbersBatch(instance, 5);
+
+		// 12 sequences : two full batches and a partial one
+		JobNumbers enc = new JobNumbers(instance);
+		for (int job = 0 ; job < instance.numJobs ; job++) {
+			for (int task = 0 ; task < instance.numTasks ; task++) {
+				enc.jobs[enc.nextToSet++] = job;
+			}
+		}
+		for (int i = 0 ; i < 12 ; i += batch.width) {
+			batch.clear();
+			Schedule[] expected = new Schedule[batch.width];
+			while (!batch.isFull() && i + batch.size() < 12) {
+				for (int k = enc.jobs.length - 1 ; k > 0 ; k--) {
+					int other = random.nextInt(k + 1);
+					int job = enc.jobs[k];
+					enc.jobs[k] = enc.jobs[other];
+					enc.jobs[other] = job;
+				}
+				expected[batch.add(enc)] = enc.toSchedule();
+			}
+			batch.evaluate();
+			for (int lane = 0 ; lane < batch.size() ; lane++) {
+				assert batch.makespan(lane) == expected[lane].makespan();
+				assert sameSchedule(batch.schedule(lane), expected[lane]);
+				assert sameSchedule(batch.sequence(lane).toSchedule(), expected[lane]);
+			}
+		}
+	}
+
+	@Test
+	public void testDisjunctiveGraph() throws IOException {
+		Instance instance = Instance.fromFile(Paths.get("instances/ft10"));
+		Random random = new Random(0);
+
+		// graph of a random sequence, then random moves checked against a full evaluation
+		JobNumbers enc = new JobNumbers(instance);
+		for (int job = 0 ; job < instance.numJobs ; job++) {
+			for (int task = 0 ; task < instance.numTasks ; task++) {
+				enc.jobs[enc.nextToSet++] = job;
+			}
+		}
+		for (int k = enc.jobs.length - 1 ; k > 0 ; k--) {
+			int other = random.nextInt(k + 1);
+			int job = enc.jobs[k];
+			enc.jobs[k] = enc.jobs[other];
+			enc.jobs[other] = job;
+		}
+		DisjunctiveGraph graph = new DisjunctiveGraph(enc.toSchedule());
+		evaluate(graph);
+		assert graph.makespan() == enc.toSchedule().makespan();
+
+		int cycles = 0;
+		for (int i = 0 ; i < 5000 ; i++) {
+			int o = random.nextInt(graph.numOperations);
+			int m = graph.machine(o);
+			int from = graph.position(o);
+			int k = random.nextInt(graph.sequenceLength(m));
+			DisjunctiveGraph expected = graph.copy();
+			expected.remove(o);
+			expected.insert(o, k);
+			boolean acyclic = expected.evaluate();
+
+			boolean updated;
+			switch (i % 3) {
+			case 0:
+				updated = graph.move(o, k);
+				break;
+			case 1:
+				// insertion in a graph evaluated without the operation
+				graph.remove(o);
+				evaluate(graph);
+				graph.insert(o, k);
+				updated = graph.update(o);
+				break;
+			default:
+				// the same move as a chain of swaps
+				for (int p = from ; p != k ; p += k > from ? 1 : -1) {
+					graph.swap(m, p, k > from ? p + 1 : p - 1);
+				}
+				int first = Math.max(0, Math.min(from, k) - 1);
+				int last = Math.min(graph.sequenceLength(m) - 1, Math.max(from, k) + 1);
+				int[] changed = new int[last - first + 1];
+				for (int p = first ; p <= last ; p++) {
+					changed[p - first] = graph.sequence[m][p];
+				}
+				updated = graph.reevaluate(changed);
+			}
+			assert updated == acyclic;
+
+			if (acyclic) {
+				assert sameEvaluation(graph, expected);
+			} else if (i % 3 == 1) {
+				cycles++;
+				graph.remove(o);
+				graph.insert(o, from);
+				evaluate(graph);
+			} else {
+				cycles++;
+				graph.restore(o, from);
+				expected = graph.copy();
+				evaluate(expected);
+				assert sameEvaluation(graph, expected);
+			}
+		}
+		assert cycles > 0;
+		assert graph.toSchedule().isValid();
+		assert graph.toSchedule().makespan() == graph.makespan();
+
+		// whole machine sequences inserted in the graph of the job precedences only
+		DisjunctiveGraph partial = DisjunctiveGraph.unsequenced(instance);
+		evaluate(partial);
+		for (int m = 0 ; m < instance.numMachines ; m++) {
+			int[] operations = new int[instance.numJobs];
+			for (int k = 0 ; k < instance.numJobs ; k++) {
+				operations[k] = graph.sequence[m][k];
+				partial.insert(operations[k], k);
+			}
+			DisjunctiveGraph expected = partial.copy();
+			evaluate(expected);
+			boolean updated = partial.update(operations);
+			assert updated;
+			assert sameEvaluation(partial, expected);
+		}
+		assert partial.makespan() == graph.makespan();
+	}
+
+	@Test
+	public void testLeftShift() throws IOException {
+		Random random = new Random(0);
+		int shifted = 0;
+		for (String name : new String[] { "aaa1", "ft06", "ft10", "la16", "ta01" }) {
+			Instance instance = Instance.fromFile(Paths.get("instances/", name));
+			for (int i = 0 ; i < 20 ; i++) {
+				JobNumbers enc = new JobNumbers(instance);
+				for (int job = 0 ; job < instance.numJobs ; job++) {
+					for (int task = 0 ; task < instance.numTasks ; task++) {
+						enc.jobs[enc.nextToSet++] = job;
+					}
+				}
+				for (int k = enc.jobs.length - 1 ; k > 0 ; k--) {
+					int other = random.nextInt(k + 1);
+					int job = enc.jobs[k];
+					enc.jobs[k] = enc.jobs[other];
+					enc.jobs[other] = job;
+				}
+				Schedule schedule = enc.toSchedule();
+
+				LeftShift compacted = LeftShift.compact(schedule);
+				Schedule active = compacted.schedule;
+				assert active.isValid();
+				assert active.makespan() <= schedule.makespan();
+				for (int job = 0 ; job < instance.numJobs ; job++) {
+					for (int task = 0 ; task < instance.numTasks ; task++) {
+						assert active.startTime(job, task) <= schedule.startTime(job, task);
+						shifted += active.startTime(job, task) < schedule.startTime(job, task) ? 1 : 0;
+						assert !canStartEarlier(active, job, task);
+					}
+				}
+				assert sameSchedule(compacted.order.toSchedule(), active);
+			}
+		}
+		// semi-active schedules of random sequences are rarely active
+		assert shifted > 0;
+	}
+
+	/* Whether the operation fits in an idle gap of its machine before its start, after its job predecessor */
+	private static boolean canStartEarlier(Schedule schedule, int job, int task) {
+		Instance instance = schedule.pb;
+		int machine = instance.machine(job, task);
+		int duration = instance.duration(job, task);
+		int ready = task == 0 ? 0 : schedule.startTime(job, task - 1) + instance.duration(job, task - 1);
+
+		// a gap starts at the ready date or at the end of an operation of the machine
+		List<Integer> starts = new ArrayList<>();
+		starts.add(ready);
+		for (int j = 0 ; j < instance.numJobs ; j++) {
+			int t = instance.task_with_machine(j, machine);
+			int end = schedule.startTime(j, t) + instance.duration(j, t);
+			if (j != job && end >= ready) {
+				starts.add(end);
+			}
+		}
+		for (int start : starts) {
+			if (start >= schedule.startTime(job, task)) {
+				continue;
+			}
+			boolean free = true;
+			for (int j = 0 ; j < instance.numJobs ; j++) {
+				int t = instance.task_with_machine(j, machine);
+				int other = schedule.startTime(j, t);
+				free &= j == job || other + instance.duration(j, t) <= start || start + duration <= other;
+			}
+			if (free) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean sameSchedule(Schedule a, Schedule b) {
+		for (int job = 0 ; job < a.pb.numJobs ; job++) {
+			for (int task = 0 ; task < a.pb.numTasks ; task++) {
+				if (a.startTime(job, task) != b.startTime(job, task)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/* Evaluates the graph, which must be acyclic (outside of the assert : the evaluation is needed without -ea) */
+	private static void evaluate(DisjunctiveGraph graph) {
+		boolean acyclic = graph.evaluate();
+		assert acyclic;
+	}
+
+	private static boolean sameEvaluation(DisjunctiveGraph a, DisjunctiveGraph b) {
+		if (a.makespan() != b.makespan()) {
+			return false;
+		}
+		for (int o = 0 ; o < a.numOperations ; o++) {
+			if (a.heads[o] != b.heads[o] || a.tails[o] != b.tails[o]) {
+				return false;
+			}
+		}
+		return true;
+	}
 }
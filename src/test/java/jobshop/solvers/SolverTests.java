@@ -0,0 +1,267 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.encodings.DisjunctiveGraph;
+import jobshop.encodings.JobNumbers;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class SolverTests {
+
+	@Test
+	public void testNeighborhoods() throws IOException {
+		Random random = new Random(0);
+		Neighborhood.Moves moves = new Neighborhood.Moves();
+		Neighborhood.Moves others = new Neighborhood.Moves();
+
+		for (String name : new String[] { "ft06", "ft10", "la16", "ta01" }) {
+			Instance instance = Instance.fromFile(Paths.get("instances/", name));
+			for (int start = 0 ; start < 5 ; start++) {
+				DisjunctiveGraph graph = new DisjunctiveGraph(randomSequence(instance, random).toSchedule());
+				boolean acyclic = graph.evaluate();
+				assert acyclic;
+
+				// a few random moves, checking every neighbourhood on the way
+				for (int step = 0 ; step < 10 ; step++) {
+					for (Neighborhood neighborhood : Neighborhood.values()) {
+						for (boolean allCriticalPaths : new boolean[] { false, true }) {
+							Neighborhood.collect(graph, new Neighborhood[] { neighborhood }, allCriticalPaths, moves);
+							checkMoves(graph, neighborhood, allCriticalPaths, moves);
+						}
+					}
+
+					// N5 is part of N1, N6 of N7
+					Neighborhood.collect(graph, new Neighborhood[] { Neighborhood.N1 }, moves);
+					Neighborhood.collect(graph, new Neighborhood[] { Neighborhood.N5 }, others);
+					assert keys(graph, moves).containsAll(keys(graph, others));
+					Neighborhood.collect(graph, new Neighborhood[] { Neighborhood.N7 }, moves);
+					Neighborhood.collect(graph, new Neighborhood[] { Neighborhood.N6 }, others);
+					assert keys(graph, moves).containsAll(keys(graph, others));
+
+					// the union holds each move once
+					Neighborhood.collect(graph, Neighborhood.values(), moves);
+					assert keys(graph, moves).size() == moves.size();
+
+					int i = random.nextInt(moves.size());
+					if (Neighborhood.evaluate(graph, moves, i) < 0) {
+						continue;
+					}
+					int makespan = Neighborhood.evaluate(graph, moves, i);
+					boolean applied = Neighborhood.apply(graph, moves, i);
+					assert applied;
+					assert graph.makespan() == makespan;
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testOneMachineProblem() {
+		Random random = new Random(0);
+		for (int i = 0 ; i < 2000 ; i++) {
+			int n = 1 + random.nextInt(7);
+			int[] duration = new int[n];
+			int[] release = new int[n];
+			int[] tail = new int[n];
+			for (int j = 0 ; j < n ; j++) {
+				duration[j] = 1 + random.nextInt(10);
+				release[j] = random.nextInt(30);
+				tail[j] = random.nextInt(30);
+			}
+			int optimum = bruteForce(duration, release, tail, new int[n], new boolean[n], 0);
+
+			OneMachineProblem problem = new OneMachineProblem(duration);
+			// Schrage's sequence alone, then the branch and bound
+			int[] sequence = problem.solve(release, tail, 1);
+			assert value(sequence, duration, release, tail) <= problem.value();
+			assert problem.value() >= optimum;
+			sequence = problem.solve(release, tail, Long.MAX_VALUE);
+			assert problem.value() == optimum;
+			assert value(sequence, duration, release, tail) == optimum;
+		}
+	}
+
+	/* Smallest value of the sequences starting with the first `size` jobs of `sequence` */
+	private static int bruteForce(int[] duration, int[] release, int[] tail, int[] sequence, boolean[] used, int size) {
+		if (size == sequence.length) {
+			return value(sequence, duration, release, tail);
+		}
+		int best = Integer.MAX_VALUE;
+		for (int j = 0 ; j < sequence.length ; j++) {
+			if (!used[j]) {
+				used[j] = true;
+				sequence[size] = j;
+				best = Math.min(best, bruteForce(duration, release, tail, sequence, used, size + 1));
+				used[j] = false;
+			}
+		}
+		return best;
+	}
+
+	/* max(completion + tail) of the jobs in that order, each one starting as soon as released and the machine is free */
+	private static int value(int[] sequence, int[] duration, int[] release, int[] tail) {
+		boolean[] seen = new boolean[sequence.length];
+		int time = 0;
+		int value = 0;
+		for (int j : sequence) {
+			assert !seen[j];
+			seen[j] = true;
+			time = Math.max(time, release[j]) + duration[j];
+			value = Math.max(value, time + tail[j]);
+		}
+		return value;
+	}
+
+	@Test
+	public void testDispatchingRuleText() throws IOException {
+		// the predefined rules are already canonical
+		for (GreedyBinaryRelation relation : GreedyBinaryRelation.values()) {
+			assert DispatchingRule.of(relation).toString().equals(relation.rule);
+		}
+		assert DispatchingRule.parse("EST,-RPT").toString().equals("est, -rpt");
+		assert DispatchingRule.parse(" ( dur ) ").toString().equals("dur");
+		assert DispatchingRule.parse("2 * 3 + dur").toString().equals("6 + dur");
+		assert DispatchingRule.parse("dur - (rpt - est)").toString().equals("dur - (rpt - est)");
+		assert DispatchingRule.parse("-(dur + rpt)").toString().equals("-(dur + rpt)");
+		assert DispatchingRule.parse("MIN(dur,rpt)*2, max(load, nextload) / slack").toString().equals("min(dur, rpt) * 2, max(load, nextload) / slack");
+		assert DispatchingRule.parse("est, -rpt").equals(DispatchingRule.parse("est,-(rpt)"));
+
+		// random rules : parsing the canonical text gives back the same text and the same keys
+		Instance instance = Instance.fromFile(Paths.get("instances/ft06"));
+		Random random = new Random(0);
+		for (int i = 0 ; i < 2000 ; i++) {
+			StringBuilder text = new StringBuilder(randomExpression(random, 4));
+			for (int k = random.nextInt(3) ; k > 0 ; k--) {
+				text.append(',').append(randomExpression(random, 4));
+			}
+			DispatchingRule rule = DispatchingRule.parse(text.toString());
+			DispatchingRule again = DispatchingRule.parse(rule.toString());
+			assert again.toString().equals(rule.toString());
+			assert again.equals(rule) && again.hashCode() == rule.hashCode();
+			assert again.keys() == rule.keys();
+
+			// compared as the greedy solver does (0 and -0 are the same key) along a construction
+			// dispatching the tasks by increasing task number
+			DispatchingRule.State state = new DispatchingRule.State(instance);
+			for (int task = 0 ; task < instance.numTasks ; task++) {
+				for (int job = 0 ; job < instance.numJobs ; job++) {
+					for (int k = 0 ; k < rule.keys() ; k++) {
+						assert rule.key(state, k, job, task) == again.key(state, k, job, task);
+					}
+					state.dispatched(job, task);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testDispatchingRuleErrors() {
+		assert parseError("").contains("at position 0 : expected a number, a feature or '('");
+		assert parseError("foo").contains("at position 0 : unknown feature \"foo\"");
+		assert parseError("est + foo").contains("at position 6 : unknown feature \"foo\"");
+		assert parseError("est,,dur").contains("at position 4 : expected a number, a feature or '('");
+		assert parseError("est+").contains("at position 4 : expected a number, a feature or '('");
+		assert parseError("est, dur)").contains("at position 8 : expected ',' or an operator");
+		assert parseError("est dur").contains("at position 4 : expected ',' or an operator");
+		assert parseError("(est").contains("at position 4 : expected ')'");
+		assert parseError("min(est dur)").contains("at position 8 : expected ','");
+		assert parseError("max est").contains("at position 4 : expected '('");
+		assert parseError("dur * 1..2").contains("at position 6 : invalid number");
+	}
+
+	/* Message of the error parsing the text, which must fail */
+	private static String parseError(String text) {
+		try {
+			DispatchingRule.parse(text);
+		} catch (IllegalArgumentException e) {
+			return e.getMessage();
+		}
+		throw new AssertionError("\"" + text + "\" parsed");
+	}
+
+	/* Text of a random expression of the rule language, unusually spaced and parenthesized */
+	private static String randomExpression(Random random, int depth) {
+		String[] features = { "dur", "rpt", "est", "load", "slack", "nextload", "DUR", "Est" };
+		switch (depth == 0 ? random.nextInt(2) : random.nextInt(8)) {
+			case 0:	return features[random.nextInt(features.length)];
+			case 1:	return random.nextBoolean() ? Integer.toString(random.nextInt(10)) : (random.nextInt(100) / 10.0) + "";
+			case 2:	return "-" + randomExpression(random, depth - 1);
+			case 3:	return "(" + randomExpression(random, depth - 1) + ")";
+			case 4:	return (random.nextBoolean() ? "min(" : "max (") + randomExpression(random, depth - 1) + " ," + randomExpression(random, depth - 1) + ")";
+			default:
+				String operator = "+-*/".charAt(random.nextInt(4)) + (random.nextBoolean() ? " " : "");
+				return randomExpression(random, depth - 1) + operator + randomExpression(random, depth - 1);
+		}
+	}
+
+	/* Every move takes a critical operation elsewhere on its machine, is evaluated exactly and leaves the graph as it was */
+	private static void checkMoves(DisjunctiveGraph graph, Neighborhood neighborhood, boolean allCriticalPaths, Neighborhood.Moves moves) {
+		List<int[]> blocks = allCriticalPaths ? graph.criticalSubgraphBlocks() : graph.criticalBlocks();
+		DisjunctiveGraph before = graph.copy();
+		for (int i = 0 ; i < moves.size() ; i++) {
+			int o = moves.operation(i);
+			int m = graph.machine(o);
+			assert moves.source(i) == neighborhood;
+			assert graph.isCritical(o);
+			assert moves.position(i) != graph.position(o);
+			assert moves.position(i) >= 0 && moves.position(i) < graph.sequenceLength(m);
+			boolean inBlock = false;
+			for (int[] block : blocks) {
+				inBlock |= block[0] == m && block[1] <= graph.position(o) && graph.position(o) <= block[2];
+			}
+			assert inBlock;
+
+			DisjunctiveGraph expected = graph.copy();
+			expected.remove(o);
+			expected.insert(o, moves.position(i));
+			boolean acyclic = expected.evaluate();
+			int makespan = Neighborhood.evaluate(graph, moves, i);
+			assert makespan == (acyclic ? expected.makespan() : -1);
+			assert acyclic || neighborhood == Neighborhood.INSERTION;
+			assert sameGraph(graph, before);
+		}
+	}
+
+	/* Moves as (operation, position) pairs */
+	private static Set<Long> keys(DisjunctiveGraph graph, Neighborhood.Moves moves) {
+		Set<Long> keys = new HashSet<>();
+		for (int i = 0 ; i < moves.size() ; i++) {
+			keys.add((long) moves.operation(i) * graph.numOperations + moves.position(i));
+		}
+		return keys;
+	}
+
+	private static boolean sameGraph(DisjunctiveGraph a, DisjunctiveGraph b) {
+		if (a.makespan() != b.makespan()) {
+			return false;
+		}
+		for (int o = 0 ; o < a.numOperations ; o++) {
+			if (a.position(o) != b.position(o) || a.heads[o] != b.heads[o] || a.tails[o] != b.tails[o]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static JobNumbers randomSequence(Instance instance, Random random) {
+		JobNumbers enc = new JobNumbers(instance);
+		for (int job = 0 ; job < instance.numJobs ; job++) {
+			for (int task = 0 ; task < instance.numTasks ; task++) {
+				enc.jobs[enc.nextToSet++] = job;
+			}
+		}
+		for (int k = enc.jobs.length - 1 ; k > 0 ; k--) {
+			int other = random.nextInt(k + 1);
+			int job = enc.jobs[k];
+			enc.jobs[k] = enc.jobs[other];
+			enc.jobs[other] = job;
+		}
+		return enc;
+	}
+}